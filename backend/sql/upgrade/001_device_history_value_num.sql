@@ -0,0 +1,19 @@
+-- 设备上报数据增加数值列，告警比较与统计直接使用数值，不再解析字符串
+ALTER TABLE `device_history_info`
+    ADD COLUMN `value_num` double NULL DEFAULT NULL COMMENT '设备值（数值）' AFTER `device_value`;
+
+-- 回填进度，upper_id 为升级时已存在的最大上报数据ID，之后的数据入库时直接写入数值列
+CREATE TABLE IF NOT EXISTS `device_rollup_progress` (
+    `name` varchar(64) NOT NULL COMMENT '任务名称',
+    `last_id` bigint(20) NOT NULL DEFAULT 0 COMMENT '已处理到的上报数据ID',
+    `upper_id` bigint(20) NOT NULL DEFAULT 0 COMMENT '需处理到的上报数据ID',
+    PRIMARY KEY (`name`)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4 COMMENT = '设备汇总回填进度';
+
+INSERT IGNORE INTO `device_rollup_progress` (`name`, `last_id`, `upper_id`)
+SELECT 'history_value_num', 0, IFNULL(MAX(`id`), 0) FROM `device_history_info`;
+
+-- 历史数据回填由应用启动后的 DeviceValueBackfillTask 按主键分段执行并记录进度，重启后继续，避免长事务锁表
+-- 如需停机一次性回填，可直接执行：
+-- UPDATE `device_history_info` SET `value_num` = `device_value` + 0
+--  WHERE `value_num` IS NULL AND `device_value` REGEXP '^-?[0-9]+([.][0-9]+)?$';
@@ -0,0 +1,20 @@
+-- 设备上报数据分钟/小时/天汇总，入库时增量维护，统计图表直接读取汇总表
+CREATE TABLE IF NOT EXISTS `device_history_minute` (
+    `device_id` int(11) NOT NULL COMMENT '设备ID',
+    `bucket` datetime NOT NULL COMMENT '统计时间（分钟）',
+    `cnt` int(11) NOT NULL DEFAULT 0 COMMENT '上报次数',
+    `sum_value` double NOT NULL DEFAULT 0 COMMENT '设备值合计',
+    `min_value` double NULL DEFAULT NULL COMMENT '最小值',
+    `max_value` double NULL DEFAULT NULL COMMENT '最大值',
+    PRIMARY KEY (`device_id`, `bucket`)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4 COMMENT = '设备上报分钟汇总';
+
+CREATE TABLE IF NOT EXISTS `device_history_hour` LIKE `device_history_minute`;
+ALTER TABLE `device_history_hour` COMMENT = '设备上报小时汇总';
+
+CREATE TABLE IF NOT EXISTS `device_history_day` LIKE `device_history_minute`;
+ALTER TABLE `device_history_day` COMMENT = '设备上报天汇总';
+
+-- 汇总回填进度（进度表见 001），upper_id 为升级时已存在的最大上报数据ID，之后的数据由入库时维护
+INSERT IGNORE INTO `device_rollup_progress` (`name`, `last_id`, `upper_id`)
+SELECT 'history_rollup', 0, IFNULL(MAX(`id`), 0) FROM `device_history_info`;
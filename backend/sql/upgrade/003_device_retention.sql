@@ -0,0 +1,6 @@
+-- 设备类型数据保留策略（天），0 表示永久保留
+-- 原始上报数据与分钟汇总按 raw_retention_days 清理，小时汇总按 hour_retention_days，天汇总按 day_retention_days
+ALTER TABLE `device_type`
+    ADD COLUMN `raw_retention_days` int(11) NOT NULL DEFAULT 30 COMMENT '原始数据保留天数',
+    ADD COLUMN `hour_retention_days` int(11) NOT NULL DEFAULT 365 COMMENT '小时汇总保留天数',
+    ADD COLUMN `day_retention_days` int(11) NOT NULL DEFAULT 0 COMMENT '天汇总保留天数';
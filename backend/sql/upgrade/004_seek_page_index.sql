@@ -0,0 +1,6 @@
+-- 游标分页按（时间, 主键）倒序读取，InnoDB 二级索引自带主键，单列时间索引即可覆盖排序与游标条件
+-- 已存在同名索引时跳过对应语句
+ALTER TABLE `device_history_info` ADD INDEX `idx_create_date` (`create_date`);
+ALTER TABLE `device_offline_record` ADD INDEX `idx_online_date` (`online_date`);
+ALTER TABLE `operate_record_info` ADD INDEX `idx_create_date` (`create_date`);
+ALTER TABLE `device_alert_info` ADD INDEX `idx_create_date` (`create_date`);
@@ -0,0 +1,58 @@
+-- 上报数据、上下线记录、操作记录按月范围分区，分区名 pYYYYMM，上界为下月1日，p_future 接收超出已建分区的数据
+-- 分区列须包含在主键中，主键改为（主键ID, 时间），自增ID照常递增，按ID查询不受影响
+-- 已有数据按月份落入各自分区：从表中最早的时间所在月份起，每月一个分区直到当月；时间为空的数据置为 1970-01-01，落入最早的月分区
+-- 之后的月份分区由 TelemetryPartitionTask 提前创建（拆分空的 p_future），过期分区整体删除
+-- 改主键与分区在同一条语句中完成，整表只重建一次，大表请在业务低峰执行
+-- 分区表不支持外键，执行前确认三张表没有外键约束；脚本包含存储过程，请使用 mysql 客户端执行
+--
+-- 权限：TelemetryPartitionTask 在运行时执行 ALTER TABLE ... REORGANIZE PARTITION / DROP PARTITION，
+-- 应用连接数据库的账号需对这三张表具备 ALTER、DROP 权限，例如：
+--   GRANT ALTER, DROP ON `equipment_linkage_cos`.`device_history_info` TO 'app'@'%';
+--   GRANT ALTER, DROP ON `equipment_linkage_cos`.`device_offline_record` TO 'app'@'%';
+--   GRANT ALTER, DROP ON `equipment_linkage_cos`.`operate_record_info` TO 'app'@'%';
+-- 不授予时将 febs.telemetry.partitionMaintain 设为 false，由 DBA 按月手工执行，例如提前创建 2025 年 1 月分区：
+--   ALTER TABLE `device_history_info` REORGANIZE PARTITION p_future INTO (
+--       PARTITION p202501 VALUES LESS THAN ('2025-02-01'), PARTITION p_future VALUES LESS THAN (MAXVALUE));
+-- 删除过期月分区：ALTER TABLE `device_history_info` DROP PARTITION p202401;
+
+DROP PROCEDURE IF EXISTS `partition_by_month`;
+
+DELIMITER $$
+CREATE PROCEDURE `partition_by_month`(IN table_name VARCHAR(64), IN column_name VARCHAR(64))
+BEGIN
+    DECLARE current_month DATE DEFAULT DATE(DATE_FORMAT(CURDATE(), '%Y-%m-01'));
+    DECLARE month_start DATE;
+    DECLARE partition_list TEXT DEFAULT '';
+
+    SET @ddl = CONCAT('UPDATE `', table_name, '` SET `', column_name, '` = ''1970-01-01 00:00:00'' WHERE `', column_name, '` IS NULL');
+    PREPARE stmt FROM @ddl;
+    EXECUTE stmt;
+    DEALLOCATE PREPARE stmt;
+
+    -- 最早的有效时间，空表或只有置空数据时从当月开始
+    SET @min_date = NULL;
+    SET @ddl = CONCAT('SELECT MIN(`', column_name, '`) INTO @min_date FROM `', table_name, '` WHERE `', column_name, '` > ''1970-01-01 00:00:00''');
+    PREPARE stmt FROM @ddl;
+    EXECUTE stmt;
+    DEALLOCATE PREPARE stmt;
+    SET month_start = LEAST(DATE(DATE_FORMAT(IFNULL(@min_date, CURDATE()), '%Y-%m-01')), current_month);
+
+    WHILE month_start <= current_month DO
+        SET partition_list = CONCAT(partition_list, 'PARTITION p', DATE_FORMAT(month_start, '%Y%m'),
+            ' VALUES LESS THAN (''', DATE_FORMAT(month_start + INTERVAL 1 MONTH, '%Y-%m-%d'), '''), ');
+        SET month_start = month_start + INTERVAL 1 MONTH;
+    END WHILE;
+
+    SET @ddl = CONCAT('ALTER TABLE `', table_name, '` DROP PRIMARY KEY, ADD PRIMARY KEY (`id`, `', column_name, '`) ',
+        'PARTITION BY RANGE COLUMNS(`', column_name, '`) (', partition_list, 'PARTITION p_future VALUES LESS THAN (MAXVALUE))');
+    PREPARE stmt FROM @ddl;
+    EXECUTE stmt;
+    DEALLOCATE PREPARE stmt;
+END$$
+DELIMITER ;
+
+CALL `partition_by_month`('device_history_info', 'create_date');
+CALL `partition_by_month`('device_offline_record', 'online_date');
+CALL `partition_by_month`('operate_record_info', 'create_date');
+
+DROP PROCEDURE IF EXISTS `partition_by_month`;
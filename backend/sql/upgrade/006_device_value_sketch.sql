@@ -0,0 +1,9 @@
+-- 设备值每小时分位数草图，入库后在内存中累积，定时合并写入；分位数查询合并草图即可，不读取原始数据
+CREATE TABLE IF NOT EXISTS `device_value_sketch` (
+    `device_id` int(11) NOT NULL COMMENT '设备ID',
+    `bucket` datetime NOT NULL COMMENT '统计时间（小时）',
+    `cnt` int(11) NOT NULL DEFAULT 0 COMMENT '上报次数',
+    `max_value` double NULL DEFAULT NULL COMMENT '最大值',
+    `sketch` blob NOT NULL COMMENT '分位数草图',
+    PRIMARY KEY (`device_id`, `bucket`)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4 COMMENT = '设备值小时分位数草图';
@@ -0,0 +1,16 @@
+-- 设备运行时段（上线到下线），写入上下线记录时同步开启、关闭，用电统计直接读取时段
+CREATE TABLE IF NOT EXISTS `device_session` (
+    `id` bigint(20) NOT NULL AUTO_INCREMENT COMMENT '主键ID',
+    `device_id` int(11) NOT NULL COMMENT '设备ID',
+    `start_date` datetime NOT NULL COMMENT '上线时间',
+    `end_date` datetime NULL DEFAULT NULL COMMENT '下线时间，运行中为空',
+    `duration` bigint(20) NULL DEFAULT NULL COMMENT '运行时长（秒）',
+    `energy` double NULL DEFAULT NULL COMMENT '耗电量（千瓦时），按下线时的设备功率计算',
+    PRIMARY KEY (`id`),
+    INDEX `idx_device_start` (`device_id`, `start_date`),
+    INDEX `idx_device_end` (`device_id`, `end_date`)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4 COMMENT = '设备运行时段';
+
+-- 按设备回填历史时段，upper_id 为升级时已有上下线记录的最大设备ID，之后的设备由写入时维护
+INSERT IGNORE INTO `device_rollup_progress` (`name`, `last_id`, `upper_id`)
+SELECT 'device_session', 0, IFNULL(MAX(`device_id`), 0) FROM `device_offline_record`;
@@ -0,0 +1,28 @@
+-- 用电分析夜间批量结果，按用户保存完整报告，按设备保存统计值；报告统计截至批次开始时的数据
+CREATE TABLE IF NOT EXISTS `electricity_report` (
+    `user_id` int(11) NOT NULL COMMENT '用户ID（user_info.id）',
+    `device_count` int(11) NOT NULL DEFAULT 0 COMMENT '设备数量',
+    `session_count` int(11) NOT NULL DEFAULT 0 COMMENT '运行时段数量',
+    `total_consumption` double NOT NULL DEFAULT 0 COMMENT '总耗电量（千瓦时）',
+    `report` longtext NOT NULL COMMENT '用电分析报告（JSON），与接口返回一致',
+    `batch_date` datetime NOT NULL COMMENT '批次开始时间',
+    `create_date` datetime NOT NULL COMMENT '生成时间',
+    PRIMARY KEY (`user_id`),
+    INDEX `idx_batch_date` (`batch_date`)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4 COMMENT = '用户用电分析报告';
+
+CREATE TABLE IF NOT EXISTS `electricity_device_report` (
+    `device_id` int(11) NOT NULL COMMENT '设备ID',
+    `user_id` int(11) NOT NULL COMMENT '用户ID（user_info.id）',
+    `session_count` int(11) NOT NULL DEFAULT 0 COMMENT '已结束的运行时段数量',
+    `total_run_time` double NOT NULL DEFAULT 0 COMMENT '总运行时间（小时）',
+    `avg_run_time` double NOT NULL DEFAULT 0 COMMENT '平均运行时间（小时）',
+    `max_run_time` double NOT NULL DEFAULT 0 COMMENT '最长运行时间（小时）',
+    `min_run_time` double NOT NULL DEFAULT 0 COMMENT '最短运行时间（小时）',
+    `std_dev` double NOT NULL DEFAULT 0 COMMENT '运行时间标准差（小时）',
+    `total_consumption` double NOT NULL DEFAULT 0 COMMENT '总耗电量（千瓦时）',
+    `batch_date` datetime NOT NULL COMMENT '批次开始时间',
+    PRIMARY KEY (`device_id`),
+    INDEX `idx_user` (`user_id`),
+    INDEX `idx_batch_date` (`batch_date`)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4 COMMENT = '设备用电统计';
@@ -0,0 +1,15 @@
+-- 设备每日耗电台账，运行时段结束时按天拆分累加（跨零点的时段按各天运行时长分摊），电量历史、预测按日期范围读取
+CREATE TABLE IF NOT EXISTS `device_energy_daily` (
+    `device_id` int(11) NOT NULL COMMENT '设备ID',
+    `day` date NOT NULL COMMENT '日期',
+    `energy` double NOT NULL DEFAULT 0 COMMENT '耗电量（千瓦时）',
+    `run_seconds` bigint(20) NOT NULL DEFAULT 0 COMMENT '运行时长（秒）',
+    `session_count` int(11) NOT NULL DEFAULT 0 COMMENT '当天上线的运行时段数量',
+    PRIMARY KEY (`device_id`, `day`)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4 COMMENT = '设备每日耗电台账';
+
+-- 台账由设备运行时段回填任务在重建每个设备的运行时段时一并写入，不单独回填
+-- 重置运行时段回填进度，升级前已完成回填的设备重建一次以补齐台账
+INSERT INTO `device_rollup_progress` (`name`, `last_id`, `upper_id`)
+SELECT 'device_session', 0, IFNULL(MAX(`device_id`), 0) FROM `device_offline_record`
+ON DUPLICATE KEY UPDATE `last_id` = 0, `upper_id` = VALUES(`upper_id`);
@@ -0,0 +1,3 @@
+-- 设备当前值增加上报时间，多节点乱序回写时只接受较新的值
+ALTER TABLE `device_info`
+    ADD COLUMN `value_date` datetime NULL DEFAULT NULL COMMENT '当前值上报时间' AFTER `device_value`;
@@ -0,0 +1,120 @@
+package cc.mrbird.febs.common.domain;
+
+import cn.hutool.core.convert.Convert;
+import cn.hutool.core.date.DateUtil;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * 游标分页请求，按（时间, 主键）倒序，传入上一页最后一条的时间和主键获取下一页
+ * 不使用 OFFSET，任意页的查询代价与第一页相同
+ *
+ * @author FanK
+ */
+@Data
+public class SeekRequest implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 不统计总数
+     */
+    public static final String COUNT_NONE = "none";
+
+    /**
+     * 统计总数，超过 COUNT_CAP 时只返回 COUNT_CAP
+     */
+    public static final String COUNT_APPROX = "approx";
+
+    /**
+     * 精确统计总数
+     */
+    public static final String COUNT_EXACT = "exact";
+
+    /**
+     * 估算总数上限
+     */
+    public static final int COUNT_CAP = 10000;
+
+    private static final int MAX_SIZE = 500;
+
+    /**
+     * 上一页最后一条的时间
+     */
+    private String lastDate;
+
+    /**
+     * 上一页最后一条的主键
+     */
+    private Integer lastId;
+
+    /**
+     * 每页数量
+     */
+    private int size = 10;
+
+    /**
+     * 总数统计方式 none/approx/exact
+     */
+    private String count = COUNT_NONE;
+
+    /**
+     * 多查一条用于判断是否还有下一页
+     */
+    public int getFetchSize() {
+        return Math.min(Math.max(size, 1), MAX_SIZE) + 1;
+    }
+
+    /**
+     * 是否带有游标
+     */
+    public boolean hasCursor() {
+        return lastDate != null && !lastDate.isEmpty() && lastId != null;
+    }
+
+    /**
+     * 总数查询的行数上限，精确统计时为 null
+     */
+    public Integer getCountLimit() {
+        return COUNT_EXACT.equals(count) ? null : COUNT_CAP;
+    }
+
+    /**
+     * 是否需要统计总数
+     */
+    public boolean needCount() {
+        return COUNT_APPROX.equals(count) || COUNT_EXACT.equals(count);
+    }
+
+    /**
+     * 组装分页结果，返回记录、是否还有下一页及下一页游标
+     *
+     * @param records    查询结果（多查一条）
+     * @param dateColumn 排序时间列
+     * @param total      总数，未统计时为 null
+     * @return 结果
+     */
+    public LinkedHashMap<String, Object> toResult(List<LinkedHashMap<String, Object>> records, String dateColumn, Long total) {
+        boolean hasMore = records.size() >= getFetchSize();
+        if (hasMore) {
+            records = records.subList(0, getFetchSize() - 1);
+        }
+        LinkedHashMap<String, Object> result = new LinkedHashMap<>();
+        result.put("records", records);
+        result.put("hasMore", hasMore);
+        if (!records.isEmpty()) {
+            LinkedHashMap<String, Object> last = records.get(records.size() - 1);
+            Object date = last.get(dateColumn);
+            result.put("lastDate", date == null || date instanceof String ? date : DateUtil.formatDateTime(Convert.toDate(date)));
+            result.put("lastId", last.get("id"));
+        }
+        if (total != null) {
+            result.put("total", total);
+            result.put("totalExact", COUNT_EXACT.equals(count) || total < COUNT_CAP);
+        }
+        return result;
+    }
+}
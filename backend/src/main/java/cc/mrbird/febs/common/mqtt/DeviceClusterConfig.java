@@ -0,0 +1,36 @@
+package cc.mrbird.febs.common.mqtt;
+
+import cc.mrbird.febs.cos.cache.DeviceAlertRegistry;
+import cc.mrbird.febs.cos.cache.ElectricityReportCache;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.listener.adapter.MessageListenerAdapter;
+
+/**
+ * 集群模式配置，订阅设备变更、用电分析报告失效广播保持各节点设备注册表及报告缓存一致
+ *
+ * @author FanK
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "febs", name = "clustered", havingValue = "true")
+public class DeviceClusterConfig {
+
+    @Bean
+    public RedisMessageListenerContainer deviceChangeListenerContainer(RedisConnectionFactory redisConnectionFactory,
+                                                                       DeviceAlertRegistry deviceAlertRegistry,
+                                                                       ElectricityReportCache electricityReportCache) {
+        MessageListenerAdapter listener = new MessageListenerAdapter(deviceAlertRegistry, "onRemoteChange");
+        listener.afterPropertiesSet();
+        MessageListenerAdapter reportListener = new MessageListenerAdapter(electricityReportCache, "onRemoteChange");
+        reportListener.afterPropertiesSet();
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        container.addMessageListener(listener, new ChannelTopic(DeviceAlertRegistry.CHANGE_TOPIC));
+        container.addMessageListener(reportListener, new ChannelTopic(ElectricityReportCache.CHANGE_TOPIC));
+        return container;
+    }
+}
@@ -0,0 +1,90 @@
+package cc.mrbird.febs.common.mqtt;
+
+import java.util.Objects;
+
+/**
+ * 上报数据去重过滤器，识别 QoS 重发及设备重试产生的重复数据
+ * 以（设备ID、上报时间、设备值或设备值文本）为键，固定容量的开放寻址表，每个键在时间窗口内有效
+ * 探测范围内没有空位时覆盖最早的记录，因此只会漏判，不会误判
+ * 非线程安全，由 {@link DeviceIngestLane} 加锁访问
+ *
+ * @author FanK
+ */
+final class DeviceDedupFilter {
+
+    /**
+     * 最大探测长度
+     */
+    private static final int MAX_PROBE = 8;
+
+    private final int mask;
+
+    private final long window;
+
+    private final int[] deviceIds;
+
+    private final long[] timestamps;
+
+    private final long[] valueBits;
+
+    private final String[] texts;
+
+    /**
+     * 记录时间，0 表示空位
+     */
+    private final long[] seenAt;
+
+    DeviceDedupFilter(int capacity, long window) {
+        int size = Integer.highestOneBit(Math.max(capacity, MAX_PROBE) - 1) << 1;
+        this.mask = size - 1;
+        this.window = window;
+        this.deviceIds = new int[size];
+        this.timestamps = new long[size];
+        this.valueBits = new long[size];
+        this.texts = new String[size];
+        this.seenAt = new long[size];
+    }
+
+    /**
+     * 检查并记录
+     *
+     * @param reading 上报数据
+     * @param now     当前时间
+     * @return 窗口内已出现过时返回 true
+     */
+    boolean isDuplicate(DeviceReading reading, long now) {
+        if (reading.isEvent()) {
+            return false;
+        }
+        int deviceId = reading.getDeviceId();
+        long timestamp = reading.getTimestamp();
+        long bits = Double.doubleToLongBits(reading.getValue());
+        String text = reading.getText();
+        long h = (deviceId * 0x9E3779B97F4A7C15L) ^ (timestamp * 0xC2B2AE3D27D4EB4FL) ^ (text == null ? bits : text.hashCode());
+        int index = (int) (h ^ (h >>> 32)) & mask;
+        // 优先使用空位或过期位，否则覆盖最早的记录
+        int victim = index;
+        long expireBefore = now - window;
+        for (int probe = 0; probe < MAX_PROBE; probe++) {
+            int i = (index + probe) & mask;
+            long seen = seenAt[i];
+            if (seen == 0) {
+                victim = seenAt[victim] < expireBefore ? victim : i;
+                break;
+            }
+            if (seen >= expireBefore && deviceIds[i] == deviceId && timestamps[i] == timestamp && valueBits[i] == bits
+                    && Objects.equals(texts[i], text)) {
+                return true;
+            }
+            if (seen < seenAt[victim]) {
+                victim = i;
+            }
+        }
+        deviceIds[victim] = deviceId;
+        timestamps[victim] = timestamp;
+        valueBits[victim] = bits;
+        texts[victim] = text;
+        seenAt[victim] = now;
+        return false;
+    }
+}
@@ -0,0 +1,77 @@
+package cc.mrbird.febs.common.mqtt;
+
+/**
+ * 设备上报二进制帧解码器，一帧可携带多条数据，适用于受限设备和高频网关
+ * <pre>
+ * 帧头 13 字节（大端）：
+ *   0  magic      2 字节  固定为 'X' 'B'
+ *   2  version    1 字节  当前为 1
+ *   3  count      2 字节  数据条数（无符号）
+ *   5  baseTime   8 字节  基准时间（毫秒时间戳）
+ * 每条数据 17 字节：
+ *   0  id         4 字节  设备ID，场景事件时为事件ID
+ *   4  timeDelta  4 字节  相对基准时间的毫秒偏移（无符号）
+ *   8  value      8 字节  IEEE 754 双精度设备值
+ *   16 flags      1 字节  bit0 = 场景事件
+ * </pre>
+ * 无状态，线程安全
+ *
+ * @author FanK
+ */
+public final class DeviceFrameDecoder {
+
+    public static final int HEADER_SIZE = 13;
+
+    public static final int RECORD_SIZE = 17;
+
+    public static final byte VERSION = 1;
+
+    private static final int FLAG_EVENT = 1;
+
+    private DeviceFrameDecoder() {
+    }
+
+    /**
+     * 校验帧头及长度
+     *
+     * @param frame 消息内容
+     * @return 数据条数，格式不正确时返回 -1
+     */
+    public static int count(byte[] frame) {
+        if (frame.length < HEADER_SIZE || frame[0] != 'X' || frame[1] != 'B' || frame[2] != VERSION) {
+            return -1;
+        }
+        int count = ((frame[3] & 0xFF) << 8) | (frame[4] & 0xFF);
+        return frame.length == HEADER_SIZE + count * RECORD_SIZE ? count : -1;
+    }
+
+    /**
+     * 读取第 index 条数据
+     *
+     * @param frame 已通过 {@link #count(byte[])} 校验的消息内容
+     * @param index 序号
+     * @param out   输出记录，先被清空
+     */
+    public static void read(byte[] frame, int index, DeviceReading out) {
+        out.reset();
+        int offset = HEADER_SIZE + index * RECORD_SIZE;
+        int id = readInt(frame, offset);
+        long timestamp = readLong(frame, 5) + (readInt(frame, offset + 4) & 0xFFFFFFFFL);
+        if ((frame[offset + 16] & FLAG_EVENT) != 0) {
+            out.setValueType(DeviceReading.TYPE_EVENT);
+            out.setEventId(id);
+        } else {
+            out.setDeviceId(id);
+            out.setValue(Double.longBitsToDouble(readLong(frame, offset + 8)));
+        }
+        out.setTimestamp(timestamp);
+    }
+
+    private static int readInt(byte[] b, int offset) {
+        return ((b[offset] & 0xFF) << 24) | ((b[offset + 1] & 0xFF) << 16) | ((b[offset + 2] & 0xFF) << 8) | (b[offset + 3] & 0xFF);
+    }
+
+    private static long readLong(byte[] b, int offset) {
+        return ((long) readInt(b, offset) << 32) | (readInt(b, offset + 4) & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,285 @@
+package cc.mrbird.febs.common.mqtt;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 入库通道本地预写日志，数据先写入内存映射的分段文件再确认接收
+ * 入库成功后提交检查点并删除已全部入库的分段；数据库故障时回退重放，重启后从检查点继续
+ * <pre>
+ * 目录结构：checkpoint（8 字节已入库序号）、00000000000000000000.seg ...
+ * 每条记录 40 字节：
+ *   0  marker      1 字节  1 = 已写入
+ *   1  valueType   1 字节
+ *   2  flags       1 字节  1 = 设备值为文本
+ *   4  deviceId    4 字节
+ *   8  eventId     4 字节
+ *   16 timestamp   8 字节
+ *   24 value       8 字节  设备值为文本时为文本字节数
+ *   32 receivedAt  8 字节
+ * 设备值为文本时 UTF-8 内容依次写入之后的续记录：marker 为 2，其余 39 字节为内容
+ * </pre>
+ * 续记录先于首记录写入，首记录的 marker 最后写入，恢复时只认首记录
+ * 数据写入操作系统页缓存，进程崩溃不丢失；分段写满及停机时刷盘
+ *
+ * @author FanK
+ */
+@Slf4j
+final class DeviceIngestJournal implements DeviceReadingStore {
+
+    static final int RECORD_SIZE = 40;
+
+    private static final byte MARK_RECORD = 1;
+
+    private static final byte MARK_TEXT = 2;
+
+    private static final byte FLAG_TEXT = 1;
+
+    /**
+     * 每条续记录的文本字节数
+     */
+    private static final int TEXT_PER_RECORD = RECORD_SIZE - 1;
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    private final Path dir;
+
+    private final int segmentRecords;
+
+    private final long maxRecords;
+
+    private final TreeMap<Long, MappedByteBuffer> segments = new TreeMap<>();
+
+    private final MappedByteBuffer checkpoint;
+
+    /**
+     * 下一条写入序号
+     */
+    private long appendSeq;
+
+    /**
+     * 下一条取出序号
+     */
+    private long takeSeq;
+
+    /**
+     * 已入库序号（不含）
+     */
+    private long committedSeq;
+
+    DeviceIngestJournal(Path dir, int segmentRecords, int maxSegments) {
+        this.dir = dir;
+        this.segmentRecords = segmentRecords;
+        this.maxRecords = (long) segmentRecords * maxSegments;
+        try {
+            Files.createDirectories(dir);
+            checkpoint = map(dir.resolve("checkpoint"), 8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("入库日志目录无法打开：" + dir, e);
+        }
+        recover();
+    }
+
+    /**
+     * 从检查点恢复，扫描出最后一条已写入的记录
+     */
+    private void recover() {
+        committedSeq = checkpoint.getLong(0);
+        long firstSegment = committedSeq / segmentRecords;
+        File[] files = dir.toFile().listFiles((d, name) -> name.endsWith(SEGMENT_SUFFIX));
+        if (files != null) {
+            for (File file : files) {
+                long index = Long.parseLong(file.getName().substring(0, file.getName().length() - SEGMENT_SUFFIX.length()));
+                if (index < firstSegment && !file.delete()) {
+                    log.warn("入库日志分段删除失败：{}", file);
+                }
+            }
+        }
+        takeSeq = committedSeq;
+        appendSeq = committedSeq;
+        while (true) {
+            long index = appendSeq / segmentRecords;
+            if (!segments.containsKey(index) && !Files.exists(segmentPath(index))) {
+                break;
+            }
+            MappedByteBuffer segment = segment(index);
+            int offset = slot(appendSeq);
+            if (segment.get(offset) != MARK_RECORD) {
+                break;
+            }
+            appendSeq += (segment.get(offset + 2) & FLAG_TEXT) != 0 ? 1 + textRecords(segment.getLong(offset + 24)) : 1;
+        }
+        if (appendSeq > committedSeq) {
+            log.info("入库日志 {} 恢复待重放数据 {} 条", dir, appendSeq - committedSeq);
+        }
+    }
+
+    @Override
+    public boolean hasRoom(DeviceReading reading) {
+        // 文本按每字符最多 3 字节估算占用的记录数
+        long records = reading.hasText() ? 1 + textRecords(reading.getText().length() * 3L) : 1;
+        return appendSeq + records - committedSeq <= maxRecords;
+    }
+
+    @Override
+    public void append(DeviceReading reading, long receivedAt) {
+        long head = appendSeq;
+        long next = head + 1;
+        byte[] text = reading.hasText() ? reading.getText().getBytes(StandardCharsets.UTF_8) : null;
+        if (text != null) {
+            for (int from = 0; from < text.length; from += TEXT_PER_RECORD, next++) {
+                MappedByteBuffer segment = segment(next / segmentRecords);
+                int offset = slot(next);
+                ByteBuffer view = segment.duplicate();
+                view.position(offset + 1);
+                view.put(text, from, Math.min(TEXT_PER_RECORD, text.length - from));
+                segment.put(offset, MARK_TEXT);
+            }
+        }
+        MappedByteBuffer segment = segment(head / segmentRecords);
+        int offset = slot(head);
+        segment.put(offset + 1, reading.getValueType());
+        segment.put(offset + 2, text == null ? 0 : FLAG_TEXT);
+        segment.putInt(offset + 4, reading.getDeviceId());
+        segment.putInt(offset + 8, reading.getEventId());
+        segment.putLong(offset + 16, reading.getTimestamp());
+        if (text == null) {
+            segment.putDouble(offset + 24, reading.getValue());
+        } else {
+            segment.putLong(offset + 24, text.length);
+        }
+        segment.putLong(offset + 32, receivedAt);
+        // 标记最后写入，恢复时以此判断记录完整
+        segment.put(offset, MARK_RECORD);
+        appendSeq = next;
+        // 写满的分段刷盘
+        for (long index = head / segmentRecords; index < next / segmentRecords; index++) {
+            segment(index).force();
+        }
+    }
+
+    @Override
+    public int pending() {
+        return (int) (appendSeq - takeSeq);
+    }
+
+    @Override
+    public int take(DeviceReadingBatch batch, int max) {
+        int n = 0;
+        while (n < max && takeSeq < appendSeq) {
+            MappedByteBuffer segment = segment(takeSeq / segmentRecords);
+            int offset = slot(takeSeq);
+            int j = batch.size++;
+            batch.valueTypes[j] = segment.get(offset + 1);
+            batch.deviceIds[j] = segment.getInt(offset + 4);
+            batch.eventIds[j] = segment.getInt(offset + 8);
+            batch.timestamps[j] = segment.getLong(offset + 16);
+            if ((segment.get(offset + 2) & FLAG_TEXT) != 0) {
+                int length = (int) segment.getLong(offset + 24);
+                batch.values[j] = Double.NaN;
+                batch.texts[j] = readText(takeSeq + 1, length);
+                takeSeq += 1 + textRecords(length);
+            } else {
+                batch.values[j] = segment.getDouble(offset + 24);
+                batch.texts[j] = null;
+                takeSeq++;
+            }
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * 从续记录读取文本
+     */
+    private String readText(long seq, int length) {
+        byte[] text = new byte[length];
+        for (int from = 0; from < length; from += TEXT_PER_RECORD, seq++) {
+            ByteBuffer view = segment(seq / segmentRecords).duplicate();
+            view.position(slot(seq) + 1);
+            view.get(text, from, Math.min(TEXT_PER_RECORD, length - from));
+        }
+        return new String(text, StandardCharsets.UTF_8);
+    }
+
+    private static long textRecords(long length) {
+        return (length + TEXT_PER_RECORD - 1) / TEXT_PER_RECORD;
+    }
+
+    @Override
+    public long headReceivedAt() {
+        return segment(takeSeq / segmentRecords).getLong(slot(takeSeq) + 32);
+    }
+
+    @Override
+    public void commit() {
+        if (takeSeq == committedSeq) {
+            return;
+        }
+        committedSeq = takeSeq;
+        checkpoint.putLong(0, committedSeq);
+        // 删除已全部入库的分段
+        long firstSegment = committedSeq / segmentRecords;
+        while (!segments.isEmpty() && segments.firstKey() < firstSegment) {
+            Map.Entry<Long, MappedByteBuffer> entry = segments.pollFirstEntry();
+            try {
+                Files.deleteIfExists(segmentPath(entry.getKey()));
+            } catch (IOException e) {
+                log.warn("入库日志分段删除失败：{}", segmentPath(entry.getKey()), e);
+            }
+        }
+    }
+
+    @Override
+    public boolean rewind() {
+        takeSeq = committedSeq;
+        return true;
+    }
+
+    @Override
+    public void close() {
+        for (MappedByteBuffer segment : segments.values()) {
+            segment.force();
+        }
+        checkpoint.force();
+    }
+
+    private int slot(long seq) {
+        return (int) (seq % segmentRecords) * RECORD_SIZE;
+    }
+
+    private MappedByteBuffer segment(long index) {
+        MappedByteBuffer segment = segments.get(index);
+        if (segment == null) {
+            try {
+                segment = map(segmentPath(index), (long) segmentRecords * RECORD_SIZE);
+            } catch (IOException e) {
+                throw new UncheckedIOException("入库日志分段无法打开：" + segmentPath(index), e);
+            }
+            segments.put(index, segment);
+        }
+        return segment;
+    }
+
+    private Path segmentPath(long index) {
+        return dir.resolve(String.format("%020d", index) + SEGMENT_SUFFIX);
+    }
+
+    private static MappedByteBuffer map(Path path, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+}
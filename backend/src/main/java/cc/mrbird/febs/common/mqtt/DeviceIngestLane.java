@@ -0,0 +1,147 @@
+package cc.mrbird.febs.common.mqtt;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 入库通道：有界存储（内存环形队列或本地日志），同时记录每条数据的接收时间用于计算积压延迟
+ * 同一设备始终路由到同一通道，保证设备内上报顺序
+ *
+ * @author FanK
+ */
+final class DeviceIngestLane {
+
+    private final int index;
+
+    private final DeviceReadingStore store;
+
+    private final DeviceDedupFilter dedupFilter;
+
+    private volatile int count;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition notEmpty = lock.newCondition();
+
+    private final Condition notFull = lock.newCondition();
+
+    DeviceIngestLane(int index, DeviceReadingStore store, DeviceDedupFilter dedupFilter) {
+        this.index = index;
+        this.store = store;
+        this.dedupFilter = dedupFilter;
+        this.count = store.pending();
+    }
+
+    int index() {
+        return index;
+    }
+
+    /**
+     * 复制上报数据入队，存储已满时阻塞
+     *
+     * @return 重复数据被丢弃时返回 false
+     */
+    boolean put(DeviceReading reading) throws InterruptedException {
+        long now = System.currentTimeMillis();
+        lock.lockInterruptibly();
+        try {
+            if (dedupFilter != null && dedupFilter.isDuplicate(reading, now)) {
+                return false;
+            }
+            while (!store.hasRoom(reading)) {
+                notFull.await();
+            }
+            store.append(reading, now);
+            count = store.pending();
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 等待至多 timeout 毫秒，将数据追加到批次直至批次已满
+     *
+     * @return 是否取到数据
+     */
+    boolean drainTo(DeviceReadingBatch batch, long timeout) throws InterruptedException {
+        long nanos = TimeUnit.MILLISECONDS.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (store.pending() == 0) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            if (batch.oldestReceivedAt == 0) {
+                batch.oldestReceivedAt = store.headReceivedAt();
+            }
+            int n = store.take(batch, batch.capacity() - batch.size);
+            count = store.pending();
+            notFull.signalAll();
+            return n > 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 已取出的数据入库成功
+     */
+    void commit() {
+        lock.lock();
+        try {
+            store.commit();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 入库失败，回退到上次提交处等待重放
+     *
+     * @return 存储不支持回退时返回 false
+     */
+    boolean rewind() {
+        lock.lock();
+        try {
+            boolean rewound = store.rewind();
+            count = store.pending();
+            return rewound;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void close() {
+        lock.lock();
+        try {
+            store.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 当前积压数量
+     */
+    int size() {
+        return count;
+    }
+
+    /**
+     * 队首数据已等待的毫秒数
+     */
+    long lagMillis() {
+        lock.lock();
+        try {
+            return store.pending() == 0 ? 0 : System.currentTimeMillis() - store.headReceivedAt();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
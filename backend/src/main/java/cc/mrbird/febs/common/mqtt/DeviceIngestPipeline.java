@@ -0,0 +1,329 @@
+package cc.mrbird.febs.common.mqtt;
+
+import cc.mrbird.febs.cos.entity.DeviceHistoryInfo;
+import cc.mrbird.febs.cos.service.IDeviceTypeService;
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.StrUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 设备上报数据入库管道
+ * MQTT回调线程只负责按设备ID分配通道并入队，每条通道由独立线程按数量或时间触发批量入库
+ * 同一设备的数据在同一通道内顺序处理，不同设备并行处理
+ * 配置了本地日志目录时，数据写入日志后才确认接收，入库失败回退重放，重启后继续入库；
+ * 未配置时数据库暂不可用的批次保留在内存中重试，期间通道写满则阻塞MQTT回调线程，停机时未入库的数据丢失
+ *
+ * @author FanK
+ */
+@Slf4j
+@Component
+public class DeviceIngestPipeline {
+
+    private final DeviceMqttProperties prop;
+
+    private final IDeviceTypeService deviceTypeService;
+
+    private final DeviceIngestLane[] lanes;
+
+    private final Thread[] workers;
+
+    private final Timer[] flushTimers;
+
+    private final Timer[] lagTimers;
+
+    private final Counter acceptedCounter;
+
+    private final Counter failedCounter;
+
+    private final Counter retriedCounter;
+
+    private final Counter dedupHitCounter;
+
+    private final Counter dedupMissCounter;
+
+    private volatile boolean running = true;
+
+    public DeviceIngestPipeline(DeviceMqttProperties prop, IDeviceTypeService deviceTypeService, MeterRegistry meterRegistry) {
+        this.prop = prop;
+        this.deviceTypeService = deviceTypeService;
+        int laneCount = prop.getIngestLanes() > 0 ? prop.getIngestLanes() : Runtime.getRuntime().availableProcessors();
+        this.lanes = new DeviceIngestLane[laneCount];
+        this.workers = new Thread[laneCount];
+        this.flushTimers = new Timer[laneCount];
+        this.lagTimers = new Timer[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            DeviceIngestLane lane = new DeviceIngestLane(i, createStore(i), prop.getDedupWindow() > 0
+                    ? new DeviceDedupFilter(prop.getDedupCapacity(), prop.getDedupWindow()) : null);
+            String tag = String.valueOf(i);
+            lanes[i] = lane;
+            Gauge.builder("device.ingest.lane.depth", lane, DeviceIngestLane::size)
+                    .description("通道待入库数量")
+                    .tag("lane", tag)
+                    .register(meterRegistry);
+            Gauge.builder("device.ingest.lane.lag", lane, DeviceIngestLane::lagMillis)
+                    .description("通道队首数据等待时间（毫秒）")
+                    .tag("lane", tag)
+                    .register(meterRegistry);
+            flushTimers[i] = Timer.builder("device.ingest.flush")
+                    .description("批量入库耗时")
+                    .tag("lane", tag)
+                    .register(meterRegistry);
+            lagTimers[i] = Timer.builder("device.ingest.latency")
+                    .description("数据从接收到入库完成的最长耗时")
+                    .tag("lane", tag)
+                    .register(meterRegistry);
+        }
+        Gauge.builder("device.ingest.queue.depth", this, DeviceIngestPipeline::depth)
+                .description("待入库上报数据数量")
+                .register(meterRegistry);
+        this.acceptedCounter = Counter.builder("device.ingest.accepted")
+                .description("已接收上报数据数量")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("device.ingest.failed")
+                .description("入库失败上报数据数量")
+                .register(meterRegistry);
+        this.retriedCounter = Counter.builder("device.ingest.retried")
+                .description("入库失败后等待重放的上报数据数量")
+                .register(meterRegistry);
+        this.dedupHitCounter = Counter.builder("device.ingest.dedup")
+                .description("去重检查结果")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.dedupMissCounter = Counter.builder("device.ingest.dedup")
+                .description("去重检查结果")
+                .tag("result", "miss")
+                .register(meterRegistry);
+    }
+
+    private DeviceReadingStore createStore(int index) {
+        if (StrUtil.isBlank(prop.getJournalDir())) {
+            return new DeviceReadingRing(prop.getIngestQueueCapacity());
+        }
+        return new DeviceIngestJournal(journalPath(index), prop.getJournalSegmentRecords(), prop.getJournalMaxSegments());
+    }
+
+    private Path journalPath(int index) {
+        return Paths.get(prop.getJournalDir(), "lane-" + index);
+    }
+
+    /**
+     * 通道数量减少后，将多出通道日志中未入库的数据重新分配到现有通道
+     * 需在通道线程启动后执行，否则数据超过通道容量时入队阻塞
+     */
+    private void recoverOrphanJournals() {
+        if (StrUtil.isBlank(prop.getJournalDir())) {
+            return;
+        }
+        for (int index = lanes.length; FileUtil.exist(journalPath(index).toFile()); index++) {
+            File dir = journalPath(index).toFile();
+            DeviceIngestJournal journal = new DeviceIngestJournal(dir.toPath(), prop.getJournalSegmentRecords(), prop.getJournalMaxSegments());
+            DeviceReadingBatch batch = new DeviceReadingBatch(prop.getIngestBatchSize());
+            DeviceReading reading = new DeviceReading();
+            int recovered = 0;
+            while (journal.take(batch, batch.capacity()) > 0) {
+                for (int i = 0; i < batch.size; i++) {
+                    batch.read(i, reading);
+                    submit(reading);
+                }
+                recovered += batch.size;
+                batch.clear();
+            }
+            journal.close();
+            FileUtil.del(dir);
+            log.info("入库日志 {} 已并入现有通道，数据 {} 条", dir, recovered);
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        for (DeviceIngestLane lane : lanes) {
+            Thread worker = new Thread(() -> runLoop(lane), "device-ingest-lane-" + lane.index());
+            worker.setDaemon(true);
+            worker.start();
+            workers[lane.index()] = worker;
+        }
+        log.info("设备上报入库通道启动，通道数量：{}", lanes.length);
+        recoverOrphanJournals();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        for (Thread worker : workers) {
+            worker.join(TimeUnit.SECONDS.toMillis(30));
+        }
+    }
+
+    /**
+     * 上报数据入队，按设备分配通道，通道已满时阻塞等待
+     * 数据被复制进通道，调用方可立即复用 reading
+     *
+     * @param reading 上报数据
+     */
+    public void submit(DeviceReading reading) {
+        // 场景事件没有设备ID，按事件ID分配通道
+        int key = reading.hasDeviceId() ? reading.getDeviceId() : reading.getEventId();
+        DeviceIngestLane lane = lanes[laneOf(key)];
+        try {
+            if (lane.put(reading)) {
+                dedupMissCounter.increment();
+                acceptedCounter.increment();
+            } else {
+                dedupHitCounter.increment();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failedCounter.increment();
+            log.warn("上报数据入队被中断，设备ID：{}", reading.getDeviceId());
+        }
+    }
+
+    /**
+     * 当前队列深度
+     *
+     * @return 待入库数量
+     */
+    public int depth() {
+        int depth = 0;
+        for (DeviceIngestLane lane : lanes) {
+            depth += lane.size();
+        }
+        return depth;
+    }
+
+    private int laneOf(int key) {
+        int h = key * 0x9E3779B9;
+        return ((h ^ (h >>> 16)) & Integer.MAX_VALUE) % lanes.length;
+    }
+
+    private void runLoop(DeviceIngestLane lane) {
+        long interval = prop.getIngestFlushInterval();
+        DeviceReadingBatch batch = new DeviceReadingBatch(prop.getIngestBatchSize());
+        List<DeviceHistoryInfo> historyList = new ArrayList<>(batch.capacity());
+        long deadline = System.currentTimeMillis() + interval;
+        while (running) {
+            try {
+                lane.drainTo(batch, deadline - System.currentTimeMillis());
+                if (batch.isFull() || System.currentTimeMillis() >= deadline) {
+                    if (!flush(lane, batch, historyList)) {
+                        // 日志中的数据回退或内存中的批次保留，等待数据库恢复后重放
+                        Thread.sleep(prop.getIngestRetryInterval());
+                    }
+                    deadline = System.currentTimeMillis() + interval;
+                }
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+        // 停机前写完剩余数据，失败的数据保留在日志中
+        try {
+            boolean drained;
+            do {
+                drained = lane.drainTo(batch, 0);
+            } while (flush(lane, batch, historyList) && drained);
+        } catch (InterruptedException e) {
+            log.warn("入库通道{}停机时仍有{}条数据未入库", lane.index(), lane.size());
+        }
+        if (!lane.rewind() && !batch.isEmpty()) {
+            failedCounter.increment(batch.size);
+            log.error("入库通道{}停机时数据库仍不可用，内存中{}条数据未入库", lane.index(), batch.size);
+        }
+        lane.close();
+    }
+
+    /**
+     * 批量入库
+     *
+     * @return 数据库不可用时返回 false，日志中的数据已回退；内存存储不支持回退，批次保留不清空，下次继续重试
+     */
+    private boolean flush(DeviceIngestLane lane, DeviceReadingBatch batch, List<DeviceHistoryInfo> historyList) {
+        if (batch.isEmpty()) {
+            return true;
+        }
+        long start = System.nanoTime();
+        boolean keepBatch = false;
+        try {
+            batch.toHistoryList(historyList);
+            deviceTypeService.setDeviceRecordBatch(historyList);
+            lane.commit();
+            lagTimers[lane.index()].record(System.currentTimeMillis() - batch.oldestReceivedAt, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (Exception e) {
+            if (isTransient(e)) {
+                retriedCounter.increment(batch.size);
+                if (lane.rewind()) {
+                    log.warn("通道{}数据库暂不可用，{}条数据保留在日志中等待重放：{}", lane.index(), batch.size, e.getMessage());
+                } else {
+                    keepBatch = true;
+                    log.warn("通道{}数据库暂不可用，{}条数据保留在内存中等待重试：{}", lane.index(), batch.size, e.getMessage());
+                }
+                return false;
+            } else {
+                // 数据本身有问题，逐条入库隔离出错的数据，避免整批反复重放
+                log.warn("通道{}上报数据批量入库失败，改为逐条入库，本批数量：{}", lane.index(), batch.size, e);
+                persistEach(historyList);
+            }
+            lane.commit();
+            return true;
+        } finally {
+            flushTimers[lane.index()].record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            historyList.clear();
+            if (!keepBatch) {
+                batch.clear();
+            }
+        }
+    }
+
+    private void persistEach(List<DeviceHistoryInfo> historyList) {
+        for (DeviceHistoryInfo historyInfo : historyList) {
+            try {
+                deviceTypeService.setDeviceRecordBatch(Collections.singletonList(historyInfo));
+            } catch (Exception e) {
+                failedCounter.increment();
+                log.error("上报数据入库失败，设备ID：{}，设备值：{}", historyInfo.getDeviceId(), historyInfo.getDeviceValue(), e);
+            }
+        }
+    }
+
+    /**
+     * 是否为数据库连接类的暂时性故障
+     */
+    private static boolean isTransient(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TransientDataAccessException || cause instanceof RecoverableDataAccessException
+                    || cause instanceof DataAccessResourceFailureException || cause instanceof CannotCreateTransactionException
+                    || cause instanceof SQLTransientException || cause instanceof SQLRecoverableException) {
+                return true;
+            }
+            if (cause instanceof SQLException && StrUtil.startWith(((SQLException) cause).getSQLState(), "08")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -1,5 +1,6 @@
 package cc.mrbird.febs.common.mqtt;
 
+import cc.mrbird.febs.common.properties.FebsProperties;
 import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
@@ -23,11 +24,13 @@ import java.time.Instant;
 public class DeviceMqttConfig {
 
     private final DeviceMqttProperties prop;
+    private final FebsProperties febsProperties;
     private final DeviceMqttInboundMessageHandler deviceMqttInboundMessageHandler;
 
-    public DeviceMqttConfig(DeviceMqttProperties prop,
+    public DeviceMqttConfig(DeviceMqttProperties prop, FebsProperties febsProperties,
                             DeviceMqttInboundMessageHandler deviceMqttInboundMessageHandler) {
         this.prop = prop;
+        this.febsProperties = febsProperties;
         this.deviceMqttInboundMessageHandler = deviceMqttInboundMessageHandler;
     }
 
@@ -39,7 +42,8 @@ public class DeviceMqttConfig {
         mqttConnectOptions.setUserName(prop.getUsername());
         mqttConnectOptions.setPassword(prop.getPassword().toCharArray());
         // 客户端断线时暂时不清除，直到超时注销
-        mqttConnectOptions.setCleanSession(false);
+        // 集群模式下节点离线需立即释放会话，由服务端将共享订阅消息分派给其余节点
+        mqttConnectOptions.setCleanSession(!febsProperties.isClustered());
         mqttConnectOptions.setAutomaticReconnect(true);
         factory.setConnectionOptions(mqttConnectOptions);
         return factory;
@@ -68,8 +72,11 @@ public class DeviceMqttConfig {
     public MessageProducerSupport mqttInbound(@Qualifier("toiletMqttClientFactory") MqttPahoClientFactory mqttClientFactory) {
         MqttPahoMessageDrivenChannelAdapter adapter =
                 new MqttPahoMessageDrivenChannelAdapter(prop.getClientId() + "-sub-" + Instant.now().toEpochMilli(), mqttClientFactory,
-                        prop.getTopics());
-        adapter.setConverter(new DefaultPahoMessageConverter());
+                        prop.subscribeTopics(febsProperties.isClustered()));
+        // 消息体保持原始字节，由解码器直接解析
+        DefaultPahoMessageConverter converter = new DefaultPahoMessageConverter();
+        converter.setPayloadAsBytes(true);
+        adapter.setConverter(converter);
         adapter.setQos(2);
         adapter.setOutputChannel(toiletMqttInboundChannel());
         return adapter;
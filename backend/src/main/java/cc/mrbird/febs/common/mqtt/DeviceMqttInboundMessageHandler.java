@@ -1,30 +1,80 @@
 package cc.mrbird.febs.common.mqtt;
 
-import cc.mrbird.febs.cos.service.IDeviceTypeService;
-import cn.hutool.core.util.StrUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.integration.mqtt.support.MqttHeaders;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageHandler;
 import org.springframework.messaging.MessagingException;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 @Slf4j
 @Component
 @RequiredArgsConstructor(onConstructor = @__(@Autowired))
 public class DeviceMqttInboundMessageHandler implements MessageHandler {
 
-    private final IDeviceTypeService deviceTypeService;
+    private final DeviceIngestPipeline deviceIngestPipeline;
+
+    private final DeviceMqttProperties prop;
+
+    /**
+     * 主题是否为二进制帧格式
+     */
+    private final Map<String, Boolean> binaryTopicCache = new ConcurrentHashMap<>();
+
+    /**
+     * 每个回调线程复用一个解码器
+     */
+    private final ThreadLocal<DeviceReadingDecoder> decoders = ThreadLocal.withInitial(DeviceReadingDecoder::new);
 
     @Override
     public void handleMessage(Message<?> message) throws MessagingException {
-        if (StrUtil.isEmpty(message.getPayload().toString())) {
+        Object payload = message.getPayload();
+        byte[] bytes = payload instanceof byte[] ? (byte[]) payload : payload.toString().getBytes(StandardCharsets.UTF_8);
+        if (bytes.length == 0) {
             return;
         }
-        System.out.println("接收到MQTT消息：" + message.getPayload());
+        String topic = message.getHeaders().get(MqttHeaders.RECEIVED_TOPIC, String.class);
+        if (topic != null && binaryTopicCache.computeIfAbsent(topic, prop::isBinaryTopic)) {
+            handleFrame(topic, bytes);
+            return;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("接收到MQTT消息：{}", new String(bytes, StandardCharsets.UTF_8));
+        }
         // 解析数据
-        deviceTypeService.setDeviceRecordMqtt(message.getPayload().toString());
+        DeviceReadingDecoder decoder = decoders.get();
+        if (!decoder.decode(bytes)) {
+            log.warn("MQTT消息解析失败：{}", new String(bytes, StandardCharsets.UTF_8));
+            return;
+        }
+        DeviceReading reading = decoder.reading();
+        if (reading.getTimestamp() == 0) {
+            reading.setTimestamp(System.currentTimeMillis());
+        }
+        deviceIngestPipeline.submit(reading);
+    }
+
+    /**
+     * 处理二进制帧，逐条解码后进入同一入库管道
+     */
+    private void handleFrame(String topic, byte[] frame) {
+        int count = DeviceFrameDecoder.count(frame);
+        if (count < 0) {
+            log.warn("MQTT二进制帧格式错误，主题：{}，长度：{}", topic, frame.length);
+            return;
+        }
+        log.debug("接收到MQTT二进制帧，主题：{}，数据条数：{}", topic, count);
+        DeviceReading reading = decoders.get().reading();
+        for (int i = 0; i < count; i++) {
+            DeviceFrameDecoder.read(frame, i, reading);
+            deviceIngestPipeline.submit(reading);
+        }
     }
 
 }
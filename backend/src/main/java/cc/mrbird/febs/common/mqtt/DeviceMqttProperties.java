@@ -1,5 +1,6 @@
 package cc.mrbird.febs.common.mqtt;
 
+import cn.hutool.core.util.StrUtil;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
@@ -16,4 +17,116 @@ public class DeviceMqttProperties {
     private String topics;
     private String defaultTopic;
 
+    /**
+     * 二进制帧格式的主题，逗号分隔，支持 + 和 # 通配符，其余主题按 JSON 解析
+     * 帧格式见 {@link DeviceFrameDecoder}
+     */
+    private String binaryTopics;
+
+    /**
+     * 共享订阅分组名称，同组节点分担同一主题，集群模式（febs.clustered）下使用
+     */
+    private String sharedGroup = "febs-device";
+
+    /**
+     * 实际订阅的主题，集群模式下加上共享订阅前缀 $share/分组/
+     *
+     * @param clustered 是否集群模式
+     * @return 主题列表
+     */
+    public String[] subscribeTopics(boolean clustered) {
+        String[] topicArray = StrUtil.isBlank(binaryTopics) ? StrUtil.splitToArray(topics, ',')
+                : StrUtil.splitToArray(topics + "," + binaryTopics, ',');
+        for (int i = 0; i < topicArray.length; i++) {
+            String topic = topicArray[i].trim();
+            topicArray[i] = clustered && !topic.startsWith("$share/") ? "$share/" + sharedGroup + "/" + topic : topic;
+        }
+        return topicArray;
+    }
+
+    /**
+     * 主题是否使用二进制帧格式
+     *
+     * @param topic 收到消息的主题
+     * @return 结果
+     */
+    public boolean isBinaryTopic(String topic) {
+        if (topic == null || StrUtil.isBlank(binaryTopics)) {
+            return false;
+        }
+        for (String filter : StrUtil.splitTrim(binaryTopics, ',')) {
+            if (topicMatches(filter, topic)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * MQTT 主题通配符匹配
+     */
+    private static boolean topicMatches(String filter, String topic) {
+        String[] filterLevels = filter.split("/", -1);
+        String[] topicLevels = topic.split("/", -1);
+        for (int i = 0; i < filterLevels.length; i++) {
+            if ("#".equals(filterLevels[i])) {
+                return true;
+            }
+            if (i >= topicLevels.length || !("+".equals(filterLevels[i]) || filterLevels[i].equals(topicLevels[i]))) {
+                return false;
+            }
+        }
+        return filterLevels.length == topicLevels.length;
+    }
+
+    /**
+     * 入库通道数量，按设备ID哈希分配，0 表示与CPU核数一致
+     */
+    private int ingestLanes = 0;
+
+    /**
+     * 每条入库通道的队列容量，队列满时阻塞MQTT回调线程形成背压
+     */
+    private int ingestQueueCapacity = 10000;
+
+    /**
+     * 入库失败后重试间隔（毫秒），仅启用本地日志时重试
+     */
+    private long ingestRetryInterval = 5000;
+
+    /**
+     * 去重时间窗口（毫秒），窗口内设备ID、上报时间、设备值都相同的数据视为重复，0 表示不去重
+     */
+    private long dedupWindow = 600000;
+
+    /**
+     * 每条通道去重表容量，占用内存约为 容量 x 32 字节
+     */
+    private int dedupCapacity = 65536;
+
+    /**
+     * 入库本地日志目录，留空则只在内存中排队，数据库故障时数据丢失
+     */
+    private String journalDir;
+
+    /**
+     * 日志每个分段的记录条数
+     */
+    private int journalSegmentRecords = 65536;
+
+    /**
+     * 每条通道最多保留的日志分段数量，写满时阻塞MQTT回调线程
+     */
+    private int journalMaxSegments = 64;
+
+    /**
+     * 单批最大入库条数
+     */
+    private int ingestBatchSize = 500;
+
+    /**
+     * 最长入库间隔（毫秒），未凑满一批时按时间触发
+     */
+    private long ingestFlushInterval = 1000;
+
 }
@@ -0,0 +1,100 @@
+package cc.mrbird.febs.common.mqtt;
+
+import lombok.Data;
+
+/**
+ * 设备上报数据（可复用的原始类型记录），解码时反复填充，避免每条消息创建对象
+ *
+ * @author FanK
+ */
+@Data
+public class DeviceReading {
+
+    /**
+     * 未设置的ID
+     */
+    public static final int NO_ID = Integer.MIN_VALUE;
+
+    /**
+     * 数值上报
+     */
+    public static final byte TYPE_VALUE = 0;
+
+    /**
+     * 场景事件
+     */
+    public static final byte TYPE_EVENT = 1;
+
+    /**
+     * 设备值文本的最大字节数（UTF-8）
+     */
+    public static final int MAX_TEXT_BYTES = 4096;
+
+    /**
+     * 设备ID
+     */
+    private int deviceId = NO_ID;
+
+    /**
+     * 设备值，未上报时为 NaN
+     */
+    private double value = Double.NaN;
+
+    /**
+     * 上报时间（毫秒时间戳），未上报时为 0
+     */
+    private long timestamp;
+
+    /**
+     * 数据类型
+     */
+    private byte valueType = TYPE_VALUE;
+
+    /**
+     * 场景事件ID
+     */
+    private int eventId = NO_ID;
+
+    /**
+     * 设备值为非数值文本（如 on、open）时的原文，此时 value 为 NaN
+     */
+    private String text;
+
+    /**
+     * 清空，复用前调用
+     */
+    public void reset() {
+        deviceId = NO_ID;
+        value = Double.NaN;
+        timestamp = 0;
+        valueType = TYPE_VALUE;
+        eventId = NO_ID;
+        text = null;
+    }
+
+    public boolean hasDeviceId() {
+        return deviceId != NO_ID;
+    }
+
+    public boolean isEvent() {
+        return valueType == TYPE_EVENT;
+    }
+
+    public boolean hasText() {
+        return text != null;
+    }
+
+    /**
+     * 设备值文本，整数不带小数位
+     *
+     * @param value 设备值
+     * @return 文本
+     */
+    public static String formatValue(double value) {
+        if (Double.isNaN(value)) {
+            return null;
+        }
+        long integral = (long) value;
+        return integral == value ? Long.toString(integral) : Double.toString(value);
+    }
+}
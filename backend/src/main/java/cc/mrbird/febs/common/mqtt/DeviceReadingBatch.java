@@ -0,0 +1,99 @@
+package cc.mrbird.febs.common.mqtt;
+
+import cc.mrbird.febs.cos.entity.DeviceHistoryInfo;
+import cn.hutool.core.date.DateUtil;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 按列存放的一批上报数据，入库通道线程复用
+ *
+ * @author FanK
+ */
+final class DeviceReadingBatch {
+
+    final int[] deviceIds;
+
+    final double[] values;
+
+    final long[] timestamps;
+
+    final byte[] valueTypes;
+
+    final int[] eventIds;
+
+    /**
+     * 非数值文本设备值，数值数据为 null
+     */
+    final String[] texts;
+
+    int size;
+
+    /**
+     * 本批最早的接收时间
+     */
+    long oldestReceivedAt;
+
+    DeviceReadingBatch(int capacity) {
+        deviceIds = new int[capacity];
+        values = new double[capacity];
+        timestamps = new long[capacity];
+        valueTypes = new byte[capacity];
+        eventIds = new int[capacity];
+        texts = new String[capacity];
+    }
+
+    int capacity() {
+        return deviceIds.length;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    boolean isFull() {
+        return size == deviceIds.length;
+    }
+
+    void clear() {
+        Arrays.fill(texts, 0, size, null);
+        size = 0;
+        oldestReceivedAt = 0;
+    }
+
+    /**
+     * 读取第 i 条数据
+     */
+    void read(int i, DeviceReading out) {
+        out.reset();
+        out.setDeviceId(deviceIds[i]);
+        out.setValue(values[i]);
+        out.setTimestamp(timestamps[i]);
+        out.setValueType(valueTypes[i]);
+        out.setEventId(eventIds[i]);
+        out.setText(texts[i]);
+    }
+
+    /**
+     * 转换为入库实体
+     *
+     * @param historyList 输出
+     */
+    void toHistoryList(List<DeviceHistoryInfo> historyList) {
+        for (int i = 0; i < size; i++) {
+            DeviceHistoryInfo historyInfo = new DeviceHistoryInfo();
+            if (valueTypes[i] == DeviceReading.TYPE_EVENT) {
+                historyInfo.setValueType("event");
+                historyInfo.setEventId(eventIds[i] == DeviceReading.NO_ID ? null : eventIds[i]);
+            } else {
+                historyInfo.setDeviceId(deviceIds[i] == DeviceReading.NO_ID ? null : deviceIds[i]);
+                historyInfo.setDeviceValue(texts[i] != null ? texts[i] : DeviceReading.formatValue(values[i]));
+                historyInfo.setValueNum(Double.isNaN(values[i]) ? null : values[i]);
+                historyInfo.setCreateDate(DateUtil.formatDateTime(new Date(timestamps[i])));
+            }
+            historyList.add(historyInfo);
+        }
+    }
+}
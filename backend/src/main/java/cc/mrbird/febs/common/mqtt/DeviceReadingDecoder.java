@@ -0,0 +1,474 @@
+package cc.mrbird.febs.common.mqtt;
+
+import cn.hutool.core.date.DateUtil;
+
+import java.nio.charset.StandardCharsets;
+import java.util.TimeZone;
+
+/**
+ * 设备上报 JSON 解码器
+ * 直接扫描原始字节填充 {@link DeviceReading}，不创建中间字符串和 JSON 对象树
+ * 只识别扁平对象中的 deviceId、deviceValue、createDate、timestamp、valueType、eventId，其余字段跳过
+ * deviceValue 为非数值文本（如 on、open）时保留原文，超过 {@link DeviceReading#MAX_TEXT_BYTES} 视为格式错误
+ * 非线程安全，每个线程持有一个实例
+ *
+ * @author FanK
+ */
+public final class DeviceReadingDecoder {
+
+    private static final byte[] KEY_DEVICE_ID = bytes("deviceId");
+
+    private static final byte[] KEY_DEVICE_VALUE = bytes("deviceValue");
+
+    private static final byte[] KEY_CREATE_DATE = bytes("createDate");
+
+    private static final byte[] KEY_TIMESTAMP = bytes("timestamp");
+
+    private static final byte[] KEY_VALUE_TYPE = bytes("valueType");
+
+    private static final byte[] KEY_EVENT_ID = bytes("eventId");
+
+    private static final byte[] VALUE_EVENT = bytes("event");
+
+    private static final double[] POW10 = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9,
+            1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18};
+
+    private final TimeZone timeZone = TimeZone.getDefault();
+
+    private final DeviceReading reading = new DeviceReading();
+
+    private byte[] buf;
+
+    private int pos;
+
+    private int end;
+
+    /**
+     * 本解码器复用的记录
+     */
+    public DeviceReading reading() {
+        return reading;
+    }
+
+    /**
+     * 解码到 {@link #reading()}
+     *
+     * @param payload 消息内容
+     * @return 格式不正确时返回 false
+     */
+    public boolean decode(byte[] payload) {
+        return decode(payload, 0, payload.length, reading);
+    }
+
+    /**
+     * 解码一个 JSON 对象
+     *
+     * @param payload 消息内容
+     * @param offset  起始位置
+     * @param length  长度
+     * @param out     输出记录，先被清空
+     * @return 格式不正确时返回 false
+     */
+    public boolean decode(byte[] payload, int offset, int length, DeviceReading out) {
+        out.reset();
+        buf = payload;
+        pos = offset;
+        end = offset + length;
+        try {
+            return parseObject(out);
+        } catch (RuntimeException e) {
+            return false;
+        } finally {
+            buf = null;
+        }
+    }
+
+    private boolean parseObject(DeviceReading out) {
+        if (next() != '{') {
+            return false;
+        }
+        if (peek() == '}') {
+            pos++;
+            return true;
+        }
+        while (true) {
+            if (next() != '"') {
+                return false;
+            }
+            int keyStart = pos;
+            int keyEnd = skipString();
+            if (next() != ':') {
+                return false;
+            }
+            skipWhitespace();
+            if (matches(keyStart, keyEnd, KEY_DEVICE_ID)) {
+                out.setDeviceId(readInt());
+            } else if (matches(keyStart, keyEnd, KEY_DEVICE_VALUE)) {
+                if (at(pos) == '"' && !quotedNumber()) {
+                    pos++;
+                    out.setText(readText());
+                } else {
+                    out.setValue(readDouble());
+                }
+            } else if (matches(keyStart, keyEnd, KEY_CREATE_DATE)) {
+                long timestamp = readDateTime();
+                if (timestamp > 0) {
+                    out.setTimestamp(timestamp);
+                }
+            } else if (matches(keyStart, keyEnd, KEY_TIMESTAMP)) {
+                double timestamp = readDouble();
+                if (!Double.isNaN(timestamp)) {
+                    // 兼容秒级时间戳
+                    out.setTimestamp(timestamp < 1e11 ? (long) (timestamp * 1000) : (long) timestamp);
+                }
+            } else if (matches(keyStart, keyEnd, KEY_VALUE_TYPE)) {
+                if (peek() == '"') {
+                    pos++;
+                    int start = pos;
+                    int stop = skipString();
+                    out.setValueType(matches(start, stop, VALUE_EVENT) ? DeviceReading.TYPE_EVENT : DeviceReading.TYPE_VALUE);
+                } else {
+                    skipValue();
+                }
+            } else if (matches(keyStart, keyEnd, KEY_EVENT_ID)) {
+                out.setEventId(readInt());
+            } else {
+                skipValue();
+            }
+            byte c = next();
+            if (c == '}') {
+                return true;
+            }
+            if (c != ',') {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * 读取整数，兼容字符串形式，null 返回 {@link DeviceReading#NO_ID}
+     */
+    private int readInt() {
+        double value = readDouble();
+        return Double.isNaN(value) ? DeviceReading.NO_ID : (int) value;
+    }
+
+    /**
+     * 当前位置的字符串是否为数值或空字符串，不移动读取位置
+     */
+    private boolean quotedNumber() {
+        int i = pos + 1;
+        if (at(i) == '"') {
+            return true;
+        }
+        if (at(i) == '-') {
+            i++;
+        }
+        int digits = 0;
+        while (isDigit(at(i))) {
+            i++;
+            digits++;
+        }
+        if (at(i) == '.') {
+            i++;
+            while (isDigit(at(i))) {
+                i++;
+                digits++;
+            }
+        }
+        if (digits == 0) {
+            return false;
+        }
+        byte c = at(i);
+        if (c == 'e' || c == 'E') {
+            c = at(++i);
+            if (c == '+' || c == '-') {
+                i++;
+            }
+            int exponent = 0;
+            while (isDigit(at(i))) {
+                i++;
+                exponent++;
+            }
+            if (exponent == 0) {
+                return false;
+            }
+        }
+        return at(i) == '"';
+    }
+
+    private static boolean isDigit(byte c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * 读取数值，兼容字符串形式，null 或空字符串返回 NaN
+     */
+    private double readDouble() {
+        boolean quoted = at(pos) == '"';
+        if (quoted) {
+            pos++;
+            if (at(pos) == '"') {
+                pos++;
+                return Double.NaN;
+            }
+        } else if (at(pos) == 'n') {
+            skipValue();
+            return Double.NaN;
+        }
+        int start = pos;
+        boolean negative = false;
+        if (at(pos) == '-') {
+            negative = true;
+            pos++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean fraction = false;
+        boolean fallback = false;
+        while (pos < end) {
+            byte c = buf[pos];
+            if (c >= '0' && c <= '9') {
+                if (digits < 18) {
+                    mantissa = mantissa * 10 + (c - '0');
+                    if (fraction) {
+                        scale++;
+                    }
+                    if (mantissa != 0) {
+                        digits++;
+                    }
+                } else if (!fraction) {
+                    fallback = true;
+                }
+            } else if (c == '.' && !fraction) {
+                fraction = true;
+            } else if (c == 'e' || c == 'E' || c == '+' || c == '-') {
+                fallback = true;
+            } else {
+                break;
+            }
+            pos++;
+        }
+        if (pos == start) {
+            throw new IllegalArgumentException("number expected");
+        }
+        double value;
+        if (fallback || scale >= POW10.length) {
+            // 超长、科学计数法或小数前导零过多，交给 JDK 解析
+            value = Double.parseDouble(new String(buf, start, pos - start, StandardCharsets.US_ASCII));
+        } else {
+            value = scale == 0 ? mantissa : mantissa / POW10[scale];
+            value = negative ? -value : value;
+        }
+        if (quoted && next() != '"') {
+            throw new IllegalArgumentException("unterminated number");
+        }
+        return value;
+    }
+
+    /**
+     * 读取时间，支持 yyyy-MM-dd HH:mm:ss、yyyy-MM-dd 及毫秒时间戳
+     */
+    private long readDateTime() {
+        byte c = at(pos);
+        if (c != '"') {
+            double timestamp = readDouble();
+            return Double.isNaN(timestamp) ? 0 : (long) timestamp;
+        }
+        pos++;
+        int start = pos;
+        int stop = skipString();
+        int length = stop - start;
+        if (length == 0) {
+            return 0;
+        }
+        if ((length == 19 || length == 10) && buf[start + 4] == '-' && buf[start + 7] == '-') {
+            int year = digits(start, 4);
+            int month = digits(start + 5, 2);
+            int day = digits(start + 8, 2);
+            int hour = 0;
+            int minute = 0;
+            int second = 0;
+            if (length == 19) {
+                hour = digits(start + 11, 2);
+                minute = digits(start + 14, 2);
+                second = digits(start + 17, 2);
+            }
+            if (year >= 0 && month >= 1 && month <= 12 && day >= 1 && day <= 31 && hour >= 0 && minute >= 0 && second >= 0) {
+                long local = (daysFromCivil(year, month, day) * 86400L + hour * 3600L + minute * 60L + second) * 1000L;
+                return local - timeZone.getOffset(local - timeZone.getRawOffset());
+            }
+        }
+        // 其他格式交给 hutool 解析
+        return DateUtil.parse(new String(buf, start, length, StandardCharsets.UTF_8)).getTime();
+    }
+
+    private int digits(int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            int d = buf[i] - '0';
+            if (d < 0 || d > 9) {
+                return -1;
+            }
+            value = value * 10 + d;
+        }
+        return value;
+    }
+
+    /**
+     * 公历日期距 1970-01-01 的天数
+     */
+    private static long daysFromCivil(int year, int month, int day) {
+        year -= month <= 2 ? 1 : 0;
+        long era = (year >= 0 ? year : year - 399) / 400;
+        long yoe = year - era * 400;
+        long doy = (153L * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097 + doe - 719468;
+    }
+
+    /**
+     * 读取字符串内容（起始引号已读）
+     */
+    private String readText() {
+        int start = pos;
+        int stop = skipString();
+        if (stop - start > DeviceReading.MAX_TEXT_BYTES) {
+            throw new IllegalArgumentException("text too long");
+        }
+        for (int i = start; i < stop; i++) {
+            if (buf[i] == '\\') {
+                return unescape(new String(buf, start, stop - start, StandardCharsets.UTF_8));
+            }
+        }
+        return new String(buf, start, stop - start, StandardCharsets.UTF_8);
+    }
+
+    private static String unescape(String s) {
+        StringBuilder builder = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c != '\\' || i + 1 == s.length()) {
+                builder.append(c);
+                continue;
+            }
+            c = s.charAt(++i);
+            switch (c) {
+                case 'b':
+                    builder.append('\b');
+                    break;
+                case 'f':
+                    builder.append('\f');
+                    break;
+                case 'n':
+                    builder.append('\n');
+                    break;
+                case 'r':
+                    builder.append('\r');
+                    break;
+                case 't':
+                    builder.append('\t');
+                    break;
+                case 'u':
+                    builder.append((char) Integer.parseInt(s.substring(i + 1, i + 5), 16));
+                    i += 4;
+                    break;
+                default:
+                    builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 跳过字符串内容（起始引号已读），返回结束引号位置
+     */
+    private int skipString() {
+        while (true) {
+            byte c = at(pos);
+            if (c == '\\') {
+                pos += 2;
+            } else if (c == '"') {
+                return pos++;
+            } else {
+                pos++;
+            }
+        }
+    }
+
+    /**
+     * 跳过任意值，包括嵌套对象和数组
+     */
+    private void skipValue() {
+        int depth = 0;
+        while (true) {
+            byte c = at(pos);
+            if (c == '"') {
+                pos++;
+                skipString();
+                if (depth == 0) {
+                    return;
+                }
+                continue;
+            }
+            if (c == '{' || c == '[') {
+                depth++;
+            } else if (c == '}' || c == ']') {
+                if (depth == 0) {
+                    return;
+                }
+                depth--;
+            } else if (c == ',' && depth == 0) {
+                return;
+            }
+            pos++;
+            if (depth == 0 && (c == '}' || c == ']')) {
+                return;
+            }
+        }
+    }
+
+    private byte at(int index) {
+        if (index >= end) {
+            throw new IllegalArgumentException("unexpected end of payload");
+        }
+        return buf[index];
+    }
+
+    private boolean matches(int start, int stop, byte[] expected) {
+        if (stop - start != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (buf[start + i] != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private byte next() {
+        skipWhitespace();
+        return at(pos++);
+    }
+
+    private byte peek() {
+        skipWhitespace();
+        return at(pos);
+    }
+
+    private void skipWhitespace() {
+        while (pos < end) {
+            byte c = buf[pos];
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                return;
+            }
+            pos++;
+        }
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,103 @@
+package cc.mrbird.febs.common.mqtt;
+
+/**
+ * 内存环形存储，取出即释放空间，入库失败的数据不可回退
+ *
+ * @author FanK
+ */
+final class DeviceReadingRing implements DeviceReadingStore {
+
+    private final int capacity;
+
+    private final int[] deviceIds;
+
+    private final double[] values;
+
+    private final long[] timestamps;
+
+    private final byte[] valueTypes;
+
+    private final int[] eventIds;
+
+    private final String[] texts;
+
+    private final long[] receivedAt;
+
+    private int takeIndex;
+
+    private int putIndex;
+
+    private int count;
+
+    DeviceReadingRing(int capacity) {
+        this.capacity = capacity;
+        this.deviceIds = new int[capacity];
+        this.values = new double[capacity];
+        this.timestamps = new long[capacity];
+        this.valueTypes = new byte[capacity];
+        this.eventIds = new int[capacity];
+        this.texts = new String[capacity];
+        this.receivedAt = new long[capacity];
+    }
+
+    @Override
+    public boolean hasRoom(DeviceReading reading) {
+        return count < capacity;
+    }
+
+    @Override
+    public void append(DeviceReading reading, long now) {
+        int i = putIndex;
+        deviceIds[i] = reading.getDeviceId();
+        values[i] = reading.getValue();
+        timestamps[i] = reading.getTimestamp();
+        valueTypes[i] = reading.getValueType();
+        eventIds[i] = reading.getEventId();
+        texts[i] = reading.getText();
+        receivedAt[i] = now;
+        putIndex = i + 1 == capacity ? 0 : i + 1;
+        count++;
+    }
+
+    @Override
+    public int pending() {
+        return count;
+    }
+
+    @Override
+    public int take(DeviceReadingBatch batch, int max) {
+        int n = Math.min(max, count);
+        for (int k = 0; k < n; k++) {
+            int i = takeIndex;
+            int j = batch.size++;
+            batch.deviceIds[j] = deviceIds[i];
+            batch.values[j] = values[i];
+            batch.timestamps[j] = timestamps[i];
+            batch.valueTypes[j] = valueTypes[i];
+            batch.eventIds[j] = eventIds[i];
+            batch.texts[j] = texts[i];
+            texts[i] = null;
+            takeIndex = i + 1 == capacity ? 0 : i + 1;
+        }
+        count -= n;
+        return n;
+    }
+
+    @Override
+    public long headReceivedAt() {
+        return receivedAt[takeIndex];
+    }
+
+    @Override
+    public void commit() {
+    }
+
+    @Override
+    public boolean rewind() {
+        return false;
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,53 @@
+package cc.mrbird.febs.common.mqtt;
+
+/**
+ * 入库通道的数据存储，由 {@link DeviceIngestLane} 加锁访问
+ *
+ * @author FanK
+ */
+interface DeviceReadingStore {
+
+    /**
+     * 是否还有空间写入这条数据
+     */
+    boolean hasRoom(DeviceReading reading);
+
+    /**
+     * 追加一条数据
+     */
+    void append(DeviceReading reading, long receivedAt);
+
+    /**
+     * 已写入未取出的数量（本地日志中文本设备值按占用的记录数计）
+     */
+    int pending();
+
+    /**
+     * 从读取位置复制至多 max 条数据到批次
+     *
+     * @return 复制数量
+     */
+    int take(DeviceReadingBatch batch, int max);
+
+    /**
+     * 下一条待取出数据的接收时间
+     */
+    long headReceivedAt();
+
+    /**
+     * 已取出的数据全部入库成功
+     */
+    void commit();
+
+    /**
+     * 入库失败，读取位置回退到上次提交处
+     *
+     * @return 不支持回退时返回 false，已取出的数据丢失
+     */
+    boolean rewind();
+
+    /**
+     * 关闭，释放资源
+     */
+    void close();
+}
@@ -13,4 +13,13 @@ public class FebsProperties {
 
     private boolean openAopLog = true;
 
+    /**
+     * 集群部署：多个节点通过 MQTT 共享订阅分担上报数据，本地缓存通过 Redis 广播保持一致
+     */
+    private boolean clustered = false;
+
+    private TelemetryProperties telemetry = new TelemetryProperties();
+
+    private ReportProperties report = new ReportProperties();
+
 }
@@ -0,0 +1,32 @@
+package cc.mrbird.febs.common.properties;
+
+import lombok.Data;
+
+/**
+ * 用电分析报告配置
+ *
+ * @author FanK
+ */
+@Data
+public class ReportProperties {
+
+    /**
+     * 报告最多缓存的用户数量
+     */
+    private int cacheSize = 2000;
+
+    /**
+     * 夜间批量任务时间
+     */
+    private String batchCron = "0 0 2 * * ?";
+
+    /**
+     * 批量任务并行度，0 表示与CPU核数一致
+     */
+    private int batchParallelism = 0;
+
+    /**
+     * 夜间批量生成的报告有效期（小时），期间用户数据没有变更时接口直接返回，0 表示不使用
+     */
+    private int maxAge = 26;
+}
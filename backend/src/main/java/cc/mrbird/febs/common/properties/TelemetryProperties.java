@@ -0,0 +1,63 @@
+package cc.mrbird.febs.common.properties;
+
+import lombok.Data;
+
+/**
+ * 设备数据存储、缓存与清理配置
+ *
+ * @author FanK
+ */
+@Data
+public class TelemetryProperties {
+
+    /**
+     * 设备最近上报数据缓存时长（小时），0 表示不缓存
+     */
+    private int historyCacheHours = 24;
+
+    /**
+     * 设备当前值回写数据库间隔（毫秒）
+     */
+    private long deviceStateFlushInterval = 5000;
+
+    /**
+     * 设备小时分位数草图写入数据库间隔（毫秒）
+     */
+    private long sketchFlushInterval = 60000;
+
+    /**
+     * 首页统计对账间隔（毫秒）
+     */
+    private long homeDataReconcileInterval = 60000;
+
+    /**
+     * 过期数据清理时间，保留天数在设备类型中配置
+     */
+    private String retentionCron = "0 30 3 * * ?";
+
+    /**
+     * 由应用维护按月分区（创建、删除分区），需数据库账号具备 ALTER、DROP 权限；
+     * 关闭后由 DBA 按 sql/upgrade/005 中的说明手工维护，过期数据仍按行清理
+     */
+    private boolean partitionMaintain = true;
+
+    /**
+     * 按月分区维护时间
+     */
+    private String partitionCron = "0 0 3 * * ?";
+
+    /**
+     * 按月分区提前创建的月数，表未分区时不处理
+     */
+    private int partitionAheadMonths = 3;
+
+    /**
+     * 上下线记录保留月数，超过后整个月分区删除，0 表示永久保留
+     */
+    private int offlineRetentionMonths = 0;
+
+    /**
+     * 操作记录保留月数，0 表示永久保留
+     */
+    private int operateRetentionMonths = 0;
+}
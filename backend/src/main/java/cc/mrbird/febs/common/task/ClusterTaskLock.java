@@ -0,0 +1,100 @@
+package cc.mrbird.febs.common.task;
+
+import cc.mrbird.febs.common.properties.FebsProperties;
+import cn.hutool.core.util.IdUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 集群模式下定时任务的节点互斥锁，同一任务同一时刻只在一个节点执行
+ * 以 Redis 键 SET NX PX 加锁，值为本节点标识；释放时至少保留 MIN_HOLD_MILLIS，避免各节点时钟略有偏差时同一次调度被另一节点重复执行
+ * 持有锁的节点宕机时锁在租期结束后自动失效；Redis 不可用时本次不执行
+ * 非集群模式直接返回成功
+ */
+@Slf4j
+@Component
+public class ClusterTaskLock {
+
+    private static final String KEY_PREFIX = "febs:task:lock:";
+
+    /**
+     * 加锁后至少保留的毫秒数
+     */
+    private static final long MIN_HOLD_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private static final String NODE_ID = IdUtil.simpleUUID();
+
+    /**
+     * 仍由本节点持有时释放：剩余保留时间大于 0 时缩短租期，否则删除
+     */
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then "
+                    + "if tonumber(ARGV[2]) > 0 then return redis.call('pexpire', KEYS[1], ARGV[2]) end "
+                    + "return redis.call('del', KEYS[1]) end "
+                    + "return 0", Long.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private final FebsProperties febsProperties;
+
+    /**
+     * 任务名称 -> 加锁时间
+     */
+    private final ConcurrentHashMap<String, Long> lockedAt = new ConcurrentHashMap<>();
+
+    public ClusterTaskLock(StringRedisTemplate stringRedisTemplate, FebsProperties febsProperties) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.febsProperties = febsProperties;
+    }
+
+    /**
+     * 尝试加锁
+     *
+     * @param name        任务名称
+     * @param leaseMillis 租期（毫秒），应大于任务最长执行时间
+     * @return 是否由本节点执行
+     */
+    public boolean tryLock(String name, long leaseMillis) {
+        if (!febsProperties.isClustered()) {
+            return true;
+        }
+        try {
+            long now = System.currentTimeMillis();
+            Boolean locked = stringRedisTemplate.opsForValue().setIfAbsent(KEY_PREFIX + name, NODE_ID, leaseMillis, TimeUnit.MILLISECONDS);
+            if (!Boolean.TRUE.equals(locked)) {
+                log.info("任务 {} 已由其他节点执行，本节点跳过", name);
+                return false;
+            }
+            lockedAt.put(name, now);
+            return true;
+        } catch (Exception e) {
+            log.warn("任务 {} 加锁失败，本次跳过", name, e);
+            return false;
+        }
+    }
+
+    /**
+     * 释放 {@link #tryLock} 成功加上的锁
+     *
+     * @param name 任务名称
+     */
+    public void unlock(String name) {
+        Long since = lockedAt.remove(name);
+        if (!febsProperties.isClustered() || since == null) {
+            return;
+        }
+        long keep = MIN_HOLD_MILLIS - (System.currentTimeMillis() - since);
+        try {
+            stringRedisTemplate.execute(RELEASE_SCRIPT, Collections.singletonList(KEY_PREFIX + name), NODE_ID, String.valueOf(Math.max(keep, 0)));
+        } catch (Exception e) {
+            log.warn("任务 {} 释放锁失败，租期结束后自动释放", name, e);
+        }
+    }
+}
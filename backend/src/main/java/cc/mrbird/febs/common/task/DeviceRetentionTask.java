@@ -0,0 +1,245 @@
+package cc.mrbird.febs.common.task;
+
+import cc.mrbird.febs.cos.dao.DeviceHistoryInfoMapper;
+import cc.mrbird.febs.cos.dao.DeviceHistoryRollupMapper;
+import cc.mrbird.febs.cos.dao.DeviceTypeMapper;
+import cc.mrbird.febs.cos.entity.DeviceHistoryRollup;
+import cc.mrbird.febs.cos.service.impl.DeviceHistoryRollupServiceImpl;
+import cn.hutool.core.date.DateUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 按设备类型的保留策略清理过期数据
+ * 原始数据已由入库时的分钟/小时/天汇总降采样，清理时按主键分段删除，每段单独提交，避免长时间锁表
+ * 原始数据与分钟汇总按原始数据保留天数清理，小时、天汇总分别按各自保留天数清理，0 为永久保留
+ * 原始数据表已按月分区时，所有类型都已过期的整月分区先直接删除，再逐段清理剩余数据
+ * 集群模式下由 {@link ClusterTaskLock} 保证只在一个节点执行
+ */
+@Slf4j
+@Component
+public class DeviceRetentionTask {
+
+    /**
+     * 原始数据每段主键跨度
+     */
+    private static final long CHUNK_SIZE = 5000;
+
+    /**
+     * 汇总数据每次删除条数
+     */
+    private static final int ROLLUP_CHUNK_SIZE = 5000;
+
+    /**
+     * 设备或类型已删除时的保留天数，与 device_type 字段默认值一致：原始 30 天，小时 1 年，天永久
+     */
+    private static final int[] DEFAULT_DAYS = {30, 365, 0};
+
+    private static final String SKETCH_TABLE = "device_value_sketch";
+
+    private static final String LOCK_NAME = "device_retention";
+
+    /**
+     * 集群锁租期，大于清理任务最长执行时间
+     */
+    private static final long LOCK_LEASE = TimeUnit.HOURS.toMillis(6);
+
+    private final DeviceHistoryInfoMapper deviceHistoryInfoMapper;
+
+    private final DeviceHistoryRollupMapper deviceHistoryRollupMapper;
+
+    private final DeviceTypeMapper deviceTypeMapper;
+
+    private final TelemetryPartitionTask telemetryPartitionTask;
+
+    private final ClusterTaskLock clusterTaskLock;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Timer runTimer;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    /**
+     * 原始数据清理进度（0-1）
+     */
+    private volatile double progress = 1;
+
+    @Autowired
+    public DeviceRetentionTask(DeviceHistoryInfoMapper deviceHistoryInfoMapper, DeviceHistoryRollupMapper deviceHistoryRollupMapper,
+                               DeviceTypeMapper deviceTypeMapper, TelemetryPartitionTask telemetryPartitionTask,
+                               ClusterTaskLock clusterTaskLock, MeterRegistry meterRegistry) {
+        this.deviceHistoryInfoMapper = deviceHistoryInfoMapper;
+        this.deviceHistoryRollupMapper = deviceHistoryRollupMapper;
+        this.deviceTypeMapper = deviceTypeMapper;
+        this.telemetryPartitionTask = telemetryPartitionTask;
+        this.clusterTaskLock = clusterTaskLock;
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("device.retention.progress", this, task -> task.progress)
+                .description("原始数据清理进度")
+                .register(meterRegistry);
+        this.runTimer = Timer.builder("device.retention.run")
+                .description("数据清理耗时")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${febs.telemetry.retentionCron:0 30 3 * * ?}")
+    public void run() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        if (!clusterTaskLock.tryLock(LOCK_NAME, LOCK_LEASE)) {
+            running.set(false);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            Map<Integer, int[]> policyMap = loadPolicy();
+            purgeRaw(policyMap);
+            purgeRollup(DeviceHistoryRollup.Level.MINUTE.getTable(), policyMap, 0);
+            purgeRollup(DeviceHistoryRollup.Level.HOUR.getTable(), policyMap, 1);
+            purgeRollup(DeviceHistoryRollup.Level.DAY.getTable(), policyMap, 2);
+            // 小时分位数草图与小时汇总保留时间一致
+            purgeRollup(SKETCH_TABLE, policyMap, 1);
+            log.info("设备数据清理完成，耗时 {} 秒", TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("设备数据清理失败，下次执行时继续", e);
+        } finally {
+            progress = 1;
+            runTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            clusterTaskLock.unlock(LOCK_NAME);
+            running.set(false);
+        }
+    }
+
+    /**
+     * 每台设备的保留天数：原始、小时、天
+     */
+    private Map<Integer, int[]> loadPolicy() {
+        Map<Integer, int[]> policyMap = new HashMap<>();
+        for (LinkedHashMap<String, Object> item : deviceTypeMapper.selectRetentionPolicy()) {
+            policyMap.put(((Number) item.get("device_id")).intValue(), new int[]{
+                    days(item.get("raw_retention_days"), 0),
+                    days(item.get("hour_retention_days"), 1),
+                    days(item.get("day_retention_days"), 2)});
+        }
+        return policyMap;
+    }
+
+    private static int days(Object value, int index) {
+        return value == null ? DEFAULT_DAYS[index] : ((Number) value).intValue();
+    }
+
+    /**
+     * 从最小主键开始分段删除过期原始数据，主键随上报时间递增，遇到整段都在保留期内时结束
+     */
+    private void purgeRaw(Map<Integer, int[]> policyMap) throws InterruptedException {
+        // 汇总回填未完成时保留原始数据，否则未汇总的历史数据会丢失
+        LinkedHashMap<String, Object> backfill = deviceHistoryRollupMapper.selectProgress(DeviceHistoryRollupServiceImpl.BACKFILL_NAME);
+        if (backfill != null && ((Number) backfill.get("last_id")).longValue() < ((Number) backfill.get("upper_id")).longValue()) {
+            log.info("设备上报汇总回填未完成，跳过原始数据清理");
+            return;
+        }
+        dropExpiredPartitions(policyMap);
+        Long minId = deviceHistoryInfoMapper.selectMinId();
+        Long maxId = deviceHistoryInfoMapper.selectMaxId();
+        if (minId == null || maxId == null) {
+            return;
+        }
+        int minDays = DEFAULT_DAYS[0];
+        for (int[] days : policyMap.values()) {
+            if (days[0] > 0 && days[0] < minDays) {
+                minDays = days[0];
+            }
+        }
+        String horizon = DateUtil.formatDateTime(DateUtil.offsetDay(new Date(), -minDays));
+        Counter purgedCounter = purgedCounter("device_history_info");
+        long fromId = minId - 1;
+        long purgedTotal = 0;
+        progress = 0;
+        while (fromId < maxId) {
+            long toId = Math.min(fromId + CHUNK_SIZE, maxId);
+            String latest = deviceHistoryInfoMapper.selectMaxCreateDate(fromId, toId);
+            int purged = deviceHistoryInfoMapper.purgeExpired(fromId, toId, DEFAULT_DAYS[0]);
+            purgedCounter.increment(purged);
+            purgedTotal += purged;
+            progress = (double) (toId - minId + 1) / (maxId - minId + 1);
+            fromId = toId;
+            if (latest != null && latest.compareTo(horizon) >= 0) {
+                break;
+            }
+            // 让出数据库资源给在线业务
+            TimeUnit.MILLISECONDS.sleep(50);
+        }
+        progress = 1;
+        log.info("设备上报原始数据清理 {} 条，扫描至主键 {}", purgedTotal, fromId);
+    }
+
+    /**
+     * 删除所有设备类型都已过期的月分区，有永久保留的类型时不删除
+     */
+    private void dropExpiredPartitions(Map<Integer, int[]> policyMap) {
+        // 设备已删除的数据按默认天数保留
+        int maxDays = DEFAULT_DAYS[0];
+        for (int[] days : policyMap.values()) {
+            if (days[0] <= 0) {
+                return;
+            }
+            maxDays = Math.max(maxDays, days[0]);
+        }
+        int dropped = telemetryPartitionTask.dropBefore(TelemetryPartitionTask.HISTORY_TABLE, LocalDate.now().minusDays(maxDays));
+        if (dropped > 0) {
+            log.info("设备上报原始数据删除过期月分区 {} 个", dropped);
+        }
+    }
+
+    /**
+     * 按设备删除过期汇总，删除条件为主键前缀（设备ID、统计时间）范围
+     */
+    private void purgeRollup(String table, Map<Integer, int[]> policyMap, int index) throws InterruptedException {
+        Counter purgedCounter = purgedCounter(table);
+        Date now = new Date();
+        long purgedTotal = 0;
+        for (Integer deviceId : deviceHistoryRollupMapper.selectDeviceIds(table)) {
+            int[] days = policyMap.get(deviceId);
+            int keepDays = days == null ? DEFAULT_DAYS[index] : days[index];
+            if (keepDays <= 0) {
+                continue;
+            }
+            String before = DateUtil.formatDateTime(DateUtil.offsetDay(now, -keepDays));
+            int purged;
+            do {
+                purged = deviceHistoryRollupMapper.purgeBefore(table, deviceId, before, ROLLUP_CHUNK_SIZE);
+                purgedCounter.increment(purged);
+                purgedTotal += purged;
+                if (purged > 0) {
+                    TimeUnit.MILLISECONDS.sleep(50);
+                }
+            } while (purged == ROLLUP_CHUNK_SIZE);
+        }
+        log.info("设备{}清理 {} 条", table, purgedTotal);
+    }
+
+    private Counter purgedCounter(String table) {
+        return Counter.builder("device.retention.purged")
+                .description("已清理的过期数据条数")
+                .tag("table", table)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,63 @@
+package cc.mrbird.febs.common.task;
+
+import cc.mrbird.febs.cos.dao.DeviceHistoryRollupMapper;
+import cc.mrbird.febs.cos.service.IDeviceHistoryRollupService;
+import cc.mrbird.febs.cos.service.impl.DeviceHistoryRollupServiceImpl;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 为升级前已存在的设备上报数据生成分钟/小时/天汇总
+ * 只处理到升级时记录的最大ID（之后的数据入库时已累加），按主键分段提交并记录进度，重启后继续
+ */
+@Slf4j
+@Component
+public class DeviceRollupBackfillTask {
+
+    /**
+     * 每段主键跨度
+     */
+    private static final long CHUNK_SIZE = 5000;
+
+    @Autowired
+    private DeviceHistoryRollupMapper deviceHistoryRollupMapper;
+
+    @Autowired
+    private IDeviceHistoryRollupService deviceHistoryRollupService;
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void run() {
+        try {
+            LinkedHashMap<String, Object> progress = deviceHistoryRollupMapper.selectProgress(DeviceHistoryRollupServiceImpl.BACKFILL_NAME);
+            if (progress == null) {
+                return;
+            }
+            long lastId = ((Number) progress.get("last_id")).longValue();
+            long upperId = ((Number) progress.get("upper_id")).longValue();
+            if (lastId >= upperId) {
+                return;
+            }
+            log.info("设备上报汇总回填开始，进度 {}/{}", lastId, upperId);
+            while (lastId < upperId) {
+                long toId = Math.min(lastId + CHUNK_SIZE, upperId);
+                deviceHistoryRollupService.backfill(lastId, toId);
+                lastId = toId;
+                // 让出数据库资源给在线业务
+                TimeUnit.MILLISECONDS.sleep(50);
+            }
+            log.info("设备上报汇总回填完成");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("设备上报汇总回填失败，下次启动时继续", e);
+        }
+    }
+}
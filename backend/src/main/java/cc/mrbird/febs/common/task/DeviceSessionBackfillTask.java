@@ -0,0 +1,76 @@
+package cc.mrbird.febs.common.task;
+
+import cc.mrbird.febs.cos.dao.DeviceHistoryRollupMapper;
+import cc.mrbird.febs.cos.dao.DeviceSessionMapper;
+import cc.mrbird.febs.cos.service.IDeviceSessionService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按升级前已有的上下线记录重建设备运行时段，同时重写该设备的每日耗电台账
+ * 按设备ID依次重建并记录进度，重启后继续；重建时锁定设备，期间新写入的记录不会丢失
+ */
+@Slf4j
+@Component
+public class DeviceSessionBackfillTask {
+
+    public static final String BACKFILL_NAME = "device_session";
+
+    /**
+     * 每次读取的设备数量
+     */
+    private static final int DEVICE_BATCH = 100;
+
+    @Autowired
+    private DeviceHistoryRollupMapper deviceHistoryRollupMapper;
+
+    @Autowired
+    private DeviceSessionMapper deviceSessionMapper;
+
+    @Autowired
+    private IDeviceSessionService deviceSessionService;
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void run() {
+        try {
+            LinkedHashMap<String, Object> progress = deviceHistoryRollupMapper.selectProgress(BACKFILL_NAME);
+            if (progress == null) {
+                return;
+            }
+            long lastId = ((Number) progress.get("last_id")).longValue();
+            long upperId = ((Number) progress.get("upper_id")).longValue();
+            if (lastId >= upperId) {
+                return;
+            }
+            log.info("设备运行时段及耗电台账回填开始，进度 {}/{}", lastId, upperId);
+            while (lastId < upperId) {
+                List<Integer> deviceIds = deviceSessionMapper.selectRecordDeviceIds(lastId, upperId, DEVICE_BATCH);
+                if (deviceIds.isEmpty()) {
+                    lastId = upperId;
+                } else {
+                    for (Integer deviceId : deviceIds) {
+                        deviceSessionService.rebuild(deviceId);
+                    }
+                    lastId = deviceIds.get(deviceIds.size() - 1);
+                }
+                deviceHistoryRollupMapper.updateProgress(BACKFILL_NAME, lastId);
+                // 让出数据库资源给在线业务
+                TimeUnit.MILLISECONDS.sleep(50);
+            }
+            log.info("设备运行时段及耗电台账回填完成");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("设备运行时段回填失败，下次启动时继续", e);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package cc.mrbird.febs.common.task;
+
+import cc.mrbird.febs.cos.dao.DeviceHistoryInfoMapper;
+import cc.mrbird.febs.cos.dao.DeviceHistoryRollupMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 回填设备上报数据的数值列（value_num）
+ * 应用启动后按主键分段更新升级前只有字符串设备值的历史数据，每段独立提交并记录进度，避免长事务锁表，重启后继续
+ */
+@Slf4j
+@Component
+public class DeviceValueBackfillTask {
+
+    public static final String BACKFILL_NAME = "history_value_num";
+
+    /**
+     * 每段主键跨度
+     */
+    private static final long CHUNK_SIZE = 5000;
+
+    @Autowired
+    private DeviceHistoryInfoMapper deviceHistoryInfoMapper;
+
+    @Autowired
+    private DeviceHistoryRollupMapper deviceHistoryRollupMapper;
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void run() {
+        try {
+            LinkedHashMap<String, Object> progress = deviceHistoryRollupMapper.selectProgress(BACKFILL_NAME);
+            if (progress == null) {
+                return;
+            }
+            long lastId = ((Number) progress.get("last_id")).longValue();
+            long upperId = ((Number) progress.get("upper_id")).longValue();
+            if (lastId >= upperId) {
+                return;
+            }
+            log.info("设备上报数据数值列回填开始，进度 {}/{}", lastId, upperId);
+            long updated = 0;
+            while (lastId < upperId) {
+                long toId = Math.min(lastId + CHUNK_SIZE, upperId);
+                updated += deviceHistoryInfoMapper.backfillValueNum(lastId, toId);
+                lastId = toId;
+                deviceHistoryRollupMapper.updateProgress(BACKFILL_NAME, lastId);
+                // 让出数据库资源给在线业务
+                TimeUnit.MILLISECONDS.sleep(50);
+            }
+            log.info("设备上报数据数值列回填完成，更新 {} 条", updated);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("设备上报数据数值列回填失败，下次启动时继续", e);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package cc.mrbird.febs.common.task;
+
+import cc.mrbird.febs.cos.cache.DeviceValueSketch;
+import cc.mrbird.febs.cos.cache.DeviceValueSketchStore;
+import cc.mrbird.febs.cos.service.IDeviceValueSketchService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.Map;
+
+/**
+ * 定时将内存中的设备小时草图增量合并写入数据库，失败时放回下次重试
+ */
+@Slf4j
+@Component
+public class DeviceValueSketchTask {
+
+    @Autowired
+    private DeviceValueSketchStore deviceValueSketchStore;
+
+    @Autowired
+    private IDeviceValueSketchService deviceValueSketchService;
+
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${febs.telemetry.sketchFlushInterval:60000}")
+    public synchronized void flush() {
+        Map<String, DeviceValueSketch> drained = deviceValueSketchStore.drain();
+        if (drained.isEmpty()) {
+            return;
+        }
+        try {
+            deviceValueSketchService.merge(drained);
+        } catch (Exception e) {
+            deviceValueSketchStore.restore(drained);
+            log.error("设备小时草图写入失败，数量：{}", drained.size(), e);
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package cc.mrbird.febs.common.task;
+
+import cc.mrbird.febs.common.properties.FebsProperties;
+import cc.mrbird.febs.common.utils.IntObjectMap;
+import cc.mrbird.febs.cos.cache.DeviceSessionColumns;
+import cc.mrbird.febs.cos.cache.DeviceSessionStats;
+import cc.mrbird.febs.cos.dao.DeviceSessionColumnReader;
+import cc.mrbird.febs.cos.entity.DeviceInfo;
+import cc.mrbird.febs.cos.service.IDeviceInfoService;
+import cc.mrbird.febs.cos.service.IElectricityReportService;
+import cn.hutool.core.date.DateUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 用电分析夜间批量任务
+ * 一次读取全部设备和运行时段，按用户分组后在 ForkJoinPool 中并行生成报告，每组写入 electricity_report、electricity_device_report；
+ * 接口在批次开始后用户数据没有变更、且未超过有效期时直接返回批量结果
+ * 全部用户成功后删除之前批次遗留的报告（用户已无设备、设备已删除）
+ * 集群模式下由 {@link ClusterTaskLock} 保证只在一个节点执行
+ */
+@Slf4j
+@Component
+public class ElectricityReportBatchTask {
+
+    /**
+     * 每个子任务处理的用户数量，同时是每次写入的用户数量
+     */
+    private static final int USER_THRESHOLD = 64;
+
+    private static final String LOCK_NAME = "electricity_report_batch";
+
+    /**
+     * 集群锁租期，大于批量任务最长执行时间
+     */
+    private static final long LOCK_LEASE = TimeUnit.HOURS.toMillis(6);
+
+    private final IDeviceInfoService deviceInfoService;
+
+    private final DeviceSessionColumnReader deviceSessionColumnReader;
+
+    private final IElectricityReportService electricityReportService;
+
+    private final FebsProperties febsProperties;
+
+    private final ClusterTaskLock clusterTaskLock;
+
+    private final Timer runTimer;
+
+    private final Counter successCounter;
+
+    private final Counter failedCounter;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    /**
+     * 上次执行每秒处理的用户数量
+     */
+    private volatile double throughput;
+
+    @Autowired
+    public ElectricityReportBatchTask(IDeviceInfoService deviceInfoService, DeviceSessionColumnReader deviceSessionColumnReader,
+                                      IElectricityReportService electricityReportService, FebsProperties febsProperties,
+                                      ClusterTaskLock clusterTaskLock, MeterRegistry meterRegistry) {
+        this.deviceInfoService = deviceInfoService;
+        this.deviceSessionColumnReader = deviceSessionColumnReader;
+        this.electricityReportService = electricityReportService;
+        this.febsProperties = febsProperties;
+        this.clusterTaskLock = clusterTaskLock;
+        this.runTimer = Timer.builder("electricity.report.batch")
+                .description("用电分析批量任务耗时")
+                .register(meterRegistry);
+        this.successCounter = Counter.builder("electricity.report.batch.users")
+                .description("批量生成报告的用户数量")
+                .tag("result", "success")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("electricity.report.batch.users")
+                .description("批量生成报告的用户数量")
+                .tag("result", "failed")
+                .register(meterRegistry);
+        Gauge.builder("electricity.report.batch.throughput", this, task -> task.throughput)
+                .description("上次批量任务每秒处理的用户数量")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${febs.report.batchCron:0 0 2 * * ?}")
+    public void run() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        // 集群模式下只在一个节点执行，避免清理旧报告时删除其他节点刚写入的结果
+        if (!clusterTaskLock.tryLock(LOCK_NAME, LOCK_LEASE)) {
+            running.set(false);
+            return;
+        }
+        long start = System.nanoTime();
+        // 报告包含批次开始前已提交的数据，之后的变更由接口判断
+        String batchDate = DateUtil.formatDateTime(new Date());
+        ForkJoinPool pool = null;
+        try {
+            List<UserPartition> partitionList = loadPartitions();
+            long loaded = System.nanoTime();
+
+            int parallelism = febsProperties.getReport().getBatchParallelism() > 0 ? febsProperties.getReport().getBatchParallelism() : Runtime.getRuntime().availableProcessors();
+            pool = new ForkJoinPool(parallelism);
+            ReportAction action = new ReportAction(partitionList, 0, partitionList.size(), batchDate);
+            pool.invoke(action);
+
+            int failed = action.failed.get();
+            if (failed == 0) {
+                electricityReportService.removeBefore(batchDate);
+            }
+            long elapsed = System.nanoTime() - start;
+            double seconds = Math.max(elapsed / 1e9, 0.001);
+            int sessions = partitionList.stream().mapToInt(partition -> partition.sessionCount).sum();
+            int devices = partitionList.stream().mapToInt(partition -> partition.devices.size()).sum();
+            throughput = partitionList.size() / seconds;
+            log.info("用电分析批量任务完成，用户 {}（失败 {}），设备 {}，运行时段 {}，读取 {} 秒，总耗时 {} 秒，每秒 {} 个用户、{} 个时段",
+                    partitionList.size(), failed, devices, sessions,
+                    String.format("%.1f", (loaded - start) / 1e9), String.format("%.1f", seconds),
+                    String.format("%.0f", throughput), String.format("%.0f", sessions / seconds));
+        } catch (Exception e) {
+            log.error("用电分析批量任务失败，下次执行时重新生成", e);
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+            runTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            clusterTaskLock.unlock(LOCK_NAME);
+            running.set(false);
+        }
+    }
+
+    /**
+     * 读取全部设备并按用户分组，再逐行读取全部运行时段放入所属用户的列存储
+     */
+    private List<UserPartition> loadPartitions() {
+        Map<Integer, UserPartition> partitionMap = new LinkedHashMap<>();
+        IntObjectMap<DeviceSlot> slotMap = new IntObjectMap<>();
+        for (DeviceInfo device : deviceInfoService.list()) {
+            if (device.getUserId() == null) {
+                continue;
+            }
+            UserPartition partition = partitionMap.computeIfAbsent(device.getUserId(), UserPartition::new);
+            slotMap.put(device.getId(), new DeviceSlot(partition, partition.devices.size()));
+            partition.devices.add(device);
+        }
+        deviceSessionColumnReader.read(null, (deviceId, startLocal, durationSec, energyKwh) -> {
+            DeviceSlot slot = slotMap.get(deviceId);
+            if (slot == null) {
+                return;
+            }
+            slot.partition.columns.add(slot.index, startLocal, durationSec, energyKwh);
+            slot.partition.sessionCount++;
+        });
+        return new ArrayList<>(partitionMap.values());
+    }
+
+    /**
+     * 按用户二分拆分，每组生成报告后写入
+     */
+    private final class ReportAction extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<UserPartition> partitionList;
+
+        private final int from;
+
+        private final int to;
+
+        private final String batchDate;
+
+        private final AtomicInteger failed;
+
+        ReportAction(List<UserPartition> partitionList, int from, int to, String batchDate) {
+            this(partitionList, from, to, batchDate, new AtomicInteger());
+        }
+
+        private ReportAction(List<UserPartition> partitionList, int from, int to, String batchDate, AtomicInteger failed) {
+            this.partitionList = partitionList;
+            this.from = from;
+            this.to = to;
+            this.batchDate = batchDate;
+            this.failed = failed;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > USER_THRESHOLD) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new ReportAction(partitionList, from, mid, batchDate, failed),
+                        new ReportAction(partitionList, mid, to, batchDate, failed));
+                return;
+            }
+            Map<Integer, LinkedHashMap<String, Object>> reportMap = new LinkedHashMap<>();
+            try {
+                for (int i = from; i < to; i++) {
+                    UserPartition partition = partitionList.get(i);
+                    DeviceSessionStats stats = DeviceSessionStats.compute(partition.columns, partition.devices.size());
+                    reportMap.put(partition.ownerId, deviceInfoService.buildElectricityReport(partition.devices, stats));
+                    // 统计完成后释放列存储
+                    partition.columns = null;
+                }
+                electricityReportService.saveReports(batchDate, reportMap);
+                successCounter.increment(to - from);
+            } catch (Exception e) {
+                failed.addAndGet(to - from);
+                failedCounter.increment(to - from);
+                log.error("用电分析批量报告生成失败，用户 {}", partitionList.subList(from, to).stream()
+                        .map(partition -> String.valueOf(partition.ownerId)).reduce((a, b) -> a + "," + b).orElse(""), e);
+            }
+        }
+    }
+
+    /**
+     * 一个用户的设备及运行时段，设备下标为在设备列表中的位置
+     */
+    private static final class UserPartition {
+
+        private final Integer ownerId;
+
+        private final List<DeviceInfo> devices = new ArrayList<>();
+
+        private DeviceSessionColumns columns = new DeviceSessionColumns(16);
+
+        private int sessionCount;
+
+        UserPartition(Integer ownerId) {
+            this.ownerId = ownerId;
+        }
+    }
+
+    private static final class DeviceSlot {
+
+        private final UserPartition partition;
+
+        private final int index;
+
+        DeviceSlot(UserPartition partition, int index) {
+            this.partition = partition;
+            this.index = index;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package cc.mrbird.febs.common.task;
+
+import cc.mrbird.febs.common.properties.FebsProperties;
+import cc.mrbird.febs.cos.dao.TelemetryPartitionMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 上报数据、上下线记录、操作记录的按月分区维护（分区由 sql/upgrade/005 建立，未分区的表跳过）
+ * 提前拆分空的 p_future 创建之后几个月的分区，拆分时没有数据移动；
+ * 过期数据按整月分区删除，上下线记录、操作记录按配置的保留月数，上报数据由 DeviceRetentionTask 按设备类型保留策略调用
+ * 运行时执行分区 DDL，数据库账号需具备 ALTER、DROP 权限，未授予时关闭 febs.telemetry.partitionMaintain
+ * 集群模式下由 {@link ClusterTaskLock} 保证只在一个节点执行；上报数据分区由持有清理任务锁的节点删除
+ */
+@Slf4j
+@Component
+public class TelemetryPartitionTask {
+
+    public static final String HISTORY_TABLE = "device_history_info";
+
+    private static final String OFFLINE_TABLE = "device_offline_record";
+
+    private static final String OPERATE_TABLE = "operate_record_info";
+
+    private static final String FUTURE = "p_future";
+
+    private static final DateTimeFormatter MONTH_FORMAT = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private static final DateTimeFormatter BOUND_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+    private static final String LOCK_NAME = "telemetry_partition";
+
+    /**
+     * 集群锁租期，大于分区维护最长执行时间
+     */
+    private static final long LOCK_LEASE = TimeUnit.MINUTES.toMillis(30);
+
+    private final TelemetryPartitionMapper telemetryPartitionMapper;
+
+    private final FebsProperties febsProperties;
+
+    private final ClusterTaskLock clusterTaskLock;
+
+    private final MeterRegistry meterRegistry;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Autowired
+    public TelemetryPartitionTask(TelemetryPartitionMapper telemetryPartitionMapper, FebsProperties febsProperties,
+                                  ClusterTaskLock clusterTaskLock, MeterRegistry meterRegistry) {
+        this.telemetryPartitionMapper = telemetryPartitionMapper;
+        this.febsProperties = febsProperties;
+        this.clusterTaskLock = clusterTaskLock;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 启动时补齐分区，避免停机跨月后新数据落入 p_future
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        run();
+    }
+
+    @Scheduled(cron = "${febs.telemetry.partitionCron:0 0 3 * * ?}")
+    public void run() {
+        if (!febsProperties.getTelemetry().isPartitionMaintain() || !running.compareAndSet(false, true)) {
+            return;
+        }
+        if (!clusterTaskLock.tryLock(LOCK_NAME, LOCK_LEASE)) {
+            running.set(false);
+            return;
+        }
+        try {
+            for (String table : new String[]{HISTORY_TABLE, OFFLINE_TABLE, OPERATE_TABLE}) {
+                try {
+                    createAhead(table);
+                } catch (Exception e) {
+                    log.error("{} 创建月分区失败，下次执行时重试", table, e);
+                }
+            }
+            dropExpired(OFFLINE_TABLE, febsProperties.getTelemetry().getOfflineRetentionMonths());
+            dropExpired(OPERATE_TABLE, febsProperties.getTelemetry().getOperateRetentionMonths());
+        } finally {
+            clusterTaskLock.unlock(LOCK_NAME);
+            running.set(false);
+        }
+    }
+
+    /**
+     * 创建当前月至之后 partitionAheadMonths 个月中尚不存在的分区
+     * p_future 有数据（长时间未执行）时拆分会移动这部分数据，仍能正确完成
+     */
+    private void createAhead(String table) {
+        List<String> partitions = telemetryPartitionMapper.selectPartitions(table);
+        if (partitions.isEmpty()) {
+            return;
+        }
+        if (!partitions.contains(FUTURE)) {
+            log.warn("{} 缺少 p_future 分区，无法创建月分区", table);
+            return;
+        }
+        YearMonth last = null;
+        for (String name : partitions) {
+            YearMonth month = parseMonth(name);
+            if (month != null && (last == null || month.isAfter(last))) {
+                last = month;
+            }
+        }
+        YearMonth current = YearMonth.now();
+        YearMonth target = current.plusMonths(Math.max(febsProperties.getTelemetry().getPartitionAheadMonths(), 0));
+        List<String[]> months = new ArrayList<>();
+        for (YearMonth month = last == null ? current : last.plusMonths(1); !month.isAfter(target); month = month.plusMonths(1)) {
+            months.add(new String[]{"p" + month.format(MONTH_FORMAT), month.plusMonths(1).atDay(1).format(BOUND_FORMAT)});
+        }
+        if (months.isEmpty()) {
+            return;
+        }
+        telemetryPartitionMapper.splitFuture(table, months);
+        partitionCounter(table, "create").increment(months.size());
+        log.info("{} 创建月分区 {} 至 {}", table, months.get(0)[0], months.get(months.size() - 1)[0]);
+    }
+
+    private void dropExpired(String table, int keepMonths) {
+        if (keepMonths <= 0) {
+            return;
+        }
+        try {
+            dropBefore(table, LocalDate.now().minusMonths(keepMonths));
+        } catch (Exception e) {
+            log.error("{} 删除过期分区失败，下次执行时重试", table, e);
+        }
+    }
+
+    /**
+     * 删除上界不晚于指定日期的月分区，即分区内数据全部早于该日期，表未分区或未开启分区维护时不处理
+     *
+     * @param table   表名
+     * @param horizon 保留起始日期
+     * @return 删除的分区数量
+     */
+    public int dropBefore(String table, LocalDate horizon) {
+        if (!febsProperties.getTelemetry().isPartitionMaintain()) {
+            return 0;
+        }
+        int dropped = 0;
+        for (String name : telemetryPartitionMapper.selectPartitions(table)) {
+            YearMonth month = parseMonth(name);
+            if (month == null || month.plusMonths(1).atDay(1).isAfter(horizon)) {
+                continue;
+            }
+            telemetryPartitionMapper.dropPartition(table, name);
+            partitionCounter(table, "drop").increment();
+            dropped++;
+            log.info("{} 删除过期分区 {}", table, name);
+        }
+        return dropped;
+    }
+
+    /**
+     * 分区名 pYYYYMM 对应的月份，其他分区返回 null
+     */
+    private static YearMonth parseMonth(String name) {
+        if (name == null || name.length() != 7 || name.charAt(0) != 'p') {
+            return null;
+        }
+        try {
+            return YearMonth.parse(name.substring(1), MONTH_FORMAT);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private Counter partitionCounter(String table, String action) {
+        return Counter.builder("telemetry.partition")
+                .description("创建、删除的月分区数量")
+                .tag("table", table)
+                .tag("action", action)
+                .register(meterRegistry);
+    }
+}
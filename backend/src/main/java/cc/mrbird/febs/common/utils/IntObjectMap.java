@@ -0,0 +1,170 @@
+package cc.mrbird.febs.common.utils;
+
+import java.util.Arrays;
+
+/**
+ * 以 int 为键的开放寻址哈希表，避免 Integer 装箱
+ * 非线程安全，并发读场景请以不可变快照方式发布
+ *
+ * @param <V> 值类型
+ */
+public final class IntObjectMap<V> {
+
+    private int[] keys;
+
+    private Object[] values;
+
+    private int size;
+
+    private int mask;
+
+    public IntObjectMap() {
+        this(16);
+    }
+
+    public IntObjectMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(expectedSize, 4) * 2 - 1) << 1;
+        this.keys = new int[capacity];
+        this.values = new Object[capacity];
+        this.mask = capacity - 1;
+    }
+
+    private IntObjectMap(IntObjectMap<V> source) {
+        this.keys = source.keys.clone();
+        this.values = source.values.clone();
+        this.size = source.size;
+        this.mask = source.mask;
+    }
+
+    private static int index(int key, int mask) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int idx = index(key, mask);
+        Object value;
+        while ((value = values[idx]) != null) {
+            if (keys[idx] == key) {
+                return (V) value;
+            }
+            idx = (idx + 1) & mask;
+        }
+        return null;
+    }
+
+    public boolean containsKey(int key) {
+        return get(key) != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        if (value == null) {
+            return remove(key);
+        }
+        int idx = index(key, mask);
+        Object old;
+        while ((old = values[idx]) != null) {
+            if (keys[idx] == key) {
+                values[idx] = value;
+                return (V) old;
+            }
+            idx = (idx + 1) & mask;
+        }
+        keys[idx] = key;
+        values[idx] = value;
+        if (++size > (mask + 1) >> 1) {
+            resize((mask + 1) << 1);
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        int idx = index(key, mask);
+        Object old;
+        while ((old = values[idx]) != null) {
+            if (keys[idx] == key) {
+                shiftDelete(idx);
+                size--;
+                return (V) old;
+            }
+            idx = (idx + 1) & mask;
+        }
+        return null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /**
+     * 复制一份独立的副本，用于写时复制
+     *
+     * @return 副本
+     */
+    public IntObjectMap<V> copy() {
+        return new IntObjectMap<>(this);
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(Consumer<V> consumer) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                consumer.accept(keys[i], (V) values[i]);
+            }
+        }
+    }
+
+    /**
+     * 删除后回填后续冲突槽位，保证线性探测链不断裂
+     */
+    private void shiftDelete(int idx) {
+        int gap = idx;
+        int next = (gap + 1) & mask;
+        while (values[next] != null) {
+            int home = index(keys[next], mask);
+            // home 不在 (gap, next] 区间内时可以前移
+            if (gap <= next ? (home <= gap || home > next) : (home <= gap && home > next)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        values[gap] = null;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int idx = index(oldKeys[i], mask);
+                while (values[idx] != null) {
+                    idx = (idx + 1) & mask;
+                }
+                keys[idx] = oldKeys[i];
+                values[idx] = oldValues[i];
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface Consumer<V> {
+        void accept(int key, V value);
+    }
+}
@@ -0,0 +1,156 @@
+package cc.mrbird.febs.common.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * 多个互不依赖的查询并行执行
+ * 查询提交到独立的有界线程池，每个查询有各自的超时时间，超时或失败的查询使用默认值并记录在 failed 中，
+ * 接口耗时由各查询之和变为其中最慢的一个
+ *
+ * <pre>
+ * QueryFanOut.Batch batch = queryFanOut.batch(3000)
+ *         .add("userNum", () -> userInfoMapper.selectCount(null), 0)
+ *         .add("deviceList", () -> deviceInfoService.list(), Collections.emptyList());
+ * LinkedHashMap&lt;String, Object&gt; result = batch.join();
+ * </pre>
+ *
+ * @author FanK
+ */
+@Slf4j
+@Component
+public class QueryFanOut {
+
+    private final Executor executor;
+
+    public QueryFanOut(@Qualifier("queryExecutor") Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * 新建一组查询
+     *
+     * @param timeoutMillis 默认超时时间（毫秒），从加入时开始计算
+     * @return 查询组
+     */
+    public Batch batch(long timeoutMillis) {
+        return new Batch(timeoutMillis);
+    }
+
+    /**
+     * 一组并行查询
+     */
+    public final class Batch {
+
+        private final long timeoutMillis;
+
+        private final List<Part> parts = new ArrayList<>();
+
+        private final List<String> failed = new ArrayList<>();
+
+        private Batch(long timeoutMillis) {
+            this.timeoutMillis = timeoutMillis;
+        }
+
+        /**
+         * 加入查询，使用默认超时时间
+         *
+         * @param key      结果键
+         * @param query    查询
+         * @param fallback 超时或失败时的默认值
+         * @return 查询组
+         */
+        public <T> Batch add(String key, Supplier<T> query, T fallback) {
+            return add(key, query, fallback, timeoutMillis);
+        }
+
+        /**
+         * 加入查询
+         *
+         * @param key           结果键
+         * @param query         查询
+         * @param fallback      超时或失败时的默认值
+         * @param timeoutMillis 超时时间（毫秒）
+         * @return 查询组
+         */
+        public <T> Batch add(String key, Supplier<T> query, T fallback, long timeoutMillis) {
+            CompletableFuture<Object> future;
+            try {
+                future = CompletableFuture.supplyAsync(query::get, executor);
+            } catch (RejectedExecutionException e) {
+                // 线程池已满，在当前线程执行
+                future = new CompletableFuture<>();
+                try {
+                    future.complete(query.get());
+                } catch (Exception ex) {
+                    future.completeExceptionally(ex);
+                }
+            }
+            parts.add(new Part(key, future, fallback, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis)));
+            return this;
+        }
+
+        /**
+         * 等待全部查询结束或超时
+         *
+         * @return 按加入顺序的结果，超时或失败的查询为默认值
+         */
+        public LinkedHashMap<String, Object> join() {
+            LinkedHashMap<String, Object> result = new LinkedHashMap<>();
+            for (Part part : parts) {
+                try {
+                    result.put(part.key, part.future.get(Math.max(0, part.deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+                } catch (TimeoutException e) {
+                    part.future.cancel(true);
+                    failed.add(part.key);
+                    result.put(part.key, part.fallback);
+                    log.warn("查询 {} 超时，使用默认值", part.key);
+                } catch (ExecutionException e) {
+                    failed.add(part.key);
+                    result.put(part.key, part.fallback);
+                    log.error("查询 {} 失败，使用默认值", part.key, e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    failed.add(part.key);
+                    result.put(part.key, part.fallback);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * 超时或失败的查询
+         *
+         * @return 结果键
+         */
+        public List<String> failed() {
+            return Collections.unmodifiableList(failed);
+        }
+    }
+
+    private static final class Part {
+
+        private final String key;
+
+        private final CompletableFuture<Object> future;
+
+        private final Object fallback;
+
+        private final long deadline;
+
+        Part(String key, CompletableFuture<Object> future, Object fallback, long deadline) {
+            this.key = key;
+            this.future = future;
+            this.fallback = fallback;
+            this.deadline = deadline;
+        }
+    }
+}
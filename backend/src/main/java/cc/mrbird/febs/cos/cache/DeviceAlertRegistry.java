@@ -0,0 +1,246 @@
+package cc.mrbird.febs.cos.cache;
+
+import cc.mrbird.febs.common.properties.FebsProperties;
+import cc.mrbird.febs.common.utils.IntObjectMap;
+import cc.mrbird.febs.cos.entity.DeviceAlertInfo;
+import cc.mrbird.febs.cos.entity.DeviceInfo;
+import cc.mrbird.febs.cos.service.IDeviceAlertInfoService;
+import cc.mrbird.febs.cos.service.IDeviceInfoService;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 设备信息与报警阈值注册表
+ * 启动时全量加载，读操作无锁；写操作复制后整体替换快照
+ * 不存在的设备以占位对象缓存，避免重复查询数据库，刷新或全量加载时自然清除
+ * 集群模式下设备变更通过 Redis 广播，其他节点收到后刷新本地快照
+ *
+ * @author FanK
+ */
+@Slf4j
+@Component
+public class DeviceAlertRegistry {
+
+    /**
+     * 目标值越界报警
+     */
+    private static final String ALERT_TYPE_VALUE = "2";
+
+    /**
+     * 设备变更广播频道
+     */
+    public static final String CHANGE_TOPIC = "febs:device:profile:change";
+
+    /**
+     * 本节点标识，忽略自己发出的广播
+     */
+    private static final String NODE_ID = IdUtil.simpleUUID();
+
+    /**
+     * 设备不存在占位
+     */
+    private static final DeviceProfile ABSENT = new DeviceProfile(0, null, null, false, 0);
+
+    private final IDeviceInfoService deviceInfoService;
+
+    private final IDeviceAlertInfoService deviceAlertInfoService;
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private final FebsProperties febsProperties;
+
+    private volatile IntObjectMap<DeviceProfile> profiles = new IntObjectMap<>();
+
+    /**
+     * 全量加载互斥锁，同一时间只允许一次全量加载
+     */
+    private final Object reloadLock = new Object();
+
+    /**
+     * 单设备加载序号，以下字段均由 this 保护
+     */
+    private long loadSeq;
+
+    /**
+     * 当前全量加载开始时的加载序号
+     */
+    private long reloadSeq;
+
+    /**
+     * 全量加载期间开始的单设备加载结果，替换快照前重放，避免被全量快照覆盖
+     */
+    private IntObjectMap<DeviceProfile> pendingLoads;
+
+    public DeviceAlertRegistry(IDeviceInfoService deviceInfoService, IDeviceAlertInfoService deviceAlertInfoService,
+                               StringRedisTemplate stringRedisTemplate, FebsProperties febsProperties) {
+        this.deviceInfoService = deviceInfoService;
+        this.deviceAlertInfoService = deviceAlertInfoService;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.febsProperties = febsProperties;
+    }
+
+    @PostConstruct
+    public void init() {
+        try {
+            reload();
+        } catch (Exception e) {
+            log.error("设备报警阈值加载失败，将在首次上报时按需加载", e);
+        }
+    }
+
+    /**
+     * 全量重新加载，定时校准增量刷新可能遗漏的变更
+     */
+    @Scheduled(fixedRate = 600000, initialDelay = 600000)
+    public void reload() {
+        synchronized (reloadLock) {
+            synchronized (this) {
+                reloadSeq = loadSeq;
+                pendingLoads = new IntObjectMap<>();
+            }
+            try {
+                List<DeviceInfo> deviceList = deviceInfoService.list();
+                List<DeviceAlertInfo> alertList = deviceAlertInfoService.list(Wrappers.<DeviceAlertInfo>lambdaQuery().eq(DeviceAlertInfo::getType, ALERT_TYPE_VALUE));
+                IntObjectMap<DeviceAlertInfo> alertMap = new IntObjectMap<>(alertList.size());
+                for (DeviceAlertInfo alert : alertList) {
+                    if (alert.getDeviceId() != null && !alertMap.containsKey(alert.getDeviceId())) {
+                        alertMap.put(alert.getDeviceId(), alert);
+                    }
+                }
+                IntObjectMap<DeviceProfile> snapshot = new IntObjectMap<>(deviceList.size());
+                for (DeviceInfo device : deviceList) {
+                    snapshot.put(device.getId(), build(device, alertMap.get(device.getId())));
+                }
+                synchronized (this) {
+                    pendingLoads.forEach(snapshot::put);
+                    profiles = snapshot;
+                }
+                log.info("设备报警阈值加载完成，设备数量：{}，报警配置数量：{}", deviceList.size(), alertList.size());
+            } finally {
+                synchronized (this) {
+                    pendingLoads = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * 获取设备信息，未命中时从数据库加载
+     *
+     * @param deviceId 设备ID
+     * @return 设备信息，设备不存在时为 null
+     */
+    public DeviceProfile get(int deviceId) {
+        DeviceProfile profile = profiles.get(deviceId);
+        if (profile == null) {
+            return load(deviceId);
+        }
+        return profile == ABSENT ? null : profile;
+    }
+
+    /**
+     * 刷新单个设备，并通知集群内其他节点
+     *
+     * @param deviceId 设备ID
+     * @return 刷新后的设备信息
+     */
+    public DeviceProfile refresh(Integer deviceId) {
+        if (deviceId == null) {
+            return null;
+        }
+        DeviceProfile profile = load(deviceId);
+        publish(Collections.singletonList(deviceId));
+        return profile;
+    }
+
+    /**
+     * 批量刷新设备，并通知集群内其他节点
+     *
+     * @param deviceIds 设备ID
+     */
+    public void refresh(Collection<Integer> deviceIds) {
+        deviceIds.forEach(this::load);
+        publish(deviceIds);
+    }
+
+    /**
+     * 处理其他节点的设备变更广播，消息格式：节点标识|设备ID,设备ID
+     *
+     * @param message 广播消息
+     */
+    public void onRemoteChange(String message) {
+        List<String> parts = StrUtil.split(message, '|');
+        if (parts.size() != 2 || NODE_ID.equals(parts.get(0))) {
+            return;
+        }
+        for (String deviceId : StrUtil.split(parts.get(1), ',')) {
+            if (StrUtil.isNotBlank(deviceId)) {
+                load(Integer.valueOf(deviceId.trim()));
+            }
+        }
+    }
+
+    /**
+     * 从数据库加载单个设备并替换快照
+     */
+    private DeviceProfile load(Integer deviceId) {
+        long seq;
+        synchronized (this) {
+            seq = ++loadSeq;
+        }
+        DeviceInfo device = deviceInfoService.getById(deviceId);
+        DeviceProfile profile = null;
+        if (device != null) {
+            DeviceAlertInfo alert = deviceAlertInfoService.getOne(Wrappers.<DeviceAlertInfo>lambdaQuery()
+                    .eq(DeviceAlertInfo::getDeviceId, deviceId).eq(DeviceAlertInfo::getType, ALERT_TYPE_VALUE), false);
+            profile = build(device, alert);
+        }
+        DeviceProfile cached = profile != null ? profile : ABSENT;
+        synchronized (this) {
+            IntObjectMap<DeviceProfile> snapshot = profiles.copy();
+            snapshot.put(deviceId, cached);
+            profiles = snapshot;
+            if (pendingLoads != null && seq > reloadSeq) {
+                pendingLoads.put(deviceId, cached);
+            }
+        }
+        return profile;
+    }
+
+    private void publish(Collection<Integer> deviceIds) {
+        if (!febsProperties.isClustered() || deviceIds.isEmpty()) {
+            return;
+        }
+        try {
+            String ids = deviceIds.stream().map(String::valueOf).collect(Collectors.joining(","));
+            stringRedisTemplate.convertAndSend(CHANGE_TOPIC, NODE_ID + "|" + ids);
+        } catch (Exception e) {
+            log.warn("设备变更广播失败，其他节点将在定时全量加载时同步", e);
+        }
+    }
+
+    /**
+     * 已加载设备数量（含不存在设备的占位）
+     *
+     * @return 数量
+     */
+    public int size() {
+        return profiles.size();
+    }
+
+    private DeviceProfile build(DeviceInfo device, DeviceAlertInfo alert) {
+        boolean alertEnabled = alert != null && alert.getScore() != null;
+        return new DeviceProfile(device.getId(), device.getUserId(), device.getName(), alertEnabled, alertEnabled ? alert.getScore() : 0);
+    }
+}
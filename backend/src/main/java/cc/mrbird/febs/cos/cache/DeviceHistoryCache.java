@@ -0,0 +1,198 @@
+package cc.mrbird.febs.cos.cache;
+
+import cc.mrbird.febs.common.mqtt.DeviceReading;
+import cc.mrbird.febs.common.properties.FebsProperties;
+import cc.mrbird.febs.common.utils.IntObjectMap;
+import cc.mrbird.febs.cos.entity.DeviceHistoryInfo;
+import cn.hutool.core.date.DateUtil;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * 设备最近上报数据缓存
+ * 每个设备保留最近若干小时的数据，Gorilla 方式压缩存放（时间戳二阶差分、设备值异或编码）
+ * 查询范围完全落在缓存覆盖的时间内时直接返回，不查询数据库
+ * 集群模式下各节点只收到部分数据，缓存不对外提供查询
+ *
+ * @author FanK
+ */
+@Component
+public class DeviceHistoryCache {
+
+    /**
+     * 每个压缩块覆盖的时长
+     */
+    private static final long CHUNK_MILLIS = 3600000L;
+
+    private final FebsProperties febsProperties;
+
+    /**
+     * 缓存开始接收数据的时间，此前的数据不完整
+     */
+    private final long startedAt = System.currentTimeMillis();
+
+    private volatile IntObjectMap<DeviceSeries> seriesMap = new IntObjectMap<>();
+
+    public DeviceHistoryCache(FebsProperties febsProperties, MeterRegistry meterRegistry) {
+        this.febsProperties = febsProperties;
+        Gauge.builder("device.history.cache.bytes", this, DeviceHistoryCache::bytes)
+                .description("设备最近上报数据缓存占用内存（字节）")
+                .register(meterRegistry);
+        Gauge.builder("device.history.cache.devices", this, cache -> cache.seriesMap.size())
+                .description("设备最近上报数据缓存设备数量")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 追加已入库的上报数据
+     *
+     * @param historyList 上报数据
+     */
+    public void append(Collection<DeviceHistoryInfo> historyList) {
+        if (windowMillis() <= 0) {
+            return;
+        }
+        for (DeviceHistoryInfo historyInfo : historyList) {
+            if (historyInfo.getDeviceId() == null || historyInfo.getValueNum() == null || historyInfo.getCreateDate() == null) {
+                continue;
+            }
+            long ts = DateUtil.parseDateTime(historyInfo.getCreateDate()).getTime();
+            series(historyInfo.getDeviceId()).append(ts, historyInfo.getValueNum());
+        }
+    }
+
+    /**
+     * 查询范围是否完全在缓存内
+     *
+     * @param from 开始时间（毫秒）
+     * @return 结果
+     */
+    public boolean covers(long from) {
+        long window = windowMillis();
+        return window > 0 && !febsProperties.isClustered() && from >= startedAt && from >= System.currentTimeMillis() - window;
+    }
+
+    /**
+     * 读取设备时间范围 [from, to) 内的上报数据
+     *
+     * @param deviceId 设备ID
+     * @param from     开始时间（毫秒）
+     * @param to       结束时间（毫秒）
+     * @return 上报数据，按上报顺序
+     */
+    public List<DeviceHistoryInfo> read(int deviceId, long from, long to) {
+        List<DeviceHistoryInfo> historyList = new ArrayList<>();
+        DeviceSeries series = seriesMap.get(deviceId);
+        if (series != null) {
+            series.forEach(from, to, (ts, value) -> historyList.add(new DeviceHistoryInfo()
+                    .setDeviceId(deviceId)
+                    .setValueNum(value)
+                    .setDeviceValue(DeviceReading.formatValue(value))
+                    .setCreateDate(DateUtil.formatDateTime(new Date(ts)))));
+        }
+        return historyList;
+    }
+
+    /**
+     * 按时间顺序将设备时间范围 [from, to) 内的上报数据输入降采样
+     *
+     * @param deviceId 设备ID
+     * @param from     开始时间（含）
+     * @param to       结束时间（不含）
+     * @param sampler  降采样
+     */
+    public void scan(int deviceId, long from, long to, DeviceSeriesSampler sampler) {
+        DeviceSeries series = seriesMap.get(deviceId);
+        if (series != null) {
+            series.forEach(from, to, sampler);
+        }
+    }
+
+    /**
+     * 移除设备缓存
+     *
+     * @param deviceIds 设备ID
+     */
+    public synchronized void evict(Collection<Integer> deviceIds) {
+        IntObjectMap<DeviceSeries> snapshot = seriesMap.copy();
+        deviceIds.forEach(snapshot::remove);
+        seriesMap = snapshot;
+    }
+
+    /**
+     * 定时清理超出时间窗口的压缩块
+     */
+    @Scheduled(fixedRate = 300000)
+    public void evictExpired() {
+        long before = System.currentTimeMillis() - windowMillis();
+        List<Integer> emptyList = new ArrayList<>();
+        seriesMap.forEach((deviceId, series) -> {
+            if (series.evictBefore(before)) {
+                emptyList.add(deviceId);
+            }
+        });
+        if (!emptyList.isEmpty()) {
+            evict(emptyList);
+        }
+    }
+
+    /**
+     * 每个设备的缓存点数和占用内存
+     *
+     * @return 结果
+     */
+    public List<LinkedHashMap<String, Object>> stats() {
+        List<LinkedHashMap<String, Object>> resultList = new ArrayList<>();
+        seriesMap.forEach((deviceId, series) -> {
+            int points = series.points();
+            long bytes = series.bytes();
+            LinkedHashMap<String, Object> item = new LinkedHashMap<>();
+            item.put("deviceId", deviceId);
+            item.put("points", points);
+            item.put("bytes", bytes);
+            item.put("bytesPerPoint", points == 0 ? 0 : (double) bytes / points);
+            resultList.add(item);
+        });
+        return resultList;
+    }
+
+    /**
+     * 缓存总占用内存（字节）
+     *
+     * @return 结果
+     */
+    public long bytes() {
+        long[] bytes = {0};
+        seriesMap.forEach((deviceId, series) -> bytes[0] += series.bytes());
+        return bytes[0];
+    }
+
+    private DeviceSeries series(int deviceId) {
+        DeviceSeries series = seriesMap.get(deviceId);
+        if (series != null) {
+            return series;
+        }
+        synchronized (this) {
+            series = seriesMap.get(deviceId);
+            if (series == null) {
+                series = new DeviceSeries(CHUNK_MILLIS);
+                IntObjectMap<DeviceSeries> snapshot = seriesMap.copy();
+                snapshot.put(deviceId, series);
+                seriesMap = snapshot;
+            }
+            return series;
+        }
+    }
+
+    private long windowMillis() {
+        return febsProperties.getTelemetry().getHistoryCacheHours() * 3600000L;
+    }
+}
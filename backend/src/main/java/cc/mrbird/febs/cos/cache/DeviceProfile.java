@@ -0,0 +1,55 @@
+package cc.mrbird.febs.cos.cache;
+
+import lombok.Getter;
+
+/**
+ * 设备上报热路径所需的设备信息与报警阈值（不可变）
+ *
+ * @author FanK
+ */
+@Getter
+public final class DeviceProfile {
+
+    /**
+     * 设备ID
+     */
+    private final int deviceId;
+
+    /**
+     * 所属用户
+     */
+    private final Integer userId;
+
+    /**
+     * 设备名称
+     */
+    private final String name;
+
+    /**
+     * 是否配置了目标值越界报警
+     */
+    private final boolean alertEnabled;
+
+    /**
+     * 报警值
+     */
+    private final int alertScore;
+
+    DeviceProfile(int deviceId, Integer userId, String name, boolean alertEnabled, int alertScore) {
+        this.deviceId = deviceId;
+        this.userId = userId;
+        this.name = name;
+        this.alertEnabled = alertEnabled;
+        this.alertScore = alertScore;
+    }
+
+    /**
+     * 判断上报值是否触发报警
+     *
+     * @param value 上报值
+     * @return 结果
+     */
+    public boolean exceeds(double value) {
+        return alertEnabled && value >= alertScore;
+    }
+}
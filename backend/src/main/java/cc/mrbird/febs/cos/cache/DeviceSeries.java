@@ -0,0 +1,75 @@
+package cc.mrbird.febs.cos.cache;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+/**
+ * 单个设备最近一段时间的上报数据，由若干个按时间切分的压缩块组成的环
+ *
+ * @author FanK
+ */
+final class DeviceSeries {
+
+    private final long chunkMillis;
+
+    private final ArrayDeque<DeviceSeriesChunk> chunks = new ArrayDeque<>();
+
+    DeviceSeries(long chunkMillis) {
+        this.chunkMillis = chunkMillis;
+    }
+
+    synchronized void append(long ts, double value) {
+        DeviceSeriesChunk chunk = chunks.peekLast();
+        if (chunk == null || ts >= chunk.startTs + chunkMillis) {
+            chunk = new DeviceSeriesChunk(ts);
+            chunks.addLast(chunk);
+        }
+        chunk.append(ts, value);
+    }
+
+    synchronized void forEach(long from, long to, PointConsumer consumer) {
+        for (DeviceSeriesChunk chunk : chunks) {
+            chunk.forEach(from, to, consumer);
+        }
+    }
+
+    /**
+     * 删除最晚时间早于 before 的块
+     *
+     * @return 是否已为空
+     */
+    synchronized boolean evictBefore(long before) {
+        Iterator<DeviceSeriesChunk> iterator = chunks.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().maxTs < before) {
+                iterator.remove();
+            }
+        }
+        return chunks.isEmpty();
+    }
+
+    synchronized int points() {
+        int points = 0;
+        for (DeviceSeriesChunk chunk : chunks) {
+            points += chunk.count;
+        }
+        return points;
+    }
+
+    synchronized long bytes() {
+        long bytes = 48;
+        for (DeviceSeriesChunk chunk : chunks) {
+            bytes += chunk.bytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * 数据点回调
+     */
+    @FunctionalInterface
+    interface PointConsumer {
+
+        void accept(long ts, double value);
+    }
+}
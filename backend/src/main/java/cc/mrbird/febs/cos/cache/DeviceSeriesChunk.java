@@ -0,0 +1,189 @@
+package cc.mrbird.febs.cos.cache;
+
+import java.util.Arrays;
+
+/**
+ * Gorilla 压缩的时序数据块
+ * 时间戳按二阶差分变长编码，设备值按与上一值异或后的有效位编码，按位写入 long 数组
+ * 只追加，不支持修改；读写由所属 {@link DeviceSeries} 加锁
+ *
+ * @author FanK
+ */
+final class DeviceSeriesChunk {
+
+    /**
+     * 块内最早、最晚时间戳
+     */
+    long minTs = Long.MAX_VALUE;
+
+    long maxTs = Long.MIN_VALUE;
+
+    /**
+     * 块创建时首条数据的时间戳，用于判断切换新块
+     */
+    final long startTs;
+
+    int count;
+
+    private long[] words = new long[8];
+
+    private int bitPos;
+
+    private long prevTs;
+
+    private long prevDelta;
+
+    private long prevValue;
+
+    private int prevLeading = -1;
+
+    private int prevTrailing;
+
+    DeviceSeriesChunk(long startTs) {
+        this.startTs = startTs;
+    }
+
+    void append(long ts, double value) {
+        long bits = Double.doubleToRawLongBits(value);
+        if (count == 0) {
+            write(ts, 64);
+            write(bits, 64);
+        } else {
+            long delta = ts - prevTs;
+            long dod = delta - prevDelta;
+            if (dod == 0) {
+                write(0, 1);
+            } else if (dod >= -64 && dod <= 63) {
+                write(0b10, 2);
+                write(dod, 7);
+            } else if (dod >= -256 && dod <= 255) {
+                write(0b110, 3);
+                write(dod, 9);
+            } else if (dod >= -2048 && dod <= 2047) {
+                write(0b1110, 4);
+                write(dod, 12);
+            } else {
+                write(0b1111, 4);
+                write(dod, 64);
+            }
+            prevDelta = delta;
+            long xor = bits ^ prevValue;
+            if (xor == 0) {
+                write(0, 1);
+            } else {
+                int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+                int trailing = Long.numberOfTrailingZeros(xor);
+                if (prevLeading >= 0 && leading >= prevLeading && trailing >= prevTrailing) {
+                    // 有效位落在上一窗口内，沿用窗口
+                    write(0b10, 2);
+                    write(xor >>> prevTrailing, 64 - prevLeading - prevTrailing);
+                } else {
+                    int significant = 64 - leading - trailing;
+                    write(0b11, 2);
+                    write(leading, 5);
+                    write(significant - 1, 6);
+                    write(xor >>> trailing, significant);
+                    prevLeading = leading;
+                    prevTrailing = trailing;
+                }
+            }
+        }
+        prevTs = ts;
+        prevValue = bits;
+        minTs = Math.min(minTs, ts);
+        maxTs = Math.max(maxTs, ts);
+        count++;
+    }
+
+    /**
+     * 按顺序解码，回调时间范围 [from, to) 内的数据
+     */
+    void forEach(long from, long to, DeviceSeries.PointConsumer consumer) {
+        if (count == 0 || maxTs < from || minTs >= to) {
+            return;
+        }
+        Reader reader = new Reader();
+        long ts = reader.read(64);
+        long bits = reader.read(64);
+        long delta = 0;
+        int leading = 0;
+        int trailing = 0;
+        for (int i = 0; ; i++) {
+            if (ts >= from && ts < to) {
+                consumer.accept(ts, Double.longBitsToDouble(bits));
+            }
+            if (i + 1 == count) {
+                return;
+            }
+            long dod;
+            if (reader.read(1) == 0) {
+                dod = 0;
+            } else if (reader.read(1) == 0) {
+                dod = reader.readSigned(7);
+            } else if (reader.read(1) == 0) {
+                dod = reader.readSigned(9);
+            } else if (reader.read(1) == 0) {
+                dod = reader.readSigned(12);
+            } else {
+                dod = reader.read(64);
+            }
+            delta += dod;
+            ts += delta;
+            if (reader.read(1) == 1) {
+                if (reader.read(1) == 1) {
+                    leading = (int) reader.read(5);
+                    int significant = (int) reader.read(6) + 1;
+                    trailing = 64 - leading - significant;
+                }
+                bits ^= reader.read(64 - leading - trailing) << trailing;
+            }
+        }
+    }
+
+    /**
+     * 占用内存（字节）
+     */
+    long bytes() {
+        return words.length * 8L + 64;
+    }
+
+    private void write(long value, int n) {
+        if (bitPos + n > words.length * 64) {
+            words = Arrays.copyOf(words, words.length * 2);
+        }
+        int index = bitPos >>> 6;
+        int free = 64 - (bitPos & 63);
+        long v = n == 64 ? value : value & ((1L << n) - 1);
+        if (n <= free) {
+            words[index] |= v << (free - n);
+        } else {
+            words[index] |= v >>> (n - free);
+            words[index + 1] |= v << (64 - (n - free));
+        }
+        bitPos += n;
+    }
+
+    private final class Reader {
+
+        private int pos;
+
+        long read(int n) {
+            int index = pos >>> 6;
+            int offset = pos & 63;
+            int free = 64 - offset;
+            long v;
+            if (n <= free) {
+                v = (words[index] << offset) >>> (64 - n);
+            } else {
+                int rest = n - free;
+                v = ((words[index] << offset) >>> (64 - n)) | (words[index + 1] >>> (64 - rest));
+            }
+            pos += n;
+            return v;
+        }
+
+        long readSigned(int n) {
+            return (read(n) << (64 - n)) >> (64 - n);
+        }
+    }
+}
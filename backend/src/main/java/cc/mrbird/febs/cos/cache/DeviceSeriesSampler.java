@@ -0,0 +1,288 @@
+package cc.mrbird.febs.cos.cache;
+
+import java.util.Arrays;
+
+/**
+ * 设备数据降采样，按时间顺序逐点输入，一次遍历得到适合图表展示的点
+ * 查询范围按时间均分为若干桶：
+ * MINMAX 每桶保留最小值和最大值两个点，保证峰谷不丢失；
+ * LTTB（Largest-Triangle-Three-Buckets）每桶保留与前一选中点、后一桶均值构成三角形面积最大的点，首末点固定保留，
+ * 只需缓存当前桶和下一桶的点
+ *
+ * @author FanK
+ */
+public class DeviceSeriesSampler implements DeviceSeries.PointConsumer {
+
+    /**
+     * 降采样方式
+     */
+    public enum Mode {
+
+        /**
+         * 每桶最小值、最大值
+         */
+        MINMAX,
+
+        /**
+         * 最大三角形
+         */
+        LTTB
+    }
+
+    private final Mode mode;
+
+    private final long from;
+
+    private final long to;
+
+    private final int buckets;
+
+    /**
+     * 输出点
+     */
+    private long[] outTs = new long[64];
+
+    private double[] outValues = new double[64];
+
+    private int outSize;
+
+    /**
+     * 输入点数
+     */
+    private long inputs;
+
+    private long lastTs = Long.MIN_VALUE;
+
+    private double lastValue;
+
+    // MINMAX：当前桶的最小、最大值
+    private int bucket = -1;
+
+    private long minTs;
+
+    private double minValue;
+
+    private long maxTs;
+
+    private double maxValue;
+
+    // LTTB：当前桶和下一桶的候选点
+    private final Bucket current = new Bucket();
+
+    private final Bucket next = new Bucket();
+
+    /**
+     * @param from   开始时间（含）
+     * @param to     结束时间（不含）
+     * @param points 目标点数
+     * @param mode   降采样方式
+     */
+    public DeviceSeriesSampler(long from, long to, int points, Mode mode) {
+        this.from = from;
+        this.to = Math.max(to, from + 1);
+        this.mode = mode;
+        // MINMAX 每桶两个点，LTTB 首末点之外每桶一个点
+        this.buckets = Math.max(1, mode == Mode.MINMAX ? points / 2 : points - 2);
+    }
+
+    /**
+     * 输入一个点，时间需递增，范围外的点和非数值被忽略
+     */
+    @Override
+    public void accept(long ts, double value) {
+        if (ts < from || ts >= to || Double.isNaN(value) || ts < lastTs) {
+            return;
+        }
+        int b = (int) ((ts - from) * buckets / (to - from));
+        if (mode == Mode.MINMAX) {
+            acceptMinMax(b, ts, value);
+        } else if (inputs == 0) {
+            // 首点固定保留
+            emit(ts, value);
+        } else {
+            acceptLttb(b, ts, value);
+        }
+        inputs++;
+        lastTs = ts;
+        lastValue = value;
+    }
+
+    private void acceptMinMax(int b, long ts, double value) {
+        if (b != bucket) {
+            flushMinMax();
+            bucket = b;
+            minTs = maxTs = ts;
+            minValue = maxValue = value;
+            return;
+        }
+        if (value < minValue) {
+            minTs = ts;
+            minValue = value;
+        }
+        if (value > maxValue) {
+            maxTs = ts;
+            maxValue = value;
+        }
+    }
+
+    private void flushMinMax() {
+        if (bucket < 0) {
+            return;
+        }
+        if (minValue == maxValue) {
+            emit(minTs, minValue);
+        } else if (minTs <= maxTs) {
+            emit(minTs, minValue);
+            emit(maxTs, maxValue);
+        } else {
+            emit(maxTs, maxValue);
+            emit(minTs, minValue);
+        }
+    }
+
+    private void acceptLttb(int b, long ts, double value) {
+        if (current.size == 0 || b == current.index && next.size == 0) {
+            current.add(b, ts, value);
+        } else if (next.size == 0 || b == next.index) {
+            next.add(b, ts, value);
+        } else {
+            // 下一桶已完整，可以确定当前桶的选中点
+            selectLttb(current, current.size, next.avgTs(), next.avgValue());
+            current.moveFrom(next);
+            next.add(b, ts, value);
+        }
+    }
+
+    /**
+     * 从桶内前 size 个点中选出与前一选中点、(cTs, cValue) 构成三角形面积最大的点
+     */
+    private void selectLttb(Bucket candidates, int size, double cTs, double cValue) {
+        if (size == 0) {
+            return;
+        }
+        double aTs = outTs[outSize - 1] - from;
+        double aValue = outValues[outSize - 1];
+        cTs -= from;
+        int selected = 0;
+        double maxArea = -1;
+        for (int i = 0; i < size; i++) {
+            double area = Math.abs((aTs - cTs) * (candidates.values[i] - aValue) - (aTs - (candidates.ts[i] - from)) * (cValue - aValue));
+            if (area > maxArea) {
+                maxArea = area;
+                selected = i;
+            }
+        }
+        emit(candidates.ts[selected], candidates.values[selected]);
+    }
+
+    /**
+     * 结束输入，返回降采样后的点数
+     */
+    public int finish() {
+        if (mode == Mode.MINMAX) {
+            flushMinMax();
+            bucket = -1;
+        } else if (inputs > 1) {
+            // 末点固定保留，它所在的桶只在其余点中选择
+            if (next.size > 0) {
+                selectLttb(current, current.size, next.avgTs(), next.avgValue());
+                selectLttb(next, next.size - 1, lastTs, lastValue);
+            } else {
+                selectLttb(current, current.size - 1, lastTs, lastValue);
+            }
+            emit(lastTs, lastValue);
+            current.size = 0;
+            next.size = 0;
+        }
+        return outSize;
+    }
+
+    /**
+     * 输入点数
+     */
+    public long inputs() {
+        return inputs;
+    }
+
+    public int size() {
+        return outSize;
+    }
+
+    public long tsAt(int i) {
+        return outTs[i];
+    }
+
+    public double valueAt(int i) {
+        return outValues[i];
+    }
+
+    private void emit(long ts, double value) {
+        if (outSize == outTs.length) {
+            outTs = Arrays.copyOf(outTs, outSize * 2);
+            outValues = Arrays.copyOf(outValues, outSize * 2);
+        }
+        outTs[outSize] = ts;
+        outValues[outSize] = value;
+        outSize++;
+    }
+
+    /**
+     * LTTB 桶内候选点
+     */
+    private static final class Bucket {
+
+        private int index;
+
+        private long[] ts = new long[16];
+
+        private double[] values = new double[16];
+
+        private int size;
+
+        private double sumTs;
+
+        private double sumValue;
+
+        void add(int index, long t, double value) {
+            if (size == 0) {
+                this.index = index;
+                sumTs = 0;
+                sumValue = 0;
+            }
+            if (size == ts.length) {
+                ts = Arrays.copyOf(ts, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            ts[size] = t;
+            values[size] = value;
+            sumTs += t;
+            sumValue += value;
+            size++;
+        }
+
+        double avgTs() {
+            return sumTs / size;
+        }
+
+        double avgValue() {
+            return sumValue / size;
+        }
+
+        /**
+         * 交换数组后清空 other，避免复制
+         */
+        void moveFrom(Bucket other) {
+            long[] tsSwap = ts;
+            double[] valueSwap = values;
+            ts = other.ts;
+            values = other.values;
+            index = other.index;
+            size = other.size;
+            sumTs = other.sumTs;
+            sumValue = other.sumValue;
+            other.ts = tsSwap;
+            other.values = valueSwap;
+            other.size = 0;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package cc.mrbird.febs.cos.cache;
+
+import java.util.Arrays;
+
+/**
+ * 设备运行时段列存储，每个时段占各数组的同一下标，不创建逐条对象
+ * 上线时间为墙上时间换算的毫秒数（按 UTC 计，不做时区换算），直接取模即可得到小时
+ *
+ * @author FanK
+ */
+public class DeviceSessionColumns {
+
+    /**
+     * 运行中时段的时长
+     */
+    public static final long OPEN = -1;
+
+    private static final long DAY_MILLIS = 86400000L;
+
+    private static final long HOUR_MILLIS = 3600000L;
+
+    private int[] device;
+
+    private long[] start;
+
+    private long[] duration;
+
+    private double[] energy;
+
+    private int size;
+
+    public DeviceSessionColumns(int capacity) {
+        capacity = Math.max(capacity, 16);
+        device = new int[capacity];
+        start = new long[capacity];
+        duration = new long[capacity];
+        energy = new double[capacity];
+    }
+
+    /**
+     * 追加一个时段
+     *
+     * @param deviceIndex 设备下标
+     * @param startLocal  上线时间（墙上时间毫秒）
+     * @param durationSec 运行时长（秒），运行中为 OPEN
+     * @param energyKwh   耗电量（千瓦时）
+     */
+    public void add(int deviceIndex, long startLocal, long durationSec, double energyKwh) {
+        if (size == device.length) {
+            int capacity = size * 2;
+            device = Arrays.copyOf(device, capacity);
+            start = Arrays.copyOf(start, capacity);
+            duration = Arrays.copyOf(duration, capacity);
+            energy = Arrays.copyOf(energy, capacity);
+        }
+        device[size] = deviceIndex;
+        start[size] = startLocal;
+        duration[size] = durationSec;
+        energy[size] = energyKwh;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int deviceAt(int i) {
+        return device[i];
+    }
+
+    public long durationAt(int i) {
+        return duration[i];
+    }
+
+    public double energyAt(int i) {
+        return energy[i];
+    }
+
+    /**
+     * 上线时间所在小时（0-23）
+     */
+    public int hourAt(int i) {
+        return (int) (Math.floorMod(start[i], DAY_MILLIS) / HOUR_MILLIS);
+    }
+}
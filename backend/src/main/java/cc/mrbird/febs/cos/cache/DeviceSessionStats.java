@@ -0,0 +1,151 @@
+package cc.mrbird.febs.cos.cache;
+
+/**
+ * 设备运行时段统计，一次遍历列存储得到每台设备的时长、耗电统计及整体的上线小时分布
+ * 方差按 Welford 算法逐条累加，全程只使用预先分配的数组
+ * 时长、耗电只统计已结束的时段，上线小时分布包含运行中的时段
+ *
+ * @author FanK
+ */
+public class DeviceSessionStats {
+
+    private final int[] count;
+
+    private final double[] totalHours;
+
+    private final double[] minHours;
+
+    private final double[] maxHours;
+
+    private final double[] mean;
+
+    private final double[] m2;
+
+    private final double[] energy;
+
+    /**
+     * 每台设备的时段数量（含运行中）
+     */
+    private final int[] sessions;
+
+    private final int[] hourHistogram = new int[24];
+
+    private int runCount;
+
+    private double runTotal;
+
+    private double runMax;
+
+    private DeviceSessionStats(int deviceCount) {
+        count = new int[deviceCount];
+        totalHours = new double[deviceCount];
+        minHours = new double[deviceCount];
+        maxHours = new double[deviceCount];
+        mean = new double[deviceCount];
+        m2 = new double[deviceCount];
+        energy = new double[deviceCount];
+        sessions = new int[deviceCount];
+    }
+
+    /**
+     * 统计
+     *
+     * @param columns     运行时段
+     * @param deviceCount 设备数量，设备下标小于此值
+     * @return 统计结果
+     */
+    public static DeviceSessionStats compute(DeviceSessionColumns columns, int deviceCount) {
+        DeviceSessionStats stats = new DeviceSessionStats(deviceCount);
+        for (int i = 0, n = columns.size(); i < n; i++) {
+            int d = columns.deviceAt(i);
+            stats.sessions[d]++;
+            stats.hourHistogram[columns.hourAt(i)]++;
+            long duration = columns.durationAt(i);
+            if (duration == DeviceSessionColumns.OPEN) {
+                continue;
+            }
+            double hours = duration / 3600.0;
+            int c = ++stats.count[d];
+            if (c == 1) {
+                stats.minHours[d] = hours;
+                stats.maxHours[d] = hours;
+            } else {
+                stats.minHours[d] = Math.min(stats.minHours[d], hours);
+                stats.maxHours[d] = Math.max(stats.maxHours[d], hours);
+            }
+            double delta = hours - stats.mean[d];
+            stats.mean[d] += delta / c;
+            stats.m2[d] += delta * (hours - stats.mean[d]);
+            stats.totalHours[d] += hours;
+            stats.energy[d] += columns.energyAt(i);
+
+            stats.runCount++;
+            stats.runTotal += hours;
+            stats.runMax = Math.max(stats.runMax, hours);
+        }
+        return stats;
+    }
+
+    /**
+     * 已结束的时段数量
+     */
+    public int count(int d) {
+        return count[d];
+    }
+
+    /**
+     * 全部时段数量（含运行中）
+     */
+    public int sessions(int d) {
+        return sessions[d];
+    }
+
+    public double totalHours(int d) {
+        return totalHours[d];
+    }
+
+    public double avgHours(int d) {
+        return mean[d];
+    }
+
+    public double minHours(int d) {
+        return minHours[d];
+    }
+
+    public double maxHours(int d) {
+        return maxHours[d];
+    }
+
+    /**
+     * 时长标准差（总体）
+     */
+    public double stdDev(int d) {
+        return count[d] == 0 ? 0 : Math.sqrt(m2[d] / count[d]);
+    }
+
+    public double energy(int d) {
+        return energy[d];
+    }
+
+    /**
+     * 上线小时分布
+     */
+    public int hourCount(int hour) {
+        return hourHistogram[hour];
+    }
+
+    /**
+     * 所有设备已结束的时段数量
+     */
+    public int runCount() {
+        return runCount;
+    }
+
+    public double runAvgHours() {
+        return runCount == 0 ? 0 : runTotal / runCount;
+    }
+
+    public double runMaxHours() {
+        return runMax;
+    }
+}
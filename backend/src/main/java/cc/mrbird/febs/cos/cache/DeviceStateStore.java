@@ -0,0 +1,196 @@
+package cc.mrbird.febs.cos.cache;
+
+import cc.mrbird.febs.common.properties.FebsProperties;
+import cc.mrbird.febs.cos.dao.DeviceInfoMapper;
+import cc.mrbird.febs.cos.entity.DeviceInfo;
+import cn.hutool.core.date.DateUtil;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 设备当前值存储
+ * 上报数据只更新内存，定时将每个设备的最后一次上报值合并回写 device_info
+ * 回写按上报时间比较，较旧的值不会覆盖库中较新的值
+ * 集群模式下各节点只收到部分设备的上报，内存值不完整，查询不做覆盖，以数据库为准
+ *
+ * @author FanK
+ */
+@Slf4j
+@Component
+public class DeviceStateStore {
+
+    private final DeviceInfoMapper deviceInfoMapper;
+
+    private final FebsProperties febsProperties;
+
+    /**
+     * 设备最新值，仅单节点模式维护
+     */
+    private final ConcurrentHashMap<Integer, DeviceValue> liveValues = new ConcurrentHashMap<>();
+
+    /**
+     * 尚未回写数据库的设备值
+     */
+    private final ConcurrentHashMap<Integer, DeviceValue> dirtyValues = new ConcurrentHashMap<>();
+
+    public DeviceStateStore(DeviceInfoMapper deviceInfoMapper, FebsProperties febsProperties, MeterRegistry meterRegistry) {
+        this.deviceInfoMapper = deviceInfoMapper;
+        this.febsProperties = febsProperties;
+        Gauge.builder("device.state.dirty", dirtyValues, Map::size)
+                .description("待回写设备当前值数量")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 更新设备当前值，上报时间早于内存中已有值时忽略
+     *
+     * @param deviceId    设备ID
+     * @param deviceValue 设备值
+     * @param createDate  上报时间，为空时取当前时间
+     */
+    public void update(int deviceId, String deviceValue, String createDate) {
+        if (deviceValue == null) {
+            return;
+        }
+        DeviceValue value = new DeviceValue(deviceValue, createDate != null ? createDate : DateUtil.formatDateTime(new Date()));
+        dirtyValues.merge(deviceId, value, DeviceValue::newer);
+        if (!febsProperties.isClustered()) {
+            liveValues.merge(deviceId, value, DeviceValue::newer);
+        }
+    }
+
+    /**
+     * 获取设备当前值
+     *
+     * @param deviceId 设备ID
+     * @return 当前值，未上报过或集群模式下为 null
+     */
+    public String get(Integer deviceId) {
+        if (deviceId == null) {
+            return null;
+        }
+        DeviceValue value = liveValues.get(deviceId);
+        return value == null ? null : value.value;
+    }
+
+    /**
+     * 使用内存中的当前值覆盖设备信息
+     *
+     * @param deviceInfo 设备信息
+     * @return 设备信息
+     */
+    public DeviceInfo apply(DeviceInfo deviceInfo) {
+        if (deviceInfo != null) {
+            String value = get(deviceInfo.getId());
+            if (value != null) {
+                deviceInfo.setDeviceValue(value);
+            }
+        }
+        return deviceInfo;
+    }
+
+    /**
+     * 使用内存中的当前值覆盖设备信息
+     *
+     * @param deviceList 设备信息
+     * @return 设备信息
+     */
+    public <T extends Collection<DeviceInfo>> T apply(T deviceList) {
+        deviceList.forEach(this::apply);
+        return deviceList;
+    }
+
+    /**
+     * 使用内存中的当前值覆盖查询结果行（device_value 列）
+     *
+     * @param rows 查询结果
+     */
+    public void applyRows(Collection<? extends Map<String, Object>> rows) {
+        for (Map<String, Object> row : rows) {
+            Object id = row.get("id");
+            if (id instanceof Number) {
+                String value = get(((Number) id).intValue());
+                if (value != null) {
+                    row.put("device_value", value);
+                }
+            }
+        }
+    }
+
+    /**
+     * 设备删除时清除内存值
+     *
+     * @param deviceIds 设备ID
+     */
+    public void evict(Collection<Integer> deviceIds) {
+        deviceIds.forEach(deviceId -> {
+            liveValues.remove(deviceId);
+            dirtyValues.remove(deviceId);
+        });
+    }
+
+    /**
+     * 回写设备当前值
+     */
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${febs.telemetry.deviceStateFlushInterval:5000}")
+    public void flush() {
+        if (dirtyValues.isEmpty()) {
+            return;
+        }
+        List<DeviceInfo> deviceList = new ArrayList<>(dirtyValues.size());
+        for (Map.Entry<Integer, DeviceValue> entry : dirtyValues.entrySet()) {
+            // 仅当值未被再次更新时才移除，新值留到下一轮
+            DeviceValue value = entry.getValue();
+            if (dirtyValues.remove(entry.getKey(), value)) {
+                deviceList.add(new DeviceInfo().setId(entry.getKey()).setDeviceValue(value.value).setValueDate(value.createDate));
+            }
+        }
+        if (deviceList.isEmpty()) {
+            return;
+        }
+        try {
+            deviceInfoMapper.updateDeviceValueBatch(deviceList);
+        } catch (Exception e) {
+            // 回写失败时放回，已有更新值的设备以新值为准
+            deviceList.forEach(device -> dirtyValues.merge(device.getId(), new DeviceValue(device.getDeviceValue(), device.getValueDate()), DeviceValue::newer));
+            log.error("设备当前值回写失败，数量：{}", deviceList.size(), e);
+        }
+    }
+
+    /**
+     * 设备值及上报时间
+     */
+    private static final class DeviceValue {
+
+        private final String value;
+
+        /**
+         * 上报时间，yyyy-MM-dd HH:mm:ss 格式可直接按字符串比较先后
+         */
+        private final String createDate;
+
+        private DeviceValue(String value, String createDate) {
+            this.value = value;
+            this.createDate = createDate;
+        }
+
+        /**
+         * 取上报时间较新的一个，时间相同时以后到的为准
+         */
+        private static DeviceValue newer(DeviceValue current, DeviceValue incoming) {
+            return incoming.createDate.compareTo(current.createDate) >= 0 ? incoming : current;
+        }
+    }
+}
@@ -0,0 +1,336 @@
+package cc.mrbird.febs.cos.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * 设备值分位数草图（对数分桶，DDSketch）
+ * 按 gamma = (1 + a) / (1 - a) 的幂划分区间，每个区间只记数量，返回的分位数相对误差不超过 a（1%）；
+ * 合并即对应区间数量相加，与合并顺序、分组方式无关，多个设备、多个小时的草图合并后与整体统计一个草图结果相同
+ * 负数按绝对值单独分桶，绝对值极小的值计入零值
+ *
+ * @author FanK
+ */
+public class DeviceValueSketch {
+
+    /**
+     * 相对误差
+     */
+    public static final double RELATIVE_ACCURACY = 0.01;
+
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+
+    /**
+     * 绝对值小于此值视为零
+     */
+    private static final double MIN_INDEXABLE = 1e-9;
+
+    /**
+     * 每个方向最多区间数，超出时合并最小的区间，相当于覆盖 1e35 倍的取值跨度，正常数据不会触发
+     */
+    private static final int MAX_BUCKETS = 4096;
+
+    private static final byte FORMAT_VERSION = 1;
+
+    private final Store positive = new Store();
+
+    private final Store negative = new Store();
+
+    private long zeroCount;
+
+    private long count;
+
+    private double min = Double.POSITIVE_INFINITY;
+
+    private double max = Double.NEGATIVE_INFINITY;
+
+    private double sum;
+
+    /**
+     * 加入一个值，非数值被忽略
+     *
+     * @param value 设备值
+     */
+    public void add(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return;
+        }
+        if (value >= MIN_INDEXABLE) {
+            positive.add(index(value), 1);
+        } else if (value <= -MIN_INDEXABLE) {
+            negative.add(index(-value), 1);
+        } else {
+            zeroCount++;
+        }
+        count++;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * 合并另一个草图
+     *
+     * @param other 草图
+     * @return this
+     */
+    public DeviceValueSketch merge(DeviceValueSketch other) {
+        if (other == null || other.count == 0) {
+            return this;
+        }
+        positive.merge(other.positive);
+        negative.merge(other.negative);
+        zeroCount += other.zeroCount;
+        count += other.count;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        return this;
+    }
+
+    /**
+     * 分位数，q 为 0 时返回最小值，为 1 时返回最大值，没有数据时返回 null
+     *
+     * @param q 分位（0-1）
+     * @return 分位数
+     */
+    public Double quantile(double q) {
+        if (count == 0 || q < 0 || q > 1) {
+            return null;
+        }
+        if (q == 0) {
+            return min;
+        }
+        if (q == 1) {
+            return max;
+        }
+        long rank = (long) (q * (count - 1));
+        double value;
+        if (rank < negative.total) {
+            // 负数从绝对值最大的区间开始
+            value = -negative.valueAtDescending(rank);
+        } else if (rank < negative.total + zeroCount) {
+            value = 0;
+        } else {
+            value = positive.valueAtAscending(rank - negative.total - zeroCount);
+        }
+        return Math.max(min, Math.min(max, value));
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public Double getMin() {
+        return count == 0 ? null : min;
+    }
+
+    public Double getMax() {
+        return count == 0 ? null : max;
+    }
+
+    public Double getAvg() {
+        return count == 0 ? null : sum / count;
+    }
+
+    /**
+     * 序列化，区间数量按变长整数写入
+     *
+     * @return 字节
+     */
+    public byte[] toBytes() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 + (positive.length + negative.length) * 2);
+        out.write(FORMAT_VERSION);
+        writeVarLong(out, count);
+        writeVarLong(out, zeroCount);
+        byte[] doubles = ByteBuffer.allocate(24).putDouble(min).putDouble(max).putDouble(sum).array();
+        out.write(doubles, 0, doubles.length);
+        positive.write(out);
+        negative.write(out);
+        return out.toByteArray();
+    }
+
+    /**
+     * 反序列化
+     *
+     * @param bytes 字节
+     * @return 草图
+     */
+    public static DeviceValueSketch fromBytes(byte[] bytes) {
+        DeviceValueSketch sketch = new DeviceValueSketch();
+        if (bytes == null || bytes.length == 0) {
+            return sketch;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        byte version = buffer.get();
+        if (version != FORMAT_VERSION) {
+            throw new IllegalArgumentException("不支持的草图格式：" + version);
+        }
+        sketch.count = readVarLong(buffer);
+        sketch.zeroCount = readVarLong(buffer);
+        sketch.min = buffer.getDouble();
+        sketch.max = buffer.getDouble();
+        sketch.sum = buffer.getDouble();
+        sketch.positive.read(buffer);
+        sketch.negative.read(buffer);
+        return sketch;
+    }
+
+    private static int index(double value) {
+        return (int) Math.ceil(Math.log(value) / LOG_GAMMA);
+    }
+
+    /**
+     * 区间 (gamma^(i-1), gamma^i] 的代表值，与区间内任意值的相对误差不超过 a
+     */
+    private static double valueOf(int index) {
+        return 2 * Math.pow(GAMMA, index) / (GAMMA + 1);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    /**
+     * 连续区间计数，counts[i] 对应区间 offset + i
+     */
+    private static final class Store {
+
+        private long[] counts;
+
+        private int offset;
+
+        /**
+         * 已使用长度
+         */
+        private int length;
+
+        private long total;
+
+        void add(int index, long n) {
+            if (counts == null) {
+                counts = new long[16];
+                offset = index - 8;
+            }
+            if (index < offset || index >= offset + counts.length) {
+                index = extend(index);
+            }
+            counts[index - offset] += n;
+            length = Math.max(length, index - offset + 1);
+            total += n;
+        }
+
+        /**
+         * 扩展数组覆盖 index，超过最大区间数时把较小的区间合并到新的最小区间，返回实际计入的区间
+         */
+        private int extend(int index) {
+            int low = Math.min(offset, index);
+            int high = Math.max(offset + length - 1, index);
+            if (high - low + 1 > MAX_BUCKETS) {
+                int newLow = high - MAX_BUCKETS + 1;
+                long[] collapsed = new long[MAX_BUCKETS];
+                for (int i = 0; i < length; i++) {
+                    collapsed[Math.max(offset + i, newLow) - newLow] += counts[i];
+                }
+                counts = collapsed;
+                offset = newLow;
+                length = MAX_BUCKETS;
+                return Math.max(index, newLow);
+            }
+            int size = Math.min(MAX_BUCKETS, Math.max(counts.length * 2, high - low + 1 + 16));
+            // 向扩展的方向预留空间
+            int newOffset = index < offset ? high - size + 1 : low;
+            long[] grown = new long[size];
+            System.arraycopy(counts, 0, grown, offset - newOffset, length);
+            length += offset - newOffset;
+            counts = grown;
+            offset = newOffset;
+            return index;
+        }
+
+        void merge(Store other) {
+            for (int i = 0; i < other.length; i++) {
+                if (other.counts[i] != 0) {
+                    add(other.offset + i, other.counts[i]);
+                }
+            }
+        }
+
+        double valueAtAscending(long rank) {
+            long seen = 0;
+            for (int i = 0; i < length; i++) {
+                seen += counts[i];
+                if (seen > rank) {
+                    return valueOf(offset + i);
+                }
+            }
+            return valueOf(offset + length - 1);
+        }
+
+        double valueAtDescending(long rank) {
+            long seen = 0;
+            for (int i = length - 1; i >= 0; i--) {
+                seen += counts[i];
+                if (seen > rank) {
+                    return valueOf(offset + i);
+                }
+            }
+            return valueOf(offset);
+        }
+
+        void write(ByteArrayOutputStream out) {
+            if (total == 0) {
+                writeVarLong(out, 0);
+                return;
+            }
+            // 去掉两端的空区间
+            int first = 0;
+            while (counts[first] == 0) {
+                first++;
+            }
+            int last = length - 1;
+            while (counts[last] == 0) {
+                last--;
+            }
+            writeVarLong(out, last - first + 1);
+            int start = offset + first;
+            writeVarLong(out, ((long) start << 1) ^ (start >> 31));
+            for (int i = first; i <= last; i++) {
+                writeVarLong(out, counts[i]);
+            }
+        }
+
+        void read(ByteBuffer buffer) {
+            int size = (int) readVarLong(buffer);
+            if (size == 0) {
+                return;
+            }
+            long zigzag = readVarLong(buffer);
+            int start = (int) ((zigzag >>> 1) ^ -(zigzag & 1));
+            counts = new long[Math.max(size, 16)];
+            offset = start;
+            length = size;
+            for (int i = 0; i < size; i++) {
+                counts[i] = readVarLong(buffer);
+                total += counts[i];
+            }
+        }
+    }
+}
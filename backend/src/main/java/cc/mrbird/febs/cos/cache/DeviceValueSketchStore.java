@@ -0,0 +1,114 @@
+package cc.mrbird.febs.cos.cache;
+
+import cc.mrbird.febs.cos.entity.DeviceHistoryInfo;
+import cc.mrbird.febs.cos.entity.DeviceHistoryRollup;
+import cn.hutool.core.date.DateUtil;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+/**
+ * 设备值小时分位数草图暂存
+ * 上报数据提交后累加到内存中的设备小时草图，由 DeviceValueSketchTask 定时取出与数据库中的草图合并
+ * 内存中只保留上次写入后的增量，查询时与数据库中的草图相加即为完整结果
+ *
+ * @author FanK
+ */
+@Component
+public class DeviceValueSketchStore {
+
+    /**
+     * 设备ID|统计时间 -> 草图增量
+     */
+    private final ConcurrentHashMap<String, DeviceValueSketch> pending = new ConcurrentHashMap<>();
+
+    public DeviceValueSketchStore(MeterRegistry meterRegistry) {
+        Gauge.builder("device.sketch.pending", pending, Map::size)
+                .description("待写入的设备小时草图数量")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 累加已入库的上报数据
+     *
+     * @param historyList 上报数据
+     */
+    public void add(List<DeviceHistoryInfo> historyList) {
+        for (DeviceHistoryInfo historyInfo : historyList) {
+            if (historyInfo.getDeviceId() == null || historyInfo.getValueNum() == null) {
+                continue;
+            }
+            String createDate = historyInfo.getCreateDate();
+            if (createDate == null || createDate.length() < 19) {
+                createDate = DateUtil.formatDateTime(createDate == null ? DateUtil.date() : DateUtil.parse(createDate));
+            }
+            double value = historyInfo.getValueNum();
+            pending.compute(key(historyInfo.getDeviceId(), DeviceHistoryRollup.Level.HOUR.bucketOf(createDate)), (key, sketch) -> {
+                if (sketch == null) {
+                    sketch = new DeviceValueSketch();
+                }
+                sketch.add(value);
+                return sketch;
+            });
+        }
+    }
+
+    /**
+     * 取出全部增量，取出后不再被修改
+     *
+     * @return 设备ID|统计时间 -> 草图增量
+     */
+    public Map<String, DeviceValueSketch> drain() {
+        Map<String, DeviceValueSketch> drained = new HashMap<>(pending.size());
+        for (String key : pending.keySet()) {
+            DeviceValueSketch sketch = pending.remove(key);
+            if (sketch != null) {
+                drained.put(key, sketch);
+            }
+        }
+        return drained;
+    }
+
+    /**
+     * 写入失败时放回，与期间新增的增量合并
+     *
+     * @param drained 取出的增量
+     */
+    public void restore(Map<String, DeviceValueSketch> drained) {
+        drained.forEach((key, sketch) -> pending.merge(key, sketch, DeviceValueSketch::merge));
+    }
+
+    /**
+     * 遍历范围内尚未写入的增量，回调在该草图的锁内执行，不能保留草图引用
+     *
+     * @param deviceIds 设备ID，为空时不限设备
+     * @param from      开始时间（含）
+     * @param to        结束时间（不含）
+     * @param consumer  统计时间、草图增量
+     */
+    public void forEachPending(Collection<Integer> deviceIds, String from, String to, BiConsumer<String, DeviceValueSketch> consumer) {
+        Set<Integer> deviceSet = deviceIds == null || deviceIds.isEmpty() ? null : new HashSet<>(deviceIds);
+        for (String key : pending.keySet()) {
+            int split = key.indexOf('|');
+            String bucket = key.substring(split + 1);
+            if (bucket.compareTo(from) < 0 || bucket.compareTo(to) >= 0) {
+                continue;
+            }
+            if (deviceSet != null && !deviceSet.contains(Integer.valueOf(key.substring(0, split)))) {
+                continue;
+            }
+            pending.computeIfPresent(key, (k, sketch) -> {
+                consumer.accept(bucket, sketch);
+                return sketch;
+            });
+        }
+    }
+
+    public static String key(Integer deviceId, String bucket) {
+        return deviceId + "|" + bucket;
+    }
+}
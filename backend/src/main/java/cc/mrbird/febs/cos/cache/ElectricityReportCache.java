@@ -0,0 +1,241 @@
+package cc.mrbird.febs.cos.cache;
+
+import cc.mrbird.febs.common.properties.FebsProperties;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * 用户设备用电分析报告缓存
+ * 每个用户（device_info.user_id）一个版本号，报告按计算开始前读取的版本号缓存，读取时版本号一致才命中；
+ * 上下线记录、运行时段、设备信息变更在事务提交后递增版本号，计算期间发生的变更会使该次结果不被缓存
+ * 集群模式下变更通过 Redis 广播，其他节点收到后递增本地版本号
+ * 同时记录每个用户最近一次变更的时间，用于判断夜间批量生成的报告是否仍然有效
+ *
+ * @author FanK
+ */
+@Slf4j
+@Component
+public class ElectricityReportCache {
+
+    /**
+     * 报告失效广播频道
+     */
+    public static final String CHANGE_TOPIC = "febs:electricity:report:change";
+
+    /**
+     * 本节点标识，忽略自己发出的广播
+     */
+    private static final String NODE_ID = IdUtil.simpleUUID();
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private final FebsProperties febsProperties;
+
+    /**
+     * 用户ID -> 版本号
+     */
+    private final ConcurrentHashMap<Integer, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    /**
+     * 用户ID -> 最近一次变更时间（毫秒）
+     */
+    private final ConcurrentHashMap<Integer, Long> changedAt = new ConcurrentHashMap<>();
+
+    /**
+     * 开始记录变更的时间，之前的变更无从得知
+     */
+    private final long trackingSince = System.currentTimeMillis();
+
+    /**
+     * 系统用户ID -> 报告
+     */
+    private final ConcurrentHashMap<Integer, Entry> reports = new ConcurrentHashMap<>();
+
+    private final Counter hitCounter;
+
+    private final Counter missCounter;
+
+    public ElectricityReportCache(StringRedisTemplate stringRedisTemplate, FebsProperties febsProperties, MeterRegistry meterRegistry) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.febsProperties = febsProperties;
+        this.hitCounter = Counter.builder("electricity.report.cache").tag("result", "hit").register(meterRegistry);
+        this.missCounter = Counter.builder("electricity.report.cache").tag("result", "miss").register(meterRegistry);
+        Gauge.builder("electricity.report.cache.size", reports, Map::size)
+                .description("已缓存的用电分析报告数量")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 获取报告，内容不再修改，可直接共享给并发请求
+     *
+     * @param userId 系统用户ID
+     * @return 报告，未缓存或已失效时为 null
+     */
+    public LinkedHashMap<String, Object> get(Integer userId) {
+        Entry entry = reports.get(userId);
+        if (entry != null) {
+            if (entry.version == version(entry.ownerId)) {
+                hitCounter.increment();
+                return entry.report;
+            }
+            reports.remove(userId, entry);
+        }
+        missCounter.increment();
+        return null;
+    }
+
+    /**
+     * 当前版本号，计算报告前读取，写入缓存时传回
+     *
+     * @param ownerId 用户ID
+     * @return 版本号
+     */
+    public long version(Integer ownerId) {
+        return versions.computeIfAbsent(ownerId, key -> new AtomicLong()).get();
+    }
+
+    /**
+     * 写入报告，计算期间版本号已变化时不缓存
+     *
+     * @param userId  系统用户ID
+     * @param ownerId 用户ID
+     * @param version 计算前读取的版本号
+     * @param report  报告
+     */
+    public void put(Integer userId, Integer ownerId, long version, LinkedHashMap<String, Object> report) {
+        if (version != version(ownerId)) {
+            return;
+        }
+        if (reports.size() >= febsProperties.getReport().getCacheSize() && !reports.containsKey(userId)) {
+            evictOne();
+        }
+        reports.put(userId, new Entry(ownerId, version, report));
+        // 写入与失效并发时再次确认，避免留下已失效的报告
+        if (version != version(ownerId)) {
+            reports.remove(userId);
+        }
+    }
+
+    /**
+     * 指定时间之后用户数据是否没有变更，时间早于本节点启动时无法判断，视为已变更
+     *
+     * @param ownerId 用户ID
+     * @param since   时间（毫秒）
+     * @return 结果
+     */
+    public boolean unchangedSince(Integer ownerId, long since) {
+        return since >= trackingSince && changedAt.getOrDefault(ownerId, 0L) < since;
+    }
+
+    /**
+     * 用户的数据已变更，处于事务中时在提交后失效，并通知集群内其他节点
+     *
+     * @param ownerIds 用户ID
+     */
+    public void invalidate(Collection<Integer> ownerIds) {
+        Set<Integer> owners = ownerIds.stream().filter(Objects::nonNull).collect(Collectors.toSet());
+        if (owners.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    bump(owners);
+                    publish(owners);
+                }
+            });
+        } else {
+            bump(owners);
+            publish(owners);
+        }
+    }
+
+    /**
+     * 处理其他节点的失效广播，消息格式：节点标识|用户ID,用户ID
+     *
+     * @param message 广播消息
+     */
+    public void onRemoteChange(String message) {
+        List<String> parts = StrUtil.split(message, '|');
+        if (parts.size() != 2 || NODE_ID.equals(parts.get(0))) {
+            return;
+        }
+        List<Integer> owners = new ArrayList<>();
+        for (String ownerId : StrUtil.split(parts.get(1), ',')) {
+            if (StrUtil.isNotBlank(ownerId)) {
+                owners.add(Integer.valueOf(ownerId.trim()));
+            }
+        }
+        bump(owners);
+    }
+
+    private void bump(Collection<Integer> owners) {
+        long now = System.currentTimeMillis();
+        for (Integer ownerId : owners) {
+            changedAt.put(ownerId, now);
+            versions.computeIfAbsent(ownerId, key -> new AtomicLong()).incrementAndGet();
+        }
+    }
+
+    private void publish(Collection<Integer> owners) {
+        if (!febsProperties.isClustered()) {
+            return;
+        }
+        try {
+            String ids = owners.stream().map(String::valueOf).collect(Collectors.joining(","));
+            stringRedisTemplate.convertAndSend(CHANGE_TOPIC, NODE_ID + "|" + ids);
+        } catch (Exception e) {
+            log.warn("用电分析报告失效广播失败，其他节点可能返回旧报告", e);
+        }
+    }
+
+    /**
+     * 缓存已满时优先移除已失效的报告，没有时任意移除一个
+     */
+    private void evictOne() {
+        Iterator<Map.Entry<Integer, Entry>> iterator = reports.entrySet().iterator();
+        Integer any = null;
+        while (iterator.hasNext()) {
+            Map.Entry<Integer, Entry> item = iterator.next();
+            if (item.getValue().version != version(item.getValue().ownerId)) {
+                iterator.remove();
+                return;
+            }
+            if (any == null) {
+                any = item.getKey();
+            }
+        }
+        if (any != null) {
+            reports.remove(any);
+        }
+    }
+
+    private static final class Entry {
+
+        private final Integer ownerId;
+
+        private final long version;
+
+        private final LinkedHashMap<String, Object> report;
+
+        Entry(Integer ownerId, long version, LinkedHashMap<String, Object> report) {
+            this.ownerId = ownerId;
+            this.version = version;
+            this.report = report;
+        }
+    }
+}
@@ -0,0 +1,336 @@
+package cc.mrbird.febs.cos.cache;
+
+import cc.mrbird.febs.common.utils.QueryFanOut;
+import cc.mrbird.febs.cos.dao.BulletinInfoMapper;
+import cc.mrbird.febs.cos.dao.DeviceInfoMapper;
+import cc.mrbird.febs.cos.dao.DeviceTypeMapper;
+import cc.mrbird.febs.cos.dao.UserInfoMapper;
+import cc.mrbird.febs.cos.entity.BulletinInfo;
+import cc.mrbird.febs.cos.entity.DeviceInfo;
+import cc.mrbird.febs.cos.entity.UserInfo;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 首页统计快照
+ * 数据上报和报警产生时只累加内存计数，定时对账重新统计，首页读取时直接返回已组装好的结果
+ * 集群模式下每个节点只累加自己处理的数据，两次对账之间各节点数值会略有差异
+ *
+ * @author FanK
+ */
+@Slf4j
+@Component
+public class HomeDataSnapshot {
+
+    /**
+     * 近若干天统计
+     */
+    private static final int DAYS = 10;
+
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+    private static final DateTimeFormatter LABEL_FORMAT = DateTimeFormatter.ofPattern("MM-dd");
+
+    /**
+     * 对账查询超时时间（毫秒）
+     */
+    private static final long RECONCILE_TIMEOUT = 10000;
+
+    /**
+     * 按上报累加值计算增量的统计项
+     */
+    private static final String[] HISTORY_KEYS = {"historyNum", "monthNum", "yearNum", "dayNum"};
+
+    /**
+     * 按报警累加值计算增量的统计项
+     */
+    private static final String[] ALERT_KEYS = {"alertNum", "monthAlertNum", "yearAlertNum", "dayAlertNum"};
+
+    private final DeviceTypeMapper deviceTypeMapper;
+
+    private final UserInfoMapper userInfoMapper;
+
+    private final DeviceInfoMapper deviceInfoMapper;
+
+    private final BulletinInfoMapper bulletinInfoMapper;
+
+    private final QueryFanOut queryFanOut;
+
+    /**
+     * 累计上报数量，只增不减，与对账时的读数相减得到对账后的增量
+     */
+    private final AtomicLong historyAdded = new AtomicLong();
+
+    /**
+     * 累计报警数量
+     */
+    private final AtomicLong alertAdded = new AtomicLong();
+
+    /**
+     * 变更次数
+     */
+    private final AtomicLong version = new AtomicLong();
+
+    private volatile Baseline baseline;
+
+    private volatile Snapshot snapshot;
+
+    private volatile List<BulletinInfo> bulletin = Collections.emptyList();
+
+    public HomeDataSnapshot(DeviceTypeMapper deviceTypeMapper, UserInfoMapper userInfoMapper,
+                            DeviceInfoMapper deviceInfoMapper, BulletinInfoMapper bulletinInfoMapper, QueryFanOut queryFanOut) {
+        this.deviceTypeMapper = deviceTypeMapper;
+        this.userInfoMapper = userInfoMapper;
+        this.deviceInfoMapper = deviceInfoMapper;
+        this.bulletinInfoMapper = bulletinInfoMapper;
+        this.queryFanOut = queryFanOut;
+    }
+
+    /**
+     * 上报数据已入库，数量与天汇总的上报次数口径一致（只含有数值的数据）
+     *
+     * @param count 数量
+     */
+    public void recordHistory(int count) {
+        if (count > 0) {
+            historyAdded.addAndGet(count);
+            version.incrementAndGet();
+        }
+    }
+
+    /**
+     * 报警消息已保存
+     *
+     * @param count 数量
+     */
+    public void recordAlert(int count) {
+        if (count > 0) {
+            alertAdded.addAndGet(count);
+            version.incrementAndGet();
+        }
+    }
+
+    /**
+     * 公告变更后重新加载
+     */
+    public void refreshBulletin() {
+        bulletin = selectBulletin();
+        version.incrementAndGet();
+    }
+
+    private List<BulletinInfo> selectBulletin() {
+        return bulletinInfoMapper.selectList(Wrappers.<BulletinInfo>lambdaQuery().eq(BulletinInfo::getRackUp, 1));
+    }
+
+    /**
+     * 获取首页统计，只在计数变化后重新组装（固定大小），跨天时先对账
+     *
+     * @return 快照
+     */
+    public Snapshot get() {
+        Baseline current = baseline;
+        if (current == null || !current.day.equals(LocalDate.now())) {
+            reconcile();
+            current = baseline;
+        }
+        long v = version.get();
+        Snapshot cached = snapshot;
+        if (cached != null && cached.baseline == current && cached.version == v) {
+            return cached;
+        }
+        cached = new Snapshot(current, v, build(current));
+        snapshot = cached;
+        return cached;
+    }
+
+    /**
+     * 重新统计全部数据，修正累加误差并刷新用户、设备数量及公告
+     */
+    @SuppressWarnings("unchecked")
+    @Scheduled(fixedDelayString = "${febs.telemetry.homeDataReconcileInterval:60000}", initialDelay = 60000)
+    public synchronized void reconcile() {
+        try {
+            // 先记下累加值，统计期间新增的数据按增量计入
+            long historyMark = historyAdded.get();
+            long alertMark = alertAdded.get();
+            LocalDate today = LocalDate.now();
+            String dayStart = today.minusDays(DAYS - 1).format(DAY_FORMAT);
+            String monthStart = today.withDayOfMonth(1).format(DAY_FORMAT);
+            String yearStart = today.withDayOfYear(1).format(DAY_FORMAT);
+
+            // 各项统计并行查询，失败的项沿用上次对账结果及当时的累加值读数
+            Baseline last = baseline;
+            QueryFanOut.Batch batch = queryFanOut.batch(RECONCILE_TIMEOUT)
+                    .add("userNum", () -> (long) userInfoMapper.selectCount(Wrappers.<UserInfo>lambdaQuery()), last == null ? 0L : last.userNum)
+                    .add("deviceNum", () -> (long) deviceInfoMapper.selectCount(Wrappers.<DeviceInfo>lambdaQuery()), last == null ? 0L : last.deviceNum)
+                    .add("historyNum", () -> deviceTypeMapper.selectDataCount(null, null), last == null ? 0L : last.historyNum)
+                    .add("alertNum", () -> deviceTypeMapper.selectAlertCount(null, null), last == null ? 0L : last.alertNum)
+                    .add("monthNum", () -> deviceTypeMapper.selectDataCount(monthStart, null), last == null ? 0L : last.monthNum)
+                    .add("monthAlertNum", () -> deviceTypeMapper.selectAlertCount(monthStart + " 00:00:00", null), last == null ? 0L : last.monthAlertNum)
+                    .add("yearNum", () -> deviceTypeMapper.selectDataCount(yearStart, null), last == null ? 0L : last.yearNum)
+                    .add("yearAlertNum", () -> deviceTypeMapper.selectAlertCount(yearStart + " 00:00:00", null), last == null ? 0L : last.yearAlertNum)
+                    .add("dayNum", () -> deviceTypeMapper.selectDataNumByDay(dayStart), null)
+                    .add("dayAlertNum", () -> deviceTypeMapper.selectAlertNumByDay(dayStart + " 00:00:00"), null)
+                    .add("bulletin", this::selectBulletin, bulletin);
+            LinkedHashMap<String, Object> data = batch.join();
+            if (!batch.failed().isEmpty()) {
+                log.warn("首页统计对账部分失败：{}", batch.failed());
+            }
+
+            Baseline next = new Baseline(today);
+            for (String key : HISTORY_KEYS) {
+                next.marks.put(key, batch.failed().contains(key) && last != null ? last.mark(key) : historyMark);
+            }
+            for (String key : ALERT_KEYS) {
+                next.marks.put(key, batch.failed().contains(key) && last != null ? last.mark(key) : alertMark);
+            }
+            next.userNum = (Long) data.get("userNum");
+            next.deviceNum = (Long) data.get("deviceNum");
+            next.historyNum = (Long) data.get("historyNum");
+            next.alertNum = (Long) data.get("alertNum");
+            next.monthNum = (Long) data.get("monthNum");
+            next.monthAlertNum = (Long) data.get("monthAlertNum");
+            next.yearNum = (Long) data.get("yearNum");
+            next.yearAlertNum = (Long) data.get("yearAlertNum");
+            putDays(next.dayNum, data.get("dayNum"), last == null ? null : last.dayNum);
+            putDays(next.dayAlertNum, data.get("dayAlertNum"), last == null ? null : last.dayAlertNum);
+            bulletin = (List<BulletinInfo>) data.get("bulletin");
+            baseline = next;
+        } catch (Exception e) {
+            log.error("首页统计对账失败", e);
+            if (baseline == null) {
+                throw e;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void putDays(Map<String, Long> dayNum, Object rows, Map<String, Long> fallback) {
+        if (rows == null) {
+            if (fallback != null) {
+                dayNum.putAll(fallback);
+            }
+            return;
+        }
+        for (LinkedHashMap<String, Object> item : (List<LinkedHashMap<String, Object>>) rows) {
+            dayNum.put((String) item.get("days"), ((Number) item.get("count")).longValue());
+        }
+    }
+
+    private LinkedHashMap<String, Object> build(Baseline base) {
+        long history = historyAdded.get();
+        long alert = alertAdded.get();
+        LinkedHashMap<String, Object> result = new LinkedHashMap<>();
+        result.put("userNum", base.userNum);
+        result.put("deviceNum", base.deviceNum);
+        result.put("historyNum", base.historyNum + history - base.mark("historyNum"));
+        result.put("alertNum", base.alertNum + alert - base.mark("alertNum"));
+        // 本月数据上报数量
+        result.put("monthNum", base.monthNum + history - base.mark("monthNum"));
+        // 本月数据报警数量
+        result.put("monthAlertNum", base.monthAlertNum + alert - base.mark("monthAlertNum"));
+        // 本年数据上报数量
+        result.put("yearNum", base.yearNum + history - base.mark("yearNum"));
+        // 本年数据报警数量
+        result.put("yearAlertNum", base.yearAlertNum + alert - base.mark("yearAlertNum"));
+        // 近十天数据上报数量
+        result.put("numDayList", dayList(base, base.dayNum, history - base.mark("dayNum")));
+        // 近十天数据报警数量
+        result.put("alertDayList", dayList(base, base.dayAlertNum, alert - base.mark("dayAlertNum")));
+        // 公告信息
+        result.put("bulletin", bulletin);
+        return result;
+    }
+
+    private static List<LinkedHashMap<String, Object>> dayList(Baseline base, Map<String, Long> dayNum, long todayAdded) {
+        List<LinkedHashMap<String, Object>> dayList = new ArrayList<>(DAYS);
+        for (int i = DAYS - 1; i >= 0; i--) {
+            LocalDate day = base.day.minusDays(i);
+            long count = dayNum.getOrDefault(day.format(DAY_FORMAT), 0L) + (i == 0 ? todayAdded : 0);
+            LinkedHashMap<String, Object> item = new LinkedHashMap<>();
+            item.put("days", day.format(LABEL_FORMAT));
+            item.put("count", count);
+            dayList.add(item);
+        }
+        return dayList;
+    }
+
+    /**
+     * 对账结果
+     */
+    private static final class Baseline {
+
+        private final LocalDate day;
+
+        private final long reconciledAt = System.currentTimeMillis();
+
+        /**
+         * 各项统计对应的累加值读数，沿用上次结果的项沿用上次的读数
+         */
+        private final Map<String, Long> marks = new HashMap<>();
+
+        private long userNum;
+
+        private long deviceNum;
+
+        private long historyNum;
+
+        private long alertNum;
+
+        private long monthNum;
+
+        private long monthAlertNum;
+
+        private long yearNum;
+
+        private long yearAlertNum;
+
+        private final Map<String, Long> dayNum = new HashMap<>();
+
+        private final Map<String, Long> dayAlertNum = new HashMap<>();
+
+        Baseline(LocalDate day) {
+            this.day = day;
+        }
+
+        long mark(String key) {
+            return marks.get(key);
+        }
+    }
+
+    /**
+     * 首页统计快照，内容不再修改，可直接共享给并发请求
+     */
+    public static final class Snapshot {
+
+        private final Baseline baseline;
+
+        private final long version;
+
+        private final LinkedHashMap<String, Object> data;
+
+        private final String etag;
+
+        Snapshot(Baseline baseline, long version, LinkedHashMap<String, Object> data) {
+            this.baseline = baseline;
+            this.version = version;
+            this.data = data;
+            this.etag = "\"" + Long.toHexString(baseline.reconciledAt) + "-" + version + "\"";
+        }
+
+        public LinkedHashMap<String, Object> getData() {
+            return data;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+    }
+}
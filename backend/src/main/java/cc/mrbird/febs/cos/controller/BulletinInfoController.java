@@ -2,6 +2,7 @@ package cc.mrbird.febs.cos.controller;
 
 
 import cc.mrbird.febs.common.utils.R;
+import cc.mrbird.febs.cos.cache.HomeDataSnapshot;
 import cc.mrbird.febs.cos.entity.BulletinInfo;
 import cc.mrbird.febs.cos.service.IBulletinInfoService;
 import cn.hutool.core.date.DateUtil;
@@ -24,6 +25,8 @@ public class BulletinInfoController {
 
     private final IBulletinInfoService bulletinInfoService;
 
+    private final HomeDataSnapshot homeDataSnapshot;
+
     /**
      * 分页获取公告信息
      *
@@ -67,7 +70,9 @@ public class BulletinInfoController {
     public R save(BulletinInfo bulletinInfo) {
         bulletinInfo.setTitle(StrUtil.cleanBlank(bulletinInfo.getTitle()));
         bulletinInfo.setDate(DateUtil.formatDateTime(new Date()));
-        return R.ok(bulletinInfoService.save(bulletinInfo));
+        boolean result = bulletinInfoService.save(bulletinInfo);
+        homeDataSnapshot.refreshBulletin();
+        return R.ok(result);
     }
 
     /**
@@ -78,7 +83,9 @@ public class BulletinInfoController {
      */
     @PutMapping
     public R edit(BulletinInfo bulletinInfo) {
-        return R.ok(bulletinInfoService.updateById(bulletinInfo));
+        boolean result = bulletinInfoService.updateById(bulletinInfo);
+        homeDataSnapshot.refreshBulletin();
+        return R.ok(result);
     }
 
     /**
@@ -89,6 +96,8 @@ public class BulletinInfoController {
      */
     @DeleteMapping("/{ids}")
     public R deleteByIds(@PathVariable("ids") List<Integer> ids) {
-        return R.ok(bulletinInfoService.removeByIds(ids));
+        boolean result = bulletinInfoService.removeByIds(ids);
+        homeDataSnapshot.refreshBulletin();
+        return R.ok(result);
     }
 }
@@ -1,8 +1,10 @@
 package cc.mrbird.febs.cos.controller;
 
 
+import cc.mrbird.febs.common.domain.SeekRequest;
 import cc.mrbird.febs.common.exception.FebsException;
 import cc.mrbird.febs.common.utils.R;
+import cc.mrbird.febs.cos.cache.DeviceAlertRegistry;
 import cc.mrbird.febs.cos.entity.DeviceAlertInfo;
 import cc.mrbird.febs.cos.entity.DeviceInfo;
 import cc.mrbird.febs.cos.service.IDeviceAlertInfoService;
@@ -17,6 +19,7 @@ import org.springframework.web.bind.annotation.*;
 
 import java.util.Date;
 import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * 设备报警配置 控制层
@@ -30,6 +33,7 @@ public class DeviceAlertInfoController {
 
     private final IDeviceAlertInfoService deviceAlertInfoService;
     private final IDeviceInfoService deviceInfoService;
+    private final DeviceAlertRegistry deviceAlertRegistry;
 
     /**
      * 分页获取设备报警配置信息
@@ -43,6 +47,18 @@ public class DeviceAlertInfoController {
         return R.ok(deviceAlertInfoService.selectDeviceAlertPage(page, deviceAlertInfo));
     }
 
+    /**
+     * 游标分页获取设备报警配置信息，传入上一页返回的 lastDate、lastId 获取下一页
+     *
+     * @param seek            游标及总数统计方式（none/approx/exact）
+     * @param deviceAlertInfo 设备报警配置信息
+     * @return 结果
+     */
+    @GetMapping("/seek")
+    public R seek(SeekRequest seek, DeviceAlertInfo deviceAlertInfo) {
+        return R.ok(deviceAlertInfoService.selectDeviceAlertSeek(seek, deviceAlertInfo));
+    }
+
     /**
      * 查询设备报警配置信息详情
      *
@@ -83,7 +99,9 @@ public class DeviceAlertInfoController {
         }
         // 上报时间
         deviceAlertInfo.setCreateDate(DateUtil.formatDateTime(new Date()));
-        return R.ok(deviceAlertInfoService.save(deviceAlertInfo));
+        boolean result = deviceAlertInfoService.save(deviceAlertInfo);
+        deviceAlertRegistry.refresh(deviceAlertInfo.getDeviceId());
+        return R.ok(result);
     }
 
     /**
@@ -98,7 +116,14 @@ public class DeviceAlertInfoController {
         if (CollectionUtil.isNotEmpty(deviceAlertInfoList) && !deviceAlertInfoList.get(0).getId().equals(deviceAlertInfo.getId())) {
             throw new FebsException("改设备已经绑定报警配置");
         }
-        return R.ok(deviceAlertInfoService.updateById(deviceAlertInfo));
+        DeviceAlertInfo historyAlert = deviceAlertInfoService.getById(deviceAlertInfo.getId());
+        boolean result = deviceAlertInfoService.updateById(deviceAlertInfo);
+        // 绑定设备变更时新旧设备都需要刷新
+        if (historyAlert != null) {
+            deviceAlertRegistry.refresh(historyAlert.getDeviceId());
+        }
+        deviceAlertRegistry.refresh(deviceAlertInfo.getDeviceId());
+        return R.ok(result);
     }
 
     /**
@@ -109,6 +134,9 @@ public class DeviceAlertInfoController {
      */
     @DeleteMapping("/{ids}")
     public R deleteByIds(@PathVariable("ids") List<Integer> ids) {
-        return R.ok(deviceAlertInfoService.removeByIds(ids));
+        List<Integer> deviceIds = deviceAlertInfoService.listByIds(ids).stream().map(DeviceAlertInfo::getDeviceId).distinct().collect(Collectors.toList());
+        boolean result = deviceAlertInfoService.removeByIds(ids);
+        deviceAlertRegistry.refresh(deviceIds);
+        return R.ok(result);
     }
 }
@@ -1,18 +1,28 @@
 package cc.mrbird.febs.cos.controller;
 
 
+import cc.mrbird.febs.common.domain.SeekRequest;
+import cc.mrbird.febs.common.exception.FebsException;
 import cc.mrbird.febs.common.utils.R;
+import cc.mrbird.febs.cos.cache.DeviceHistoryCache;
 import cc.mrbird.febs.cos.entity.DeviceHistoryInfo;
+import cc.mrbird.febs.cos.entity.DeviceHistoryRollup;
 import cc.mrbird.febs.cos.service.IDeviceHistoryInfoService;
+import cc.mrbird.febs.cos.service.IDeviceHistoryRollupService;
+import cc.mrbird.febs.cos.service.IDeviceValueSketchService;
 import cn.hutool.core.date.DateUtil;
 import cn.hutool.core.util.StrUtil;
 import com.baomidou.mybatisplus.core.toolkit.Wrappers;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletResponse;
+import java.net.URLEncoder;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
 
 /**
@@ -20,6 +30,7 @@ import java.util.List;
  *
  * @author FanK
  */
+@Slf4j
 @RestController
 @RequestMapping("/cos/device-history-info")
 @RequiredArgsConstructor(onConstructor = @__(@Autowired))
@@ -27,6 +38,12 @@ public class DeviceHistoryInfoController {
 
     private final IDeviceHistoryInfoService deviceHistoryInfoService;
 
+    private final IDeviceHistoryRollupService deviceHistoryRollupService;
+
+    private final DeviceHistoryCache deviceHistoryCache;
+
+    private final IDeviceValueSketchService deviceValueSketchService;
+
     /**
      * 分页获取设备上报历史数据信息
      *
@@ -39,15 +56,29 @@ public class DeviceHistoryInfoController {
         return R.ok(deviceHistoryInfoService.selectHistoryPage(page, deviceHistoryInfo));
     }
 
+    /**
+     * 游标分页获取设备上报历史数据信息，传入上一页返回的 lastDate、lastId 获取下一页
+     *
+     * @param seek              游标及总数统计方式（none/approx/exact）
+     * @param deviceHistoryInfo 设备上报历史数据信息
+     * @return 结果
+     */
+    @GetMapping("/seek")
+    public R seek(SeekRequest seek, DeviceHistoryInfo deviceHistoryInfo) {
+        return R.ok(deviceHistoryInfoService.selectHistorySeek(seek, deviceHistoryInfo));
+    }
+
     /**
      * 根据设备ID获取历史记录
      *
      * @param deviceId 设备ID
+     * @param from     开始时间，为空时返回全部
+     * @param to       结束时间，默认当前时间
      * @return 结果
      */
     @GetMapping("/selectHistoryByDevice/{deviceId}")
-    public R selectHistoryByDevice(@PathVariable("deviceId") Integer deviceId) {
-        return R.ok(deviceHistoryInfoService.list(Wrappers.<DeviceHistoryInfo>lambdaQuery().eq(DeviceHistoryInfo::getDeviceId, deviceId)));
+    public R selectHistoryByDevice(@PathVariable("deviceId") Integer deviceId, String from, String to) {
+        return R.ok(deviceHistoryInfoService.selectHistoryByDevice(deviceId, from, to));
     }
 
     /**
@@ -63,14 +94,106 @@ public class DeviceHistoryInfoController {
     }
 
     /**
-     * 根据设备ID获取历史数据
+     * 获取设备值分位数（p50/p95/p99/最大值），由每小时草图合并计算，可跨设备、跨天合并
+     *
+     * @param deviceIds 设备ID，为空时不限设备
+     * @param from      开始时间，默认当天
+     * @param to        结束时间，默认开始时间后一天
+     * @param group     分组 hour/day/all
+     * @return 结果
+     */
+    @GetMapping("/percentile")
+    public R percentile(@RequestParam(required = false) List<Integer> deviceIds, String from, String to,
+                        @RequestParam(defaultValue = "hour") String group) {
+        return R.ok(deviceValueSketchService.selectPercentile(deviceIds, from, to, group));
+    }
+
+    /**
+     * 获取设备指定时间段的汇总数据，按跨度自动选择分钟、小时或天汇总
      *
      * @param deviceId 设备ID
+     * @param from     开始时间，默认24小时前
+     * @param to       结束时间，默认当前时间
+     * @return 结果
+     */
+    @GetMapping("/rollup")
+    public R rollup(@RequestParam("deviceId") Integer deviceId, @RequestParam(value = "from", required = false) String from,
+                    @RequestParam(value = "to", required = false) String to) {
+        Date end = StrUtil.isEmpty(to) ? new Date() : DateUtil.parse(to);
+        Date start = StrUtil.isEmpty(from) ? DateUtil.offsetDay(end, -1) : DateUtil.parse(from);
+        DeviceHistoryRollup.Level level = DeviceHistoryRollup.Level.forSpan(end.getTime() - start.getTime());
+        LinkedHashMap<String, Object> result = new LinkedHashMap<>();
+        result.put("level", level);
+        result.put("list", deviceHistoryRollupService.selectRollup(level, deviceId, DateUtil.formatDateTime(start), DateUtil.formatDateTime(end)));
+        return R.ok(result);
+    }
+
+    /**
+     * 根据设备ID获取历史数据，最近时间范围内的查询由内存缓存直接返回
+     *
+     * @param deviceId 设备ID
+     * @param from     开始时间，为空时返回全部
+     * @param to       结束时间，默认当前时间
      * @return 结果
      */
     @GetMapping("/selectHistoryByDeviceId")
-    public R selectHistoryByDeviceId(Integer deviceId) {
-        return R.ok(deviceHistoryInfoService.list(Wrappers.<DeviceHistoryInfo>lambdaQuery().eq(DeviceHistoryInfo::getDeviceId, deviceId)));
+    public R selectHistoryByDeviceId(Integer deviceId, String from, String to) {
+        return R.ok(deviceHistoryInfoService.selectHistoryByDevice(deviceId, from, to));
+    }
+
+    /**
+     * 获取设备图表数据，按目标点数在服务端降采样
+     *
+     * @param deviceId 设备ID
+     * @param from     开始时间，默认结束时间前一天
+     * @param to       结束时间，默认当前时间
+     * @param points   目标点数，默认 500
+     * @param mode     降采样方式 lttb/minmax，默认 lttb
+     * @return 结果
+     */
+    @GetMapping("/chart")
+    public R chart(@RequestParam("deviceId") Integer deviceId, String from, String to,
+                   @RequestParam(defaultValue = "500") Integer points, @RequestParam(defaultValue = "lttb") String mode) {
+        return R.ok(deviceHistoryInfoService.selectHistoryChart(deviceId, from, to, points, mode));
+    }
+
+    /**
+     * 导出设备上报数据，从数据库游标逐行写出到响应
+     *
+     * @param deviceIds 设备ID，为空时导出全部设备
+     * @param from      开始时间
+     * @param to        结束时间，默认当前时间
+     * @param format    导出格式 csv/xlsx，默认 csv
+     * @param response  响应
+     * @throws FebsException 导出失败
+     */
+    @GetMapping("/export")
+    public void export(@RequestParam(required = false) List<Integer> deviceIds, @RequestParam String from, String to,
+                       @RequestParam(defaultValue = "csv") String format, HttpServletResponse response) throws FebsException {
+        try {
+            String start = DateUtil.formatDateTime(DateUtil.parse(from));
+            String end = DateUtil.formatDateTime(StrUtil.isEmpty(to) ? new Date() : DateUtil.parse(to));
+            boolean xlsx = "xlsx".equals(format);
+            String fileName = "设备上报数据_" + DateUtil.format(DateUtil.parse(start), "yyyyMMdd") + "_"
+                    + DateUtil.format(DateUtil.parse(end), "yyyyMMdd") + (xlsx ? ".xlsx" : ".csv");
+            response.setContentType(xlsx ? "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet" : "text/csv;charset=UTF-8");
+            response.setHeader("Content-Disposition", "attachment;filename=" + URLEncoder.encode(fileName, "UTF-8"));
+            deviceHistoryInfoService.exportHistory(deviceIds, start, end, format, response.getOutputStream());
+        } catch (Exception e) {
+            String message = "导出设备上报数据失败";
+            log.error(message, e);
+            throw new FebsException(message);
+        }
+    }
+
+    /**
+     * 设备最近上报数据缓存占用情况
+     *
+     * @return 结果
+     */
+    @GetMapping("/cache/stats")
+    public R cacheStats() {
+        return R.ok(deviceHistoryCache.stats());
     }
 
     /**
@@ -2,6 +2,10 @@ package cc.mrbird.febs.cos.controller;
 
 
 import cc.mrbird.febs.common.utils.R;
+import cc.mrbird.febs.cos.cache.DeviceAlertRegistry;
+import cc.mrbird.febs.cos.cache.DeviceHistoryCache;
+import cc.mrbird.febs.cos.cache.DeviceStateStore;
+import cc.mrbird.febs.cos.cache.ElectricityReportCache;
 import cc.mrbird.febs.cos.entity.*;
 import cc.mrbird.febs.cos.service.IDeviceInfoService;
 import cc.mrbird.febs.cos.service.IDeviceOfflineRecordService;
@@ -17,8 +21,11 @@ import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * 设备管理 控制层
@@ -38,6 +45,14 @@ public class DeviceInfoController {
 
     private final IOperateRecordInfoService operateRecordInfoService;
 
+    private final DeviceAlertRegistry deviceAlertRegistry;
+
+    private final DeviceStateStore deviceStateStore;
+
+    private final DeviceHistoryCache deviceHistoryCache;
+
+    private final ElectricityReportCache electricityReportCache;
+
     /**
      * 分页获取设备管理信息
      *
@@ -92,11 +107,11 @@ public class DeviceInfoController {
     @GetMapping("/selectDeviceByUserId")
     public R selectDeviceByUserId(@RequestParam(value = "userId", required = false) Integer userId) {
         if (userId == null) {
-            return R.ok(deviceInfoService.list());
+            return R.ok(deviceStateStore.apply(deviceInfoService.list()));
         }
         // 获取用户信息
         UserInfo userInfo = userInfoService.getOne(Wrappers.<UserInfo>lambdaQuery().eq(UserInfo::getUserId, userId));
-        return R.ok(deviceInfoService.list(Wrappers.<DeviceInfo>lambdaQuery().eq(DeviceInfo::getUserId, userInfo.getId())));
+        return R.ok(deviceStateStore.apply(deviceInfoService.list(Wrappers.<DeviceInfo>lambdaQuery().eq(DeviceInfo::getUserId, userInfo.getId()))));
     }
 
     /**
@@ -113,7 +128,7 @@ public class DeviceInfoController {
         deviceOfflineRecord.setType(onlineFlag);
         deviceOfflineRecord.setOnlineDate(DateUtil.formatDateTime(new Date()));
         deviceOfflineRecord.setDeviceId(deviceId);
-        deviceOfflineRecordService.save(deviceOfflineRecord);
+        deviceOfflineRecordService.saveRecordBatch(Collections.singletonList(deviceOfflineRecord));
         // 保存更新信息
         return R.ok(deviceInfoService.update(Wrappers.<DeviceInfo>lambdaUpdate().set(DeviceInfo::getOnlineFlag, onlineFlag).set(DeviceInfo::getOpenFlag, onlineFlag)
                 .eq(DeviceInfo::getId, deviceId)));
@@ -140,7 +155,7 @@ public class DeviceInfoController {
      */
     @GetMapping("/setupOpen")
     public R setupOpen(Integer deviceId, String openFlag) {
-        DeviceInfo deviceInfo = deviceInfoService.getById(deviceId);
+        DeviceInfo deviceInfo = deviceStateStore.apply(deviceInfoService.getById(deviceId));
         // 设置操作记录
         OperateRecordInfo operateRecordInfo = new OperateRecordInfo();
         operateRecordInfo.setDeviceId(deviceId);
@@ -175,7 +190,7 @@ public class DeviceInfoController {
      */
     @GetMapping("/{id}")
     public R detail(@PathVariable("id") Integer id) {
-        return R.ok(deviceInfoService.getById(id));
+        return R.ok(deviceStateStore.apply(deviceInfoService.getById(id)));
     }
 
     /**
@@ -185,7 +200,7 @@ public class DeviceInfoController {
      */
     @GetMapping("/list")
     public R list() {
-        return R.ok(deviceInfoService.list());
+        return R.ok(deviceStateStore.apply(deviceInfoService.list()));
     }
 
     /**
@@ -211,8 +226,10 @@ public class DeviceInfoController {
             deviceOfflineRecord.setType(deviceInfo.getOnlineFlag());
             deviceOfflineRecord.setOnlineDate(DateUtil.formatDateTime(new Date()));
             deviceOfflineRecord.setDeviceId(deviceInfo.getId());
-            deviceOfflineRecordService.save(deviceOfflineRecord);
+            deviceOfflineRecordService.saveRecordBatch(Collections.singletonList(deviceOfflineRecord));
         }
+        deviceAlertRegistry.refresh(deviceInfo.getId());
+        electricityReportCache.invalidate(Collections.singletonList(deviceInfo.getUserId()));
         return R.ok(true);
     }
 
@@ -224,14 +241,14 @@ public class DeviceInfoController {
      */
     @PutMapping
     public R edit(DeviceInfo deviceInfo) {
+        DeviceInfo historyDevice = deviceInfoService.getById(deviceInfo.getId());
         if (StrUtil.isNotEmpty(deviceInfo.getOnlineFlag())) {
-            DeviceInfo historyDevice = deviceInfoService.getById(deviceInfo.getId());
             if (historyDevice != null && !historyDevice.getOnlineFlag().equals(deviceInfo.getOnlineFlag())) {
                 DeviceOfflineRecord deviceOfflineRecord = new DeviceOfflineRecord();
                 deviceOfflineRecord.setType(deviceInfo.getOnlineFlag());
                 deviceOfflineRecord.setOnlineDate(DateUtil.formatDateTime(new Date()));
                 deviceOfflineRecord.setDeviceId(deviceInfo.getId());
-                deviceOfflineRecordService.save(deviceOfflineRecord);
+                deviceOfflineRecordService.saveRecordBatch(Collections.singletonList(deviceOfflineRecord));
             }
         }
         // 开关记录
@@ -245,7 +262,11 @@ public class DeviceInfoController {
         if ("2".equals(deviceInfo.getOpenFlag())) {
             deviceInfo.setOpenFlag("1");
         }
-        return R.ok(deviceInfoService.updateById(deviceInfo));
+        boolean result = deviceInfoService.updateById(deviceInfo);
+        deviceAlertRegistry.refresh(deviceInfo.getId());
+        // 功率、名称、所属用户变更后原用户与新用户的用电分析报告都失效
+        electricityReportCache.invalidate(Arrays.asList(historyDevice == null ? null : historyDevice.getUserId(), deviceInfo.getUserId()));
+        return R.ok(result);
     }
 
     /**
@@ -256,6 +277,12 @@ public class DeviceInfoController {
      */
     @DeleteMapping("/{ids}")
     public R deleteByIds(@PathVariable("ids") List<Integer> ids) {
-        return R.ok(deviceInfoService.removeByIds(ids));
+        List<Integer> ownerIds = deviceInfoService.listByIds(ids).stream().map(DeviceInfo::getUserId).collect(Collectors.toList());
+        boolean result = deviceInfoService.removeByIds(ids);
+        deviceAlertRegistry.refresh(ids);
+        deviceStateStore.evict(ids);
+        deviceHistoryCache.evict(ids);
+        electricityReportCache.invalidate(ownerIds);
+        return R.ok(result);
     }
 }
@@ -1,6 +1,7 @@
 package cc.mrbird.febs.cos.controller;
 
 
+import cc.mrbird.febs.common.domain.SeekRequest;
 import cc.mrbird.febs.common.utils.R;
 import cc.mrbird.febs.cos.entity.DeviceOfflineRecord;
 import cc.mrbird.febs.cos.service.IDeviceOfflineRecordService;
@@ -10,6 +11,7 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 
@@ -37,6 +39,18 @@ public class DeviceOfflineRecordController {
         return R.ok(deviceOfflineRecordService.selectOfflineRecordPage(page, deviceOfflineRecord));
     }
 
+    /**
+     * 游标分页获取设备上下线记录信息，传入上一页返回的 lastDate、lastId 获取下一页
+     *
+     * @param seek                游标及总数统计方式（none/approx/exact）
+     * @param deviceOfflineRecord 设备上下线记录信息
+     * @return 结果
+     */
+    @GetMapping("/seek")
+    public R seek(SeekRequest seek, DeviceOfflineRecord deviceOfflineRecord) {
+        return R.ok(deviceOfflineRecordService.selectOfflineRecordSeek(seek, deviceOfflineRecord));
+    }
+
     /**
      * 查询设备上下线记录信息详情
      *
@@ -66,7 +80,8 @@ public class DeviceOfflineRecordController {
      */
     @PostMapping
     public R save(DeviceOfflineRecord deviceOfflineRecord) {
-        return R.ok(deviceOfflineRecordService.save(deviceOfflineRecord));
+        deviceOfflineRecordService.saveRecordBatch(Collections.singletonList(deviceOfflineRecord));
+        return R.ok(true);
     }
 
     /**
@@ -77,7 +92,7 @@ public class DeviceOfflineRecordController {
      */
     @PutMapping
     public R edit(DeviceOfflineRecord deviceOfflineRecord) {
-        return R.ok(deviceOfflineRecordService.updateById(deviceOfflineRecord));
+        return R.ok(deviceOfflineRecordService.updateRecord(deviceOfflineRecord));
     }
 
     /**
@@ -88,6 +103,6 @@ public class DeviceOfflineRecordController {
      */
     @DeleteMapping("/{ids}")
     public R deleteByIds(@PathVariable("ids") List<Integer> ids) {
-        return R.ok(deviceOfflineRecordService.removeByIds(ids));
+        return R.ok(deviceOfflineRecordService.removeRecords(ids));
     }
 }
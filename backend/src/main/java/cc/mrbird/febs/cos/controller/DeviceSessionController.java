@@ -0,0 +1,48 @@
+package cc.mrbird.febs.cos.controller;
+
+
+import cc.mrbird.febs.common.utils.R;
+import cc.mrbird.febs.cos.service.IDeviceSessionService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Collections;
+
+/**
+ * 设备运行时段 控制层
+ *
+ * @author FanK
+ */
+@RestController
+@RequestMapping("/cos/device-session")
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class DeviceSessionController {
+
+    private final IDeviceSessionService deviceSessionService;
+
+    /**
+     * 获取设备运行时段
+     *
+     * @param deviceId 设备ID
+     * @param from     上线时间开始（含）
+     * @param to       上线时间结束（不含）
+     * @return 结果
+     */
+    @GetMapping("/list")
+    public R list(@RequestParam Integer deviceId, String from, String to) {
+        return R.ok(deviceSessionService.selectSessions(Collections.singletonList(deviceId), from, to));
+    }
+
+    /**
+     * 按上下线记录重建设备运行时段
+     *
+     * @param deviceId 设备ID
+     * @return 结果
+     */
+    @PostMapping("/rebuild/{deviceId}")
+    public R rebuild(@PathVariable("deviceId") Integer deviceId) {
+        deviceSessionService.rebuild(deviceId);
+        return R.ok(true);
+    }
+}
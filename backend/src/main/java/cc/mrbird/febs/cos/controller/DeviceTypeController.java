@@ -2,6 +2,7 @@ package cc.mrbird.febs.cos.controller;
 
 
 import cc.mrbird.febs.common.utils.R;
+import cc.mrbird.febs.cos.cache.HomeDataSnapshot;
 import cc.mrbird.febs.cos.entity.DeviceType;
 import cc.mrbird.febs.cos.service.IDeviceTypeService;
 import cn.hutool.core.date.DateUtil;
@@ -9,6 +10,7 @@ import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.Date;
 import java.util.List;
@@ -25,6 +27,8 @@ public class DeviceTypeController {
 
     private final IDeviceTypeService deviceTypeService;
 
+    private final HomeDataSnapshot homeDataSnapshot;
+
     /**
      * 分页获取设备类型信息
      *
@@ -38,13 +42,19 @@ public class DeviceTypeController {
     }
 
     /**
-     * 获取首页统计数据
+     * 获取首页统计数据（内存快照，支持 ETag）
      *
+     * @param request 请求
      * @return 结果
      */
     @GetMapping("/homeData")
-    public R homeData() {
-        return R.ok(deviceTypeService.homeData());
+    public R homeData(WebRequest request) {
+        HomeDataSnapshot.Snapshot snapshot = homeDataSnapshot.get();
+        // 统计未变化时返回 304
+        if (request.checkNotModified(snapshot.getEtag())) {
+            return null;
+        }
+        return R.ok(snapshot.getData());
     }
 
     /**
@@ -1,6 +1,7 @@
 package cc.mrbird.febs.cos.controller;
 
 
+import cc.mrbird.febs.common.domain.SeekRequest;
 import cc.mrbird.febs.common.utils.R;
 import cc.mrbird.febs.cos.entity.OperateRecordInfo;
 import cc.mrbird.febs.cos.service.IOperateRecordInfoService;
@@ -37,6 +38,18 @@ public class OperateRecordInfoController {
         return R.ok(operateRecordInfoService.selectOperateRecordPage(page, operateRecordInfo));
     }
 
+    /**
+     * 游标分页获取操作记录信息，传入上一页返回的 lastDate、lastId 获取下一页
+     *
+     * @param seek              游标及总数统计方式（none/approx/exact）
+     * @param operateRecordInfo 操作记录信息
+     * @return 结果
+     */
+    @GetMapping("/seek")
+    public R seek(SeekRequest seek, OperateRecordInfo operateRecordInfo) {
+        return R.ok(operateRecordInfoService.selectOperateRecordSeek(seek, operateRecordInfo));
+    }
+
     /**
      * 查询操作记录信息详情
      *
@@ -1,8 +1,9 @@
 package cc.mrbird.febs.cos.controller;
 
 
+import cc.mrbird.febs.common.utils.QueryFanOut;
 import cc.mrbird.febs.common.utils.R;
-import cc.mrbird.febs.cos.entity.DeviceInfo;
+import cc.mrbird.febs.cos.cache.DeviceStateStore;
 import cc.mrbird.febs.cos.entity.UserInfo;
 import cc.mrbird.febs.cos.service.IDeviceInfoService;
 import cc.mrbird.febs.cos.service.IUserInfoService;
@@ -32,6 +33,15 @@ public class UserInfoController {
 
     private final IDeviceInfoService deviceInfoService;
 
+    private final DeviceStateStore deviceStateStore;
+
+    private final QueryFanOut queryFanOut;
+
+    /**
+     * 用户详情查询超时时间（毫秒）
+     */
+    private static final long DETAIL_QUERY_TIMEOUT = 3000;
+
     /**
      * 分页获取用户管理
      *
@@ -59,14 +69,18 @@ public class UserInfoController {
             }
         };
 
-        // 用户信息
-        UserInfo userInfo = userInfoService.getOne(Wrappers.<UserInfo>lambdaQuery().eq(UserInfo::getUserId, userId));
-        if (userInfo == null) {
+        // 用户信息与设备信息并行查询，设备按用户编号关联用户表
+        QueryFanOut.Batch batch = queryFanOut.batch(DETAIL_QUERY_TIMEOUT)
+                .add("user", () -> userInfoService.getOne(Wrappers.<UserInfo>lambdaQuery().eq(UserInfo::getUserId, userId)), null)
+                .add("order", () -> deviceStateStore.apply(deviceInfoService.selectByUserCode(userId)), Collections.emptyList());
+        LinkedHashMap<String, Object> data = batch.join();
+        if (data.get("user") == null) {
             return R.ok(result);
         }
-        result.put("user", userInfo);
-        // 设备信息
-        result.put("order", deviceInfoService.list(Wrappers.<DeviceInfo>lambdaQuery().eq(DeviceInfo::getUserId, userInfo.getId())));
+        result.putAll(data);
+        if (!batch.failed().isEmpty()) {
+            result.put("failed", batch.failed());
+        }
         return R.ok(result);
     }
 
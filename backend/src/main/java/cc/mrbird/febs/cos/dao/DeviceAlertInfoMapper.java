@@ -1,5 +1,6 @@
 package cc.mrbird.febs.cos.dao;
 
+import cc.mrbird.febs.common.domain.SeekRequest;
 import cc.mrbird.febs.cos.entity.DeviceAlertInfo;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
@@ -7,6 +8,7 @@ import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import org.apache.ibatis.annotations.Param;
 
 import java.util.LinkedHashMap;
+import java.util.List;
 
 /**
  * 设备报警配置 mapper层
@@ -23,4 +25,22 @@ public interface DeviceAlertInfoMapper extends BaseMapper<DeviceAlertInfo> {
      * @return 结果
      */
     IPage<LinkedHashMap<String, Object>> selectDeviceAlertPage(Page<DeviceAlertInfo> page, @Param("deviceAlertInfo") DeviceAlertInfo deviceAlertInfo);
+
+    /**
+     * 游标分页获取设备报警配置信息
+     *
+     * @param deviceAlertInfo 设备报警配置信息
+     * @param seek            游标
+     * @return 结果（多查一条）
+     */
+    List<LinkedHashMap<String, Object>> selectDeviceAlertSeek(@Param("deviceAlertInfo") DeviceAlertInfo deviceAlertInfo, @Param("seek") SeekRequest seek);
+
+    /**
+     * 统计设备报警配置数量
+     *
+     * @param deviceAlertInfo 设备报警配置信息
+     * @param limit           最多统计条数，为空时精确统计
+     * @return 结果
+     */
+    Long selectDeviceAlertSeekCount(@Param("deviceAlertInfo") DeviceAlertInfo deviceAlertInfo, @Param("limit") Integer limit);
 }
@@ -0,0 +1,40 @@
+package cc.mrbird.febs.cos.dao;
+
+import cc.mrbird.febs.cos.entity.DeviceEnergyDaily;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * 设备每日耗电台账 mapper层
+ *
+ * @author FanK
+ */
+public interface DeviceEnergyDailyMapper {
+
+    /**
+     * 批量累加台账，当天不存在时新增
+     *
+     * @param dailyList 台账增量
+     * @return 影响行数
+     */
+    int addBatch(@Param("dailyList") List<DeviceEnergyDaily> dailyList);
+
+    /**
+     * 删除设备全部台账
+     *
+     * @param deviceId 设备ID
+     * @return 删除条数
+     */
+    int deleteByDevice(@Param("deviceId") Integer deviceId);
+
+    /**
+     * 获取设备日期范围内的台账（主键范围查询）
+     *
+     * @param deviceId 设备ID
+     * @param fromDay  开始日期（含）
+     * @param toDay    结束日期（含）
+     * @return 台账，按日期升序
+     */
+    List<DeviceEnergyDaily> selectRange(@Param("deviceId") Integer deviceId, @Param("fromDay") String fromDay, @Param("toDay") String toDay);
+}
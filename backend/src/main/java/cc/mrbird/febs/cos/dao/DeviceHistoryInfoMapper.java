@@ -1,10 +1,12 @@
 package cc.mrbird.febs.cos.dao;
 
+import cc.mrbird.febs.common.domain.SeekRequest;
 import cc.mrbird.febs.cos.entity.DeviceHistoryInfo;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
 
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -26,11 +28,92 @@ public interface DeviceHistoryInfoMapper extends BaseMapper<DeviceHistoryInfo> {
     IPage<LinkedHashMap<String, Object>> selectHistoryPage(Page<DeviceHistoryInfo> page, @Param("deviceHistoryInfo") DeviceHistoryInfo deviceHistoryInfo);
 
     /**
-     * 根据设备ID获取统计信息
+     * 游标分页获取设备上报历史数据信息
      *
-     * @param deviceId 设备ID
-     * @param date     统计日期
+     * @param deviceHistoryInfo 设备上报历史数据信息
+     * @param seek              游标
+     * @return 结果（多查一条）
+     */
+    List<LinkedHashMap<String, Object>> selectHistorySeek(@Param("deviceHistoryInfo") DeviceHistoryInfo deviceHistoryInfo, @Param("seek") SeekRequest seek);
+
+    /**
+     * 统计设备上报历史数据数量
+     *
+     * @param deviceHistoryInfo 设备上报历史数据信息
+     * @param limit             最多统计条数，为空时精确统计
      * @return 结果
      */
-    List<DeviceHistoryInfo> selectRateByDeviceId(@Param("deviceId") Integer deviceId, @Param("date") String date);
+    Long selectHistorySeekCount(@Param("deviceHistoryInfo") DeviceHistoryInfo deviceHistoryInfo, @Param("limit") Integer limit);
+
+    /**
+     * 批量新增上报数据（多行插入）
+     *
+     * @param historyList 上报数据
+     * @return 新增条数
+     */
+    int insertBatch(@Param("historyList") List<DeviceHistoryInfo> historyList);
+
+    /**
+     * 获取最大主键
+     *
+     * @return 最大主键，无数据时为 null
+     */
+    Long selectMaxId();
+
+    /**
+     * 按主键区间回填数值列
+     *
+     * @param fromId 起始主键（不含）
+     * @param toId   结束主键（含）
+     * @return 更新条数
+     */
+    int backfillValueNum(@Param("fromId") long fromId, @Param("toId") long toId);
+
+    /**
+     * 获取最小主键
+     *
+     * @return 最小主键，无数据时为 null
+     */
+    Long selectMinId();
+
+    /**
+     * 获取主键区间内最晚的上报时间
+     *
+     * @param fromId 起始主键（不含）
+     * @param toId   结束主键（含）
+     * @return 上报时间，区间内无数据时为 null
+     */
+    String selectMaxCreateDate(@Param("fromId") long fromId, @Param("toId") long toId);
+
+    /**
+     * 按主键区间删除超过设备类型保留天数的上报数据
+     *
+     * @param fromId      起始主键（不含）
+     * @param toId        结束主键（含）
+     * @param defaultDays 设备或类型已删除时的保留天数
+     * @return 删除条数
+     */
+    int purgeExpired(@Param("fromId") long fromId, @Param("toId") long toId, @Param("defaultDays") int defaultDays);
+
+    /**
+     * 流式读取设备上报数据，逐行交给 handler 处理，不在内存中保留结果集
+     *
+     * @param deviceIds 设备ID，为空时不限设备
+     * @param from      开始时间（含）
+     * @param to        结束时间（不含）
+     * @param handler   行处理
+     */
+    void streamHistory(@Param("deviceIds") List<Integer> deviceIds, @Param("from") String from, @Param("to") String to,
+                       ResultHandler<DeviceHistoryInfo> handler);
+
+    /**
+     * 按时间顺序流式读取单个设备的数值
+     *
+     * @param deviceId 设备ID
+     * @param from     开始时间（含）
+     * @param to       结束时间（不含）
+     * @param handler  行处理，结果只包含 createDate、valueNum
+     */
+    void streamDeviceValue(@Param("deviceId") Integer deviceId, @Param("from") String from, @Param("to") String to,
+                           ResultHandler<DeviceHistoryInfo> handler);
 }
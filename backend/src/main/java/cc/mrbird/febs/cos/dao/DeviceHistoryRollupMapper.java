@@ -0,0 +1,86 @@
+package cc.mrbird.febs.cos.dao;
+
+import cc.mrbird.febs.cos.entity.DeviceHistoryRollup;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * 设备上报数据汇总 mapper层
+ *
+ * @author FanK
+ */
+public interface DeviceHistoryRollupMapper {
+
+    /**
+     * 批量累加汇总
+     *
+     * @param table      汇总表
+     * @param rollupList 汇总数据
+     * @return 影响条数
+     */
+    int upsertBatch(@Param("table") String table, @Param("rollupList") Collection<DeviceHistoryRollup> rollupList);
+
+    /**
+     * 查询设备汇总数据
+     *
+     * @param table    汇总表
+     * @param deviceId 设备ID
+     * @param from     开始时间（含）
+     * @param to       结束时间（不含）
+     * @return 结果
+     */
+    List<DeviceHistoryRollup> selectRollup(@Param("table") String table, @Param("deviceId") Integer deviceId,
+                                           @Param("from") String from, @Param("to") String to);
+
+    /**
+     * 按主键区间将历史数据累加到汇总表
+     *
+     * @param table  汇总表
+     * @param format 统计时间格式
+     * @param fromId 起始主键（不含）
+     * @param toId   结束主键（含）
+     * @return 影响条数
+     */
+    int backfill(@Param("table") String table, @Param("format") String format,
+                 @Param("fromId") long fromId, @Param("toId") long toId);
+
+    /**
+     * 获取回填进度
+     *
+     * @param name 任务名称
+     * @return last_id、upper_id，未初始化时为 null
+     */
+    LinkedHashMap<String, Object> selectProgress(@Param("name") String name);
+
+    /**
+     * 更新回填进度
+     *
+     * @param name   任务名称
+     * @param lastId 已处理到的ID
+     * @return 影响条数
+     */
+    int updateProgress(@Param("name") String name, @Param("lastId") long lastId);
+
+    /**
+     * 获取汇总表中的设备ID
+     *
+     * @param table 汇总表
+     * @return 设备ID
+     */
+    List<Integer> selectDeviceIds(@Param("table") String table);
+
+    /**
+     * 删除设备过期汇总，每次最多删除 limit 条
+     *
+     * @param table    汇总表
+     * @param deviceId 设备ID
+     * @param before   统计时间早于此时间的数据被删除
+     * @param limit    本次最多删除条数
+     * @return 删除条数
+     */
+    int purgeBefore(@Param("table") String table, @Param("deviceId") Integer deviceId,
+                    @Param("before") String before, @Param("limit") int limit);
+}
@@ -6,7 +6,9 @@ import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import org.apache.ibatis.annotations.Param;
 
+import java.util.Collection;
 import java.util.LinkedHashMap;
+import java.util.List;
 
 /**
  * 设备管理 mapper层
@@ -23,4 +25,22 @@ public interface DeviceInfoMapper extends BaseMapper<DeviceInfo> {
      * @return 结果
      */
     IPage<LinkedHashMap<String, Object>> selectDevicePage(Page<DeviceInfo> page, @Param("deviceInfo") DeviceInfo deviceInfo);
+
+    /**
+     * 根据用户编号获取用户的设备
+     *
+     * @param userId 用户编号
+     * @return 结果
+     */
+    List<DeviceInfo> selectByUserCode(@Param("userId") Integer userId);
+
+    /**
+     * 批量更新设备当前值
+     *
+     * 仅当上报时间不早于库中已有值时覆盖，多节点回写乱序时保留较新的值
+     *
+     * @param deviceList 设备ID、当前值及上报时间
+     * @return 更新条数
+     */
+    int updateDeviceValueBatch(@Param("deviceList") Collection<DeviceInfo> deviceList);
 }
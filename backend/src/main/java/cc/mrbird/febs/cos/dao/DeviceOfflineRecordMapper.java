@@ -1,5 +1,6 @@
 package cc.mrbird.febs.cos.dao;
 
+import cc.mrbird.febs.common.domain.SeekRequest;
 import cc.mrbird.febs.cos.entity.DeviceOfflineRecord;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
@@ -7,6 +8,7 @@ import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import org.apache.ibatis.annotations.Param;
 
 import java.util.LinkedHashMap;
+import java.util.List;
 
 /**
  * 设备上下线记录 mapper层
@@ -23,4 +25,22 @@ public interface DeviceOfflineRecordMapper extends BaseMapper<DeviceOfflineRecor
      * @return 结果
      */
     IPage<LinkedHashMap<String, Object>> selectOfflineRecordPage(Page<DeviceOfflineRecord> page, @Param("deviceOfflineRecord") DeviceOfflineRecord deviceOfflineRecord);
+
+    /**
+     * 游标分页获取设备上下线记录信息
+     *
+     * @param deviceOfflineRecord 设备上下线记录信息
+     * @param seek                游标
+     * @return 结果（多查一条）
+     */
+    List<LinkedHashMap<String, Object>> selectOfflineRecordSeek(@Param("deviceOfflineRecord") DeviceOfflineRecord deviceOfflineRecord, @Param("seek") SeekRequest seek);
+
+    /**
+     * 统计设备上下线记录数量
+     *
+     * @param deviceOfflineRecord 设备上下线记录信息
+     * @param limit               最多统计条数，为空时精确统计
+     * @return 结果
+     */
+    Long selectOfflineRecordSeekCount(@Param("deviceOfflineRecord") DeviceOfflineRecord deviceOfflineRecord, @Param("limit") Integer limit);
 }
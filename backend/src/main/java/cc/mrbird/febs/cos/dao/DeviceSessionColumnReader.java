@@ -0,0 +1,76 @@
+package cc.mrbird.febs.cos.dao;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.util.Collection;
+
+/**
+ * 设备运行时段统计列读取
+ * 直接以原始类型读取结果集并逐行回调，不为每行创建 Map 或实体，不在内存中保留结果集
+ *
+ * @author FanK
+ */
+@Repository
+public class DeviceSessionColumnReader {
+
+    /**
+     * 上线时间按墙上时间换算为毫秒，不做时区换算
+     */
+    private static final String SELECT_COLUMNS = "select device_id, TIMESTAMPDIFF(SECOND, '1970-01-01 00:00:00', start_date) * 1000, duration, energy from device_session";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public DeviceSessionColumnReader(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        // MySQL 驱动逐行流式读取
+        this.jdbcTemplate.setFetchSize(Integer.MIN_VALUE);
+    }
+
+    /**
+     * 逐行读取运行时段
+     *
+     * @param deviceIds 设备ID，为 null 时读取全部设备
+     * @param handler   行回调
+     */
+    public void read(Collection<Integer> deviceIds, RowHandler handler) {
+        String sql = SELECT_COLUMNS;
+        Object[] args = new Object[0];
+        if (deviceIds != null) {
+            if (deviceIds.isEmpty()) {
+                return;
+            }
+            StringBuilder builder = new StringBuilder(SELECT_COLUMNS).append(" where device_id in (");
+            for (int i = 0; i < deviceIds.size(); i++) {
+                builder.append(i == 0 ? "?" : ",?");
+            }
+            sql = builder.append(')').toString();
+            args = deviceIds.toArray();
+        }
+        jdbcTemplate.query(sql, args, rs -> {
+            int deviceId = rs.getInt(1);
+            long startLocal = rs.getLong(2);
+            long duration = rs.getLong(3);
+            if (rs.wasNull()) {
+                duration = -1;
+            }
+            handler.accept(deviceId, startLocal, duration, rs.getDouble(4));
+        });
+    }
+
+    /**
+     * 行回调
+     */
+    @FunctionalInterface
+    public interface RowHandler {
+
+        /**
+         * @param deviceId    设备ID
+         * @param startLocal  上线墙上时间毫秒
+         * @param durationSec 运行时长（秒），运行中为 -1
+         * @param energyKwh   耗电量，运行中为 0
+         */
+        void accept(int deviceId, long startLocal, long durationSec, double energyKwh);
+    }
+}
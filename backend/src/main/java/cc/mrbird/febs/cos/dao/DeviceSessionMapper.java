@@ -0,0 +1,34 @@
+package cc.mrbird.febs.cos.dao;
+
+import cc.mrbird.febs.cos.entity.DeviceInfo;
+import cc.mrbird.febs.cos.entity.DeviceSession;
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * 设备运行时段 mapper层
+ *
+ * @author FanK
+ */
+public interface DeviceSessionMapper extends BaseMapper<DeviceSession> {
+
+    /**
+     * 锁定设备并获取所属用户、功率，同一设备的时段变更依次执行
+     *
+     * @param deviceId 设备ID
+     * @return 设备（id、user_id、power），设备不存在时为 null
+     */
+    DeviceInfo lockDevice(@Param("deviceId") Integer deviceId);
+
+    /**
+     * 获取有上下线记录的设备ID
+     *
+     * @param fromId 起始设备ID（不含）
+     * @param toId   结束设备ID（含）
+     * @param limit  数量
+     * @return 设备ID，升序
+     */
+    List<Integer> selectRecordDeviceIds(@Param("fromId") long fromId, @Param("toId") long toId, @Param("limit") int limit);
+}
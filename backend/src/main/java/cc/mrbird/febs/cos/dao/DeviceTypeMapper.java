@@ -58,4 +58,45 @@ public interface DeviceTypeMapper extends BaseMapper<DeviceType> {
      * @return 结果
      */
     List<LinkedHashMap<String, Object>> selectAlertNumWithinDays(@Param("userId") Integer userId);
+
+    /**
+     * 时间范围内数据上报数量（天汇总）
+     *
+     * @param from 开始日期（含），为空时不限
+     * @param to   结束日期（不含），为空时不限
+     * @return 结果
+     */
+    Long selectDataCount(@Param("from") String from, @Param("to") String to);
+
+    /**
+     * 按天统计数据上报数量（天汇总）
+     *
+     * @param from 开始日期（含）
+     * @return days（yyyy-MM-dd）、count
+     */
+    List<LinkedHashMap<String, Object>> selectDataNumByDay(@Param("from") String from);
+
+    /**
+     * 时间范围内报警数量
+     *
+     * @param from 开始时间（含），为空时不限
+     * @param to   结束时间（不含），为空时不限
+     * @return 结果
+     */
+    Long selectAlertCount(@Param("from") String from, @Param("to") String to);
+
+    /**
+     * 按天统计报警数量
+     *
+     * @param from 开始时间（含）
+     * @return days（yyyy-MM-dd）、count
+     */
+    List<LinkedHashMap<String, Object>> selectAlertNumByDay(@Param("from") String from);
+
+    /**
+     * 获取每台设备所属类型的数据保留天数
+     *
+     * @return device_id、raw_retention_days、hour_retention_days、day_retention_days
+     */
+    List<LinkedHashMap<String, Object>> selectRetentionPolicy();
 }
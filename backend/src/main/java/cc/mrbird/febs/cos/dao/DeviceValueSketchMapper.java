@@ -0,0 +1,41 @@
+package cc.mrbird.febs.cos.dao;
+
+import cc.mrbird.febs.cos.entity.DeviceValueSketchInfo;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 设备值小时分位数草图 mapper层
+ *
+ * @author FanK
+ */
+public interface DeviceValueSketchMapper {
+
+    /**
+     * 锁定并获取已有草图
+     *
+     * @param keyList 设备ID、统计时间
+     * @return 结果
+     */
+    List<DeviceValueSketchInfo> selectForUpdate(@Param("keyList") Collection<DeviceValueSketchInfo> keyList);
+
+    /**
+     * 批量写入草图，已存在时覆盖
+     *
+     * @param sketchList 草图
+     * @return 影响条数
+     */
+    int upsertBatch(@Param("sketchList") Collection<DeviceValueSketchInfo> sketchList);
+
+    /**
+     * 查询设备草图
+     *
+     * @param deviceIds 设备ID，为空时不限设备
+     * @param from      开始时间（含）
+     * @param to        结束时间（不含）
+     * @return 结果
+     */
+    List<DeviceValueSketchInfo> selectSketch(@Param("deviceIds") List<Integer> deviceIds, @Param("from") String from, @Param("to") String to);
+}
@@ -0,0 +1,48 @@
+package cc.mrbird.febs.cos.dao;
+
+import cc.mrbird.febs.cos.entity.ElectricityDeviceReport;
+import cc.mrbird.febs.cos.entity.ElectricityReport;
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * 用电分析报告 mapper层
+ *
+ * @author FanK
+ */
+public interface ElectricityReportMapper extends BaseMapper<ElectricityReport> {
+
+    /**
+     * 批量写入用户报告，已存在时覆盖
+     *
+     * @param reportList 用户报告
+     * @return 影响行数
+     */
+    int upsertBatch(@Param("reportList") List<ElectricityReport> reportList);
+
+    /**
+     * 批量写入设备统计，已存在时覆盖
+     *
+     * @param reportList 设备统计
+     * @return 影响行数
+     */
+    int upsertDeviceBatch(@Param("reportList") List<ElectricityDeviceReport> reportList);
+
+    /**
+     * 删除早于指定批次的用户报告（用户已无设备）
+     *
+     * @param batchDate 批次开始时间
+     * @return 删除条数
+     */
+    int deleteBefore(@Param("batchDate") String batchDate);
+
+    /**
+     * 删除早于指定批次的设备统计（设备已删除）
+     *
+     * @param batchDate 批次开始时间
+     * @return 删除条数
+     */
+    int deleteDeviceBefore(@Param("batchDate") String batchDate);
+}
@@ -1,5 +1,6 @@
 package cc.mrbird.febs.cos.dao;
 
+import cc.mrbird.febs.common.domain.SeekRequest;
 import cc.mrbird.febs.cos.entity.OperateRecordInfo;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
@@ -7,6 +8,7 @@ import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import org.apache.ibatis.annotations.Param;
 
 import java.util.LinkedHashMap;
+import java.util.List;
 
 /**
  * 操作记录 mapper层
@@ -23,4 +25,22 @@ public interface OperateRecordInfoMapper extends BaseMapper<OperateRecordInfo> {
      * @return 结果
      */
     IPage<LinkedHashMap<String, Object>> selectOperateRecordPage(Page<OperateRecordInfo> page, @Param("operateRecordInfo") OperateRecordInfo operateRecordInfo);
+
+    /**
+     * 游标分页获取操作记录信息
+     *
+     * @param operateRecordInfo 操作记录信息
+     * @param seek              游标
+     * @return 结果（多查一条）
+     */
+    List<LinkedHashMap<String, Object>> selectOperateRecordSeek(@Param("operateRecordInfo") OperateRecordInfo operateRecordInfo, @Param("seek") SeekRequest seek);
+
+    /**
+     * 统计操作记录数量
+     *
+     * @param operateRecordInfo 操作记录信息
+     * @param limit             最多统计条数，为空时精确统计
+     * @return 结果
+     */
+    Long selectOperateRecordSeekCount(@Param("operateRecordInfo") OperateRecordInfo operateRecordInfo, @Param("limit") Integer limit);
 }
@@ -0,0 +1,37 @@
+package cc.mrbird.febs.cos.dao;
+
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * 按月分区维护 mapper层
+ *
+ * @author FanK
+ */
+public interface TelemetryPartitionMapper {
+
+    /**
+     * 获取表的分区名称，按分区顺序排列
+     *
+     * @param table 表名
+     * @return 分区名称，未分区时为空
+     */
+    List<String> selectPartitions(@Param("table") String table);
+
+    /**
+     * 将空的 p_future 拆分为若干月分区和新的 p_future
+     *
+     * @param table  表名
+     * @param months 月分区，每项为 分区名、上界（下月1日）
+     */
+    void splitFuture(@Param("table") String table, @Param("months") List<String[]> months);
+
+    /**
+     * 删除分区及其中全部数据
+     *
+     * @param table     表名
+     * @param partition 分区名
+     */
+    void dropPartition(@Param("table") String table, @Param("partition") String partition);
+}
@@ -0,0 +1,78 @@
+package cc.mrbird.febs.cos.entity;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 设备每日耗电台账
+ *
+ * @author FanK
+ */
+@Data
+@Accessors(chain = true)
+public class DeviceEnergyDaily implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 设备ID
+     */
+    private Integer deviceId;
+
+    /**
+     * 日期
+     */
+    private String day;
+
+    /**
+     * 耗电量（千瓦时）
+     */
+    private Double energy;
+
+    /**
+     * 运行时长（秒）
+     */
+    private Long runSeconds;
+
+    /**
+     * 当天上线的运行时段数量
+     */
+    private Integer sessionCount;
+
+    /**
+     * 将一个运行时段按天拆分，耗电量按各天的运行时长分摊，时段数量计入上线当天
+     *
+     * @param deviceId 设备ID
+     * @param start    上线时间（毫秒）
+     * @param end      下线时间（毫秒），运行中的时段为当前时间
+     * @param energy   耗电量（千瓦时）
+     * @return 每天的台账增量，按日期升序
+     */
+    public static List<DeviceEnergyDaily> split(Integer deviceId, long start, long end, double energy) {
+        ZoneId zone = ZoneId.systemDefault();
+        long total = Math.max(0, end - start);
+        List<DeviceEnergyDaily> dailyList = new ArrayList<>();
+        LocalDate day = Instant.ofEpochMilli(start).atZone(zone).toLocalDate();
+        long cursor = start;
+        do {
+            long dayEnd = Math.min(day.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli(), start + total);
+            double share = total == 0 ? 1 : (double) (dayEnd - cursor) / total;
+            dailyList.add(new DeviceEnergyDaily()
+                    .setDeviceId(deviceId)
+                    .setDay(day.toString())
+                    .setEnergy(energy * share)
+                    .setRunSeconds((dayEnd - cursor) / 1000)
+                    .setSessionCount(dailyList.isEmpty() ? 1 : 0));
+            cursor = dayEnd;
+            day = day.plusDays(1);
+        } while (cursor < start + total);
+        return dailyList;
+    }
+}
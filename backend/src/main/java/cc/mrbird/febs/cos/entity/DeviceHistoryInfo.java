@@ -38,6 +38,11 @@ public class DeviceHistoryInfo implements Serializable {
      */
     private String deviceValue;
 
+    /**
+     * 设备值（数值），告警比较与统计使用
+     */
+    private Double valueNum;
+
 
     /**
      * 预警值
@@ -49,12 +54,6 @@ public class DeviceHistoryInfo implements Serializable {
      */
     private String createDate;
 
-    /**
-     * 设备值
-     */
-    @TableField(exist = false)
-    private Double deviceValue1;
-
     @TableField(exist = false)
     private String deviceName;
 
@@ -81,4 +80,16 @@ public class DeviceHistoryInfo implements Serializable {
 
     @TableField(exist = false)
     private Integer eventId;
+
+    /**
+     * 时间范围，开始（含）
+     */
+    @TableField(exist = false)
+    private String startDate;
+
+    /**
+     * 时间范围，结束（不含）
+     */
+    @TableField(exist = false)
+    private String endDate;
 }
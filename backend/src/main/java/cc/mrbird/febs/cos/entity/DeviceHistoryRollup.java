@@ -0,0 +1,154 @@
+package cc.mrbird.febs.cos.entity;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.io.Serializable;
+
+/**
+ * 设备上报数据汇总（分钟/小时/天）
+ *
+ * @author FanK
+ */
+@Data
+@Accessors(chain = true)
+public class DeviceHistoryRollup implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 设备ID
+     */
+    private Integer deviceId;
+
+    /**
+     * 统计时间
+     */
+    private String bucket;
+
+    /**
+     * 上报次数
+     */
+    private Integer cnt;
+
+    /**
+     * 设备值合计
+     */
+    private Double sumValue;
+
+    /**
+     * 最小值
+     */
+    private Double minValue;
+
+    /**
+     * 最大值
+     */
+    private Double maxValue;
+
+    /**
+     * 平均值
+     */
+    public Double getAvgValue() {
+        return cnt == null || cnt == 0 ? null : sumValue / cnt;
+    }
+
+    /**
+     * 合并一条上报值
+     *
+     * @param value 设备值
+     */
+    public void add(double value) {
+        cnt = cnt == null ? 1 : cnt + 1;
+        sumValue = sumValue == null ? value : sumValue + value;
+        minValue = minValue == null ? value : Math.min(minValue, value);
+        maxValue = maxValue == null ? value : Math.max(maxValue, value);
+    }
+
+    /**
+     * 汇总级别
+     */
+    public enum Level {
+
+        /**
+         * 分钟
+         */
+        MINUTE("device_history_minute", 16, ":00", "%Y-%m-%d %H:%i:00"),
+
+        /**
+         * 小时
+         */
+        HOUR("device_history_hour", 13, ":00:00", "%Y-%m-%d %H:00:00"),
+
+        /**
+         * 天
+         */
+        DAY("device_history_day", 10, " 00:00:00", "%Y-%m-%d 00:00:00");
+
+        private final String table;
+
+        private final int prefixLength;
+
+        private final String suffix;
+
+        private final String sqlFormat;
+
+        Level(String table, int prefixLength, String suffix, String sqlFormat) {
+            this.table = table;
+            this.prefixLength = prefixLength;
+            this.suffix = suffix;
+            this.sqlFormat = sqlFormat;
+        }
+
+        public String getTable() {
+            return table;
+        }
+
+        /**
+         * 统计时间的 DATE_FORMAT 格式
+         */
+        public String getSqlFormat() {
+            return sqlFormat;
+        }
+
+        /**
+         * 上报时间（yyyy-MM-dd HH:mm:ss）所在的统计时间
+         *
+         * @param createDate 上报时间
+         * @return 统计时间
+         */
+        public String bucketOf(String createDate) {
+            return createDate.substring(0, prefixLength) + suffix;
+        }
+
+        /**
+         * 按图表每个点覆盖的时长选择汇总级别，不足一分钟时返回 null，使用原始数据
+         *
+         * @param millis 每个点覆盖的时长（毫秒）
+         * @return 汇总级别
+         */
+        public static Level forBucket(long millis) {
+            if (millis >= 86400000L) {
+                return DAY;
+            }
+            if (millis >= 3600000L) {
+                return HOUR;
+            }
+            return millis >= 60000L ? MINUTE : null;
+        }
+
+        /**
+         * 按查询跨度选择汇总级别，保证返回点数适合图表展示
+         *
+         * @param millis 查询跨度（毫秒）
+         * @return 汇总级别
+         */
+        public static Level forSpan(long millis) {
+            long hours = millis / 3600000L;
+            if (hours <= 6) {
+                return MINUTE;
+            }
+            return hours <= 24 * 7 ? HOUR : DAY;
+        }
+    }
+}
@@ -98,6 +98,11 @@ public class DeviceInfo implements Serializable {
      */
     private Integer power;
 
+    /**
+     * 当前值上报时间
+     */
+    private String valueDate;
+
     @TableField(exist = false)
     private String deviceName;
 
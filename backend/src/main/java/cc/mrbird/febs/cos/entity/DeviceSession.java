@@ -0,0 +1,67 @@
+package cc.mrbird.febs.cos.entity;
+
+import cn.hutool.core.date.DateUtil;
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.experimental.Accessors;
+
+import java.io.Serializable;
+
+/**
+ * 设备运行时段
+ *
+ * @author FanK
+ */
+@Data
+@EqualsAndHashCode(callSuper = false)
+@Accessors(chain = true)
+public class DeviceSession implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 主键ID
+     */
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 设备ID
+     */
+    private Integer deviceId;
+
+    /**
+     * 上线时间
+     */
+    private String startDate;
+
+    /**
+     * 下线时间，运行中为空
+     */
+    private String endDate;
+
+    /**
+     * 运行时长（秒）
+     */
+    private Long duration;
+
+    /**
+     * 耗电量（千瓦时）
+     */
+    private Double energy;
+
+    /**
+     * 运行时长（小时），运行中的时段计算到指定时间
+     *
+     * @param now 当前时间（毫秒）
+     * @return 小时
+     */
+    public double runHours(long now) {
+        if (duration != null) {
+            return duration / 3600.0;
+        }
+        return Math.max(0, now - DateUtil.parseDateTime(startDate).getTime()) / 3600000.0;
+    }
+}
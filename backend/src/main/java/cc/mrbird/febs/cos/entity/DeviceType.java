@@ -52,5 +52,19 @@ public class DeviceType implements Serializable {
      */
     private String images;
 
+    /**
+     * 原始数据保留天数，0 为永久保留
+     */
+    private Integer rawRetentionDays;
+
+    /**
+     * 小时汇总保留天数，0 为永久保留
+     */
+    private Integer hourRetentionDays;
+
+    /**
+     * 天汇总保留天数，0 为永久保留
+     */
+    private Integer dayRetentionDays;
 
 }
@@ -0,0 +1,43 @@
+package cc.mrbird.febs.cos.entity;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.io.Serializable;
+
+/**
+ * 设备值小时分位数草图
+ *
+ * @author FanK
+ */
+@Data
+@Accessors(chain = true)
+public class DeviceValueSketchInfo implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 设备ID
+     */
+    private Integer deviceId;
+
+    /**
+     * 统计时间（小时）
+     */
+    private String bucket;
+
+    /**
+     * 上报次数
+     */
+    private Long cnt;
+
+    /**
+     * 最大值
+     */
+    private Double maxValue;
+
+    /**
+     * 草图（DeviceValueSketch 序列化）
+     */
+    private byte[] sketch;
+}
@@ -0,0 +1,68 @@
+package cc.mrbird.febs.cos.entity;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.io.Serializable;
+
+/**
+ * 设备用电统计（夜间批量生成）
+ *
+ * @author FanK
+ */
+@Data
+@Accessors(chain = true)
+public class ElectricityDeviceReport implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 设备ID
+     */
+    private Integer deviceId;
+
+    /**
+     * 用户ID（user_info.id）
+     */
+    private Integer userId;
+
+    /**
+     * 已结束的运行时段数量
+     */
+    private Integer sessionCount;
+
+    /**
+     * 总运行时间（小时）
+     */
+    private Double totalRunTime;
+
+    /**
+     * 平均运行时间（小时）
+     */
+    private Double avgRunTime;
+
+    /**
+     * 最长运行时间（小时）
+     */
+    private Double maxRunTime;
+
+    /**
+     * 最短运行时间（小时）
+     */
+    private Double minRunTime;
+
+    /**
+     * 运行时间标准差（小时）
+     */
+    private Double stdDev;
+
+    /**
+     * 总耗电量（千瓦时）
+     */
+    private Double totalConsumption;
+
+    /**
+     * 批次开始时间
+     */
+    private String batchDate;
+}
@@ -0,0 +1,56 @@
+package cc.mrbird.febs.cos.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.io.Serializable;
+
+/**
+ * 用户用电分析报告（夜间批量生成）
+ *
+ * @author FanK
+ */
+@Data
+@Accessors(chain = true)
+public class ElectricityReport implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 用户ID（user_info.id）
+     */
+    @TableId(type = IdType.INPUT)
+    private Integer userId;
+
+    /**
+     * 设备数量
+     */
+    private Integer deviceCount;
+
+    /**
+     * 运行时段数量
+     */
+    private Integer sessionCount;
+
+    /**
+     * 总耗电量（千瓦时）
+     */
+    private Double totalConsumption;
+
+    /**
+     * 用电分析报告（JSON）
+     */
+    private String report;
+
+    /**
+     * 批次开始时间，报告统计截至此时的数据
+     */
+    private String batchDate;
+
+    /**
+     * 生成时间
+     */
+    private String createDate;
+}
@@ -64,4 +64,16 @@ public class OperateRecordInfo implements Serializable {
 
     @TableField(exist = false)
     private String userId;
+
+    /**
+     * 时间范围，开始（含）
+     */
+    @TableField(exist = false)
+    private String startDate;
+
+    /**
+     * 时间范围，结束（不含）
+     */
+    @TableField(exist = false)
+    private String endDate;
 }
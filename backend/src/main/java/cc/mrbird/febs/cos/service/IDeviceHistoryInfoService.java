@@ -1,11 +1,14 @@
 package cc.mrbird.febs.cos.service;
 
+import cc.mrbird.febs.common.domain.SeekRequest;
 import cc.mrbird.febs.cos.entity.DeviceHistoryInfo;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.IService;
 import org.apache.ibatis.annotations.Param;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.LinkedHashMap;
 import java.util.List;
 
@@ -25,6 +28,15 @@ public interface IDeviceHistoryInfoService extends IService<DeviceHistoryInfo> {
      */
     IPage<LinkedHashMap<String, Object>> selectHistoryPage(Page<DeviceHistoryInfo> page, DeviceHistoryInfo deviceHistoryInfo);
 
+    /**
+     * 游标分页获取设备上报历史数据信息
+     *
+     * @param seek              游标及总数统计方式
+     * @param deviceHistoryInfo 设备上报历史数据信息
+     * @return 记录、是否还有下一页、下一页游标，按需返回总数
+     */
+    LinkedHashMap<String, Object> selectHistorySeek(SeekRequest seek, DeviceHistoryInfo deviceHistoryInfo);
+
     /**
      * 根据设备ID获取统计信息
      *
@@ -33,4 +45,45 @@ public interface IDeviceHistoryInfoService extends IService<DeviceHistoryInfo> {
      * @return 结果
      */
     List<LinkedHashMap<String, Object>> selectRateByDeviceId(Integer deviceId, String date);
+
+    /**
+     * 获取设备历史数据，指定时间范围且在最近数据缓存内时直接从缓存读取
+     *
+     * @param deviceId 设备ID
+     * @param from     开始时间，为空时返回全部
+     * @param to       结束时间，默认当前时间
+     * @return 结果
+     */
+    List<DeviceHistoryInfo> selectHistoryByDevice(Integer deviceId, String from, String to);
+
+    /**
+     * 获取设备图表数据，按目标点数在服务端降采样
+     *
+     * @param deviceId 设备ID
+     * @param from     开始时间，默认结束时间前一天
+     * @param to       结束时间，默认当前时间
+     * @param points   目标点数
+     * @param mode     降采样方式 lttb/minmax
+     * @return 数据来源、降采样方式、原始点数、[时间, 设备值] 列表
+     */
+    LinkedHashMap<String, Object> selectHistoryChart(Integer deviceId, String from, String to, int points, String mode);
+
+    /**
+     * 导出设备上报数据，逐行从数据库读取并写出，内存占用与导出行数无关
+     *
+     * @param deviceIds 设备ID，为空时不限设备
+     * @param from      开始时间（含）
+     * @param to        结束时间（不含）
+     * @param format    导出格式 csv/xlsx
+     * @param out       输出流
+     * @throws IOException 写出失败
+     */
+    void exportHistory(List<Integer> deviceIds, String from, String to, String format, OutputStream out) throws IOException;
+
+    /**
+     * 批量新增上报数据（多行插入）
+     *
+     * @param historyList 上报数据
+     */
+    void insertBatch(List<DeviceHistoryInfo> historyList);
 }
@@ -0,0 +1,40 @@
+package cc.mrbird.febs.cos.service;
+
+import cc.mrbird.febs.cos.entity.DeviceHistoryInfo;
+import cc.mrbird.febs.cos.entity.DeviceHistoryRollup;
+
+import java.util.List;
+
+/**
+ * 设备上报数据汇总 service层
+ *
+ * @author FanK
+ */
+public interface IDeviceHistoryRollupService {
+
+    /**
+     * 将本批上报数据累加到分钟、小时、天汇总
+     *
+     * @param historyList 上报数据
+     */
+    void accumulate(List<DeviceHistoryInfo> historyList);
+
+    /**
+     * 查询设备汇总数据
+     *
+     * @param level    汇总级别
+     * @param deviceId 设备ID
+     * @param from     开始时间（含）
+     * @param to       结束时间（不含）
+     * @return 结果
+     */
+    List<DeviceHistoryRollup> selectRollup(DeviceHistoryRollup.Level level, Integer deviceId, String from, String to);
+
+    /**
+     * 回填一段历史数据的汇总
+     *
+     * @param fromId 起始主键（不含）
+     * @param toId   结束主键（含）
+     */
+    void backfill(long fromId, long toId);
+}
@@ -1,5 +1,6 @@
 package cc.mrbird.febs.cos.service;
 
+import cc.mrbird.febs.cos.cache.DeviceSessionStats;
 import cc.mrbird.febs.cos.entity.DeviceInfo;
 import cc.mrbird.febs.cos.entity.SceneRecommendation;
 import com.baomidou.mybatisplus.core.metadata.IPage;
@@ -26,6 +27,14 @@ public interface IDeviceInfoService extends IService<DeviceInfo> {
      */
     IPage<LinkedHashMap<String, Object>> selectDevicePage(Page<DeviceInfo> page, DeviceInfo deviceInfo);
 
+    /**
+     * 根据用户编号获取用户的设备
+     *
+     * @param userId 用户编号
+     * @return 结果
+     */
+    List<DeviceInfo> selectByUserCode(Integer userId);
+
     /**
      * 查询用户设备用电率
      *
@@ -34,6 +43,15 @@ public interface IDeviceInfoService extends IService<DeviceInfo> {
      */
     LinkedHashMap<String, Object> queryElectricityRateByUser(Integer userId);
 
+    /**
+     * 按运行时段统计生成用户设备用电分析报告，不访问数据库
+     *
+     * @param deviceInfoList 用户的设备
+     * @param sessionStats   运行时段统计，设备下标与设备列表一致
+     * @return 用电分析报告
+     */
+    LinkedHashMap<String, Object> buildElectricityReport(List<DeviceInfo> deviceInfoList, DeviceSessionStats sessionStats);
+
     /**
      * 查询设备电量历史
      *
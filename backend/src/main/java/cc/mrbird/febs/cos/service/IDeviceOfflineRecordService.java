@@ -1,5 +1,6 @@
 package cc.mrbird.febs.cos.service;
 
+import cc.mrbird.febs.common.domain.SeekRequest;
 import cc.mrbird.febs.cos.entity.DeviceOfflineRecord;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
@@ -7,6 +8,7 @@ import com.baomidou.mybatisplus.extension.service.IService;
 import org.apache.ibatis.annotations.Param;
 
 import java.util.LinkedHashMap;
+import java.util.List;
 
 /**
  * 设备上下线记录 service层
@@ -23,4 +25,36 @@ public interface IDeviceOfflineRecordService extends IService<DeviceOfflineRecor
      * @return 结果
      */
     IPage<LinkedHashMap<String, Object>> selectOfflineRecordPage(Page<DeviceOfflineRecord> page, DeviceOfflineRecord deviceOfflineRecord);
+
+    /**
+     * 游标分页获取设备上下线记录信息
+     *
+     * @param seek                游标及总数统计方式
+     * @param deviceOfflineRecord 设备上下线记录信息
+     * @return 记录、是否还有下一页、下一页游标，按需返回总数
+     */
+    LinkedHashMap<String, Object> selectOfflineRecordSeek(SeekRequest seek, DeviceOfflineRecord deviceOfflineRecord);
+
+    /**
+     * 新增上下线记录，同时开启、关闭设备运行时段
+     *
+     * @param recordList 上下线记录，按发生顺序
+     */
+    void saveRecordBatch(List<DeviceOfflineRecord> recordList);
+
+    /**
+     * 修改上下线记录，并重建所属设备的运行时段
+     *
+     * @param deviceOfflineRecord 上下线记录
+     * @return 结果
+     */
+    boolean updateRecord(DeviceOfflineRecord deviceOfflineRecord);
+
+    /**
+     * 删除上下线记录，并重建所属设备的运行时段
+     *
+     * @param ids 主键ID
+     * @return 结果
+     */
+    boolean removeRecords(List<Integer> ids);
 }
@@ -0,0 +1,61 @@
+package cc.mrbird.febs.cos.service;
+
+import cc.mrbird.febs.cos.cache.DeviceSessionColumns;
+import cc.mrbird.febs.cos.entity.DeviceEnergyDaily;
+import cc.mrbird.febs.cos.entity.DeviceOfflineRecord;
+import cc.mrbird.febs.cos.entity.DeviceSession;
+import com.baomidou.mybatisplus.extension.service.IService;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 设备运行时段 service层
+ *
+ * @author FanK
+ */
+public interface IDeviceSessionService extends IService<DeviceSession> {
+
+    /**
+     * 按新写入的上下线记录开启、关闭运行时段，需与记录写入在同一事务中调用
+     *
+     * @param recordList 上下线记录，按发生顺序
+     */
+    void apply(List<DeviceOfflineRecord> recordList);
+
+    /**
+     * 按设备全部上下线记录重建运行时段及每日耗电台账
+     *
+     * @param deviceId 设备ID
+     */
+    void rebuild(Integer deviceId);
+
+    /**
+     * 获取设备每日耗电量，运行中的时段计算到当前时间
+     *
+     * @param deviceId 设备ID
+     * @param power    设备功率（瓦）
+     * @param fromDay  开始日期（含）
+     * @param toDay    结束日期（含）
+     * @return 每日耗电台账，按日期升序
+     */
+    List<DeviceEnergyDaily> selectDailyEnergy(Integer deviceId, double power, String fromDay, String toDay);
+
+    /**
+     * 获取设备运行时段
+     *
+     * @param deviceIds 设备ID
+     * @param from      上线时间开始（含），为空时不限
+     * @param to        上线时间结束（不含），为空时不限
+     * @return 运行时段，按上线时间升序
+     */
+    List<DeviceSession> selectSessions(Collection<Integer> deviceIds, String from, String to);
+
+    /**
+     * 按列读取设备全部运行时段，用于统计
+     *
+     * @param deviceIds 设备ID，时段的设备下标为其在列表中的位置
+     * @return 运行时段列
+     */
+    DeviceSessionColumns selectSessionColumns(List<Integer> deviceIds);
+}
@@ -1,5 +1,6 @@
 package cc.mrbird.febs.cos.service;
 
+import cc.mrbird.febs.cos.entity.DeviceHistoryInfo;
 import cc.mrbird.febs.cos.entity.DeviceType;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
@@ -7,6 +8,7 @@ import com.baomidou.mybatisplus.extension.service.IService;
 import org.apache.ibatis.annotations.Param;
 
 import java.util.LinkedHashMap;
+import java.util.List;
 
 /**
  * 设备类型 service层
@@ -37,4 +39,11 @@ public interface IDeviceTypeService extends IService<DeviceType> {
      * @param message 消息内容
      */
     void setDeviceRecordMqtt(String message);
+
+    /**
+     * 批量处理设备上报数据
+     *
+     * @param historyList 上报数据
+     */
+    void setDeviceRecordBatch(List<DeviceHistoryInfo> historyList);
 }
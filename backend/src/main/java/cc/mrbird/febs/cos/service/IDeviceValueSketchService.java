@@ -0,0 +1,33 @@
+package cc.mrbird.febs.cos.service;
+
+import cc.mrbird.febs.cos.cache.DeviceValueSketch;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 设备值小时分位数草图 service层
+ *
+ * @author FanK
+ */
+public interface IDeviceValueSketchService {
+
+    /**
+     * 将草图增量合并到数据库
+     *
+     * @param sketchMap 设备ID|统计时间 -> 草图增量
+     */
+    void merge(Map<String, DeviceValueSketch> sketchMap);
+
+    /**
+     * 获取设备值分位数，多个设备、多个小时的草图合并后计算
+     *
+     * @param deviceIds 设备ID，为空时不限设备
+     * @param from      开始时间，默认当天
+     * @param to        结束时间，默认开始时间后一天
+     * @param group     分组 hour/day/all
+     * @return 时间、上报次数、p50、p95、p99、最大值
+     */
+    List<LinkedHashMap<String, Object>> selectPercentile(List<Integer> deviceIds, String from, String to, String group);
+}
@@ -0,0 +1,38 @@
+package cc.mrbird.febs.cos.service;
+
+import cc.mrbird.febs.cos.entity.ElectricityReport;
+import com.baomidou.mybatisplus.extension.service.IService;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 用电分析报告 service层
+ *
+ * @author FanK
+ */
+public interface IElectricityReportService extends IService<ElectricityReport> {
+
+    /**
+     * 保存批量生成的用户报告及其中的设备统计
+     *
+     * @param batchDate 批次开始时间
+     * @param reportMap 用户ID（user_info.id） -> 报告
+     */
+    void saveReports(String batchDate, Map<Integer, LinkedHashMap<String, Object>> reportMap);
+
+    /**
+     * 批次全部完成后删除之前批次遗留的报告（用户已无设备、设备已删除）
+     *
+     * @param batchDate 批次开始时间
+     */
+    void removeBefore(String batchDate);
+
+    /**
+     * 获取仍然有效的批量报告：生成时间未超过有效期，且批次开始后用户数据没有变更
+     *
+     * @param userId 用户ID（user_info.id）
+     * @return 报告，没有或已过期时为 null
+     */
+    LinkedHashMap<String, Object> selectFreshReport(Integer userId);
+}
@@ -1,5 +1,6 @@
 package cc.mrbird.febs.cos.service;
 
+import cc.mrbird.febs.common.domain.SeekRequest;
 import cc.mrbird.febs.cos.entity.OperateRecordInfo;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
@@ -23,4 +24,13 @@ public interface IOperateRecordInfoService extends IService<OperateRecordInfo> {
      * @return 结果
      */
     IPage<LinkedHashMap<String, Object>> selectOperateRecordPage(Page<OperateRecordInfo> page, OperateRecordInfo operateRecordInfo);
+
+    /**
+     * 游标分页获取操作记录信息
+     *
+     * @param seek              游标及总数统计方式
+     * @param operateRecordInfo 操作记录信息
+     * @return 记录、是否还有下一页、下一页游标，按需返回总数
+     */
+    LinkedHashMap<String, Object> selectOperateRecordSeek(SeekRequest seek, OperateRecordInfo operateRecordInfo);
 }
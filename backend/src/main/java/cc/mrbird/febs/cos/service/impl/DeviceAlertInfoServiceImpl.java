@@ -1,5 +1,6 @@
 package cc.mrbird.febs.cos.service.impl;
 
+import cc.mrbird.febs.common.domain.SeekRequest;
 import cc.mrbird.febs.cos.entity.DeviceAlertInfo;
 import cc.mrbird.febs.cos.dao.DeviceAlertInfoMapper;
 import cc.mrbird.febs.cos.service.IDeviceAlertInfoService;
@@ -9,6 +10,7 @@ import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import org.springframework.stereotype.Service;
 
 import java.util.LinkedHashMap;
+import java.util.List;
 
 /**
  * 设备报警配置 实现层
@@ -29,4 +31,18 @@ public class DeviceAlertInfoServiceImpl extends ServiceImpl<DeviceAlertInfoMappe
     public IPage<LinkedHashMap<String, Object>> selectDeviceAlertPage(Page<DeviceAlertInfo> page, DeviceAlertInfo deviceAlertInfo) {
         return baseMapper.selectDeviceAlertPage(page, deviceAlertInfo);
     }
+
+    /**
+     * 游标分页获取设备报警配置信息
+     *
+     * @param seek            游标及总数统计方式
+     * @param deviceAlertInfo 设备报警配置信息
+     * @return 记录、是否还有下一页、下一页游标，按需返回总数
+     */
+    @Override
+    public LinkedHashMap<String, Object> selectDeviceAlertSeek(SeekRequest seek, DeviceAlertInfo deviceAlertInfo) {
+        List<LinkedHashMap<String, Object>> records = baseMapper.selectDeviceAlertSeek(deviceAlertInfo, seek);
+        Long total = seek.needCount() ? baseMapper.selectDeviceAlertSeekCount(deviceAlertInfo, seek.getCountLimit()) : null;
+        return seek.toResult(records, "create_date", total);
+    }
 }
@@ -1,20 +1,35 @@
 package cc.mrbird.febs.cos.service.impl;
 
+import cc.mrbird.febs.common.domain.SeekRequest;
+import cc.mrbird.febs.common.mqtt.DeviceReading;
+import cc.mrbird.febs.cos.cache.DeviceAlertRegistry;
+import cc.mrbird.febs.cos.cache.DeviceHistoryCache;
+import cc.mrbird.febs.cos.cache.DeviceProfile;
+import cc.mrbird.febs.cos.cache.DeviceSeriesSampler;
 import cc.mrbird.febs.cos.entity.DeviceHistoryInfo;
 import cc.mrbird.febs.cos.dao.DeviceHistoryInfoMapper;
+import cc.mrbird.febs.cos.entity.DeviceHistoryRollup;
 import cc.mrbird.febs.cos.service.IDeviceHistoryInfoService;
+import cc.mrbird.febs.cos.service.IDeviceHistoryRollupService;
 import cn.hutool.core.collection.CollectionUtil;
 import cn.hutool.core.date.DateUtil;
 import cn.hutool.core.util.NumberUtil;
 import cn.hutool.core.util.StrUtil;
+import com.alibaba.excel.EasyExcel;
+import com.alibaba.excel.ExcelWriter;
+import com.alibaba.excel.write.metadata.WriteSheet;
 import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.io.*;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * 设备上报历史数据 实现层
@@ -22,8 +37,33 @@ import java.util.stream.Collectors;
  * @author FanK
  */
 @Service
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
 public class DeviceHistoryInfoServiceImpl extends ServiceImpl<DeviceHistoryInfoMapper, DeviceHistoryInfo> implements IDeviceHistoryInfoService {
 
+    /**
+     * 导出格式
+     */
+    private static final String EXPORT_XLSX = "xlsx";
+
+    private static final String[] EXPORT_HEAD = {"ID", "设备ID", "设备名称", "设备类型", "设备值", "数值", "报警值", "上报时间"};
+
+    private static final int EXPORT_BUFFER_SIZE = 1000;
+
+    /**
+     * 每个工作表最多写入行数（xlsx 上限 1048576 行，含表头）
+     */
+    private static final int EXPORT_SHEET_ROWS = 1000000;
+
+    private static final int CHART_MIN_POINTS = 10;
+
+    private static final int CHART_MAX_POINTS = 5000;
+
+    private final IDeviceHistoryRollupService deviceHistoryRollupService;
+
+    private final DeviceHistoryCache deviceHistoryCache;
+
+    private final DeviceAlertRegistry deviceAlertRegistry;
+
     /**
      * 分页获取设备上报历史数据信息
      *
@@ -36,6 +76,20 @@ public class DeviceHistoryInfoServiceImpl extends ServiceImpl<DeviceHistoryInfoM
         return baseMapper.selectHistoryPage(page, deviceHistoryInfo);
     }
 
+    /**
+     * 游标分页获取设备上报历史数据信息
+     *
+     * @param seek              游标及总数统计方式
+     * @param deviceHistoryInfo 设备上报历史数据信息
+     * @return 记录、是否还有下一页、下一页游标，按需返回总数
+     */
+    @Override
+    public LinkedHashMap<String, Object> selectHistorySeek(SeekRequest seek, DeviceHistoryInfo deviceHistoryInfo) {
+        List<LinkedHashMap<String, Object>> records = baseMapper.selectHistorySeek(deviceHistoryInfo, seek);
+        Long total = seek.needCount() ? baseMapper.selectHistorySeekCount(deviceHistoryInfo, seek.getCountLimit()) : null;
+        return seek.toResult(records, "create_date", total);
+    }
+
     /**
      * 根据设备ID获取统计信息
      *
@@ -48,26 +102,220 @@ public class DeviceHistoryInfoServiceImpl extends ServiceImpl<DeviceHistoryInfoM
         if (StrUtil.isEmpty(date)) {
             date = DateUtil.formatDate(new Date());
         }
-        List<DeviceHistoryInfo> historyList = baseMapper.selectRateByDeviceId(deviceId, date);
-        Map<Integer, List<DeviceHistoryInfo>> historyMap = historyList.stream().collect(Collectors.groupingBy(DeviceHistoryInfo::getHour));
+        // 每小时平均值，读取小时汇总
+        String from = date + " 00:00:00";
+        String to = DateUtil.formatDate(DateUtil.offsetDay(DateUtil.parseDate(date), 1)) + " 00:00:00";
+        double[] hourAverage = new double[24];
+        for (DeviceHistoryRollup rollup : deviceHistoryRollupService.selectRollup(DeviceHistoryRollup.Level.HOUR, deviceId, from, to)) {
+            hourAverage[Integer.parseInt(rollup.getBucket().substring(11, 13))] = rollup.getAvgValue();
+        }
         // 返回数据
         List<LinkedHashMap<String, Object>> resultList = new ArrayList<>();
         for (int i = 0; i < 24 ; i++) {
-            List<DeviceHistoryInfo> itemList = historyMap.get(i);
-            BigDecimal value = BigDecimal.ZERO;
-            if (CollectionUtil.isNotEmpty(itemList)) {
-                value = BigDecimal.valueOf(itemList.stream().mapToDouble(DeviceHistoryInfo::getDeviceValue1).average().orElse(0));
-            }
-            int finalI = i;
-            BigDecimal finalValue = value;
-            LinkedHashMap<String, Object> item = new LinkedHashMap<String, Object>() {
-                {
-                    put("date", finalI + "时");
-                    put("value", NumberUtil.round(finalValue, 0));
-                }
-            };
+            LinkedHashMap<String, Object> item = new LinkedHashMap<>();
+            item.put("date", i + "时");
+            item.put("value", NumberUtil.round(BigDecimal.valueOf(hourAverage[i]), 0));
             resultList.add(item);
         }
         return resultList;
     }
+
+    /**
+     * 获取设备历史数据，指定时间范围且在最近数据缓存内时直接从缓存读取
+     *
+     * @param deviceId 设备ID
+     * @param from     开始时间，为空时返回全部
+     * @param to       结束时间，默认当前时间
+     * @return 结果
+     */
+    @Override
+    public List<DeviceHistoryInfo> selectHistoryByDevice(Integer deviceId, String from, String to) {
+        if (StrUtil.isEmpty(from)) {
+            return this.list(Wrappers.<DeviceHistoryInfo>lambdaQuery().eq(DeviceHistoryInfo::getDeviceId, deviceId));
+        }
+        Date start = DateUtil.parse(from);
+        Date end = StrUtil.isEmpty(to) ? new Date() : DateUtil.parse(to);
+        if (deviceHistoryCache.covers(start.getTime())) {
+            List<DeviceHistoryInfo> historyList = deviceHistoryCache.read(deviceId, start.getTime(), end.getTime());
+            // 缓存不保存报警值，使用当前配置
+            DeviceProfile profile = deviceAlertRegistry.get(deviceId);
+            if (profile != null && profile.isAlertEnabled()) {
+                String alertValue = String.valueOf(profile.getAlertScore());
+                historyList.forEach(item -> item.setAlertValue(alertValue));
+            }
+            return historyList;
+        }
+        return this.list(Wrappers.<DeviceHistoryInfo>lambdaQuery()
+                .eq(DeviceHistoryInfo::getDeviceId, deviceId)
+                .ge(DeviceHistoryInfo::getCreateDate, DateUtil.formatDateTime(start))
+                .lt(DeviceHistoryInfo::getCreateDate, DateUtil.formatDateTime(end))
+                .orderByAsc(DeviceHistoryInfo::getCreateDate));
+    }
+
+    /**
+     * 获取设备图表数据，按目标点数在服务端降采样
+     * 每个点覆盖一分钟以上时读取对应级别的汇总表，否则读取最近数据缓存或流式读取原始数据，均只遍历一次
+     *
+     * @param deviceId 设备ID
+     * @param from     开始时间，默认结束时间前一天
+     * @param to       结束时间，默认当前时间
+     * @param points   目标点数
+     * @param mode     降采样方式 lttb/minmax
+     * @return 数据来源、降采样方式、原始点数、[时间, 设备值] 列表
+     */
+    @Override
+    public LinkedHashMap<String, Object> selectHistoryChart(Integer deviceId, String from, String to, int points, String mode) {
+        Date end = StrUtil.isEmpty(to) ? new Date() : DateUtil.parse(to);
+        Date start = StrUtil.isEmpty(from) ? DateUtil.offsetDay(end, -1) : DateUtil.parse(from);
+        int target = Math.min(Math.max(points, CHART_MIN_POINTS), CHART_MAX_POINTS);
+        DeviceSeriesSampler.Mode sampleMode = "minmax".equalsIgnoreCase(mode) ? DeviceSeriesSampler.Mode.MINMAX : DeviceSeriesSampler.Mode.LTTB;
+        DeviceSeriesSampler sampler = new DeviceSeriesSampler(start.getTime(), end.getTime(), target, sampleMode);
+        DeviceHistoryRollup.Level level = DeviceHistoryRollup.Level.forBucket((end.getTime() - start.getTime()) / target);
+        String source;
+        if (level != null) {
+            for (DeviceHistoryRollup rollup : deviceHistoryRollupService.selectRollup(level, deviceId, DateUtil.formatDateTime(start), DateUtil.formatDateTime(end))) {
+                long ts = DateUtil.parseDateTime(rollup.getBucket()).getTime();
+                if (sampleMode == DeviceSeriesSampler.Mode.MINMAX && rollup.getMinValue() != null && rollup.getMaxValue() != null) {
+                    sampler.accept(ts, rollup.getMinValue());
+                    sampler.accept(ts, rollup.getMaxValue());
+                } else {
+                    sampler.accept(ts, rollup.getAvgValue());
+                }
+            }
+            source = level.name().toLowerCase();
+        } else if (deviceHistoryCache.covers(start.getTime())) {
+            deviceHistoryCache.scan(deviceId, start.getTime(), end.getTime(), sampler);
+            source = "cache";
+        } else {
+            baseMapper.streamDeviceValue(deviceId, DateUtil.formatDateTime(start), DateUtil.formatDateTime(end), context -> {
+                DeviceHistoryInfo item = context.getResultObject();
+                sampler.accept(DateUtil.parseDateTime(item.getCreateDate()).getTime(), item.getValueNum());
+            });
+            source = "raw";
+        }
+        sampler.finish();
+        List<Object[]> data = new ArrayList<>(sampler.size());
+        for (int i = 0; i < sampler.size(); i++) {
+            data.add(new Object[]{DateUtil.formatDateTime(new Date(sampler.tsAt(i))), sampler.valueAt(i)});
+        }
+        LinkedHashMap<String, Object> result = new LinkedHashMap<>();
+        result.put("source", source);
+        result.put("mode", sampleMode.name().toLowerCase());
+        result.put("inputs", sampler.inputs());
+        result.put("points", data);
+        return result;
+    }
+
+    /**
+     * 导出设备上报数据，逐行从数据库读取并写出，内存占用与导出行数无关
+     *
+     * @param deviceIds 设备ID，为空时不限设备
+     * @param from      开始时间（含）
+     * @param to        结束时间（不含）
+     * @param format    导出格式 csv/xlsx
+     * @param out       输出流
+     * @throws IOException 写出失败
+     */
+    @Override
+    public void exportHistory(List<Integer> deviceIds, String from, String to, String format, OutputStream out) throws IOException {
+        if (EXPORT_XLSX.equals(format)) {
+            exportXlsx(deviceIds, from, to, out);
+        } else {
+            exportCsv(deviceIds, from, to, out);
+        }
+    }
+
+    private void exportCsv(List<Integer> deviceIds, String from, String to, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        // BOM，Excel 打开时按 UTF-8 识别中文
+        writer.write('\uFEFF');
+        writer.write(String.join(",", EXPORT_HEAD));
+        writer.write("\r\n");
+        try {
+            baseMapper.streamHistory(deviceIds, from, to, context -> {
+                DeviceHistoryInfo item = context.getResultObject();
+                try {
+                    writer.write(String.valueOf(item.getId()));
+                    writer.write(',');
+                    writer.write(StrUtil.toString(item.getDeviceId()));
+                    writer.write(',');
+                    writer.write(csvField(item.getDeviceName()));
+                    writer.write(',');
+                    writer.write(csvField(item.getTypeName()));
+                    writer.write(',');
+                    writer.write(csvField(item.getDeviceValue()));
+                    writer.write(',');
+                    writer.write(item.getValueNum() == null ? "" : DeviceReading.formatValue(item.getValueNum()));
+                    writer.write(',');
+                    writer.write(csvField(item.getAlertValue()));
+                    writer.write(',');
+                    writer.write(StrUtil.nullToEmpty(item.getCreateDate()));
+                    writer.write("\r\n");
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private void exportXlsx(List<Integer> deviceIds, String from, String to, OutputStream out) {
+        List<List<String>> head = new ArrayList<>();
+        for (String title : EXPORT_HEAD) {
+            head.add(Collections.singletonList(title));
+        }
+        // 默认使用 SXSSF 写出，只在内存中保留最近的行
+        ExcelWriter excelWriter = EasyExcel.write(out).head(head).build();
+        try {
+            List<List<Object>> buffer = new ArrayList<>(EXPORT_BUFFER_SIZE);
+            int[] sheet = {0, 0};
+            WriteSheet[] writeSheet = {EasyExcel.writerSheet(0, "设备上报数据").build()};
+            baseMapper.streamHistory(deviceIds, from, to, context -> {
+                DeviceHistoryInfo item = context.getResultObject();
+                buffer.add(Arrays.asList(item.getId(), item.getDeviceId(), item.getDeviceName(), item.getTypeName(),
+                        item.getDeviceValue(), item.getValueNum(), item.getAlertValue(), item.getCreateDate()));
+                if (buffer.size() == EXPORT_BUFFER_SIZE) {
+                    sheet[1] += buffer.size();
+                    excelWriter.write(buffer, writeSheet[0]);
+                    buffer.clear();
+                    // 单个工作表行数有上限，超出后写入下一个工作表
+                    if (sheet[1] >= EXPORT_SHEET_ROWS) {
+                        sheet[0]++;
+                        sheet[1] = 0;
+                        writeSheet[0] = EasyExcel.writerSheet(sheet[0], "设备上报数据" + (sheet[0] + 1)).build();
+                    }
+                }
+            });
+            if (!buffer.isEmpty() || sheet[0] == 0) {
+                excelWriter.write(buffer, writeSheet[0]);
+            }
+        } finally {
+            excelWriter.finish();
+        }
+    }
+
+    /**
+     * 批量新增上报数据（多行插入）
+     *
+     * @param historyList 上报数据
+     */
+    @Override
+    public void insertBatch(List<DeviceHistoryInfo> historyList) {
+        if (CollectionUtil.isEmpty(historyList)) {
+            return;
+        }
+        baseMapper.insertBatch(historyList);
+    }
 }
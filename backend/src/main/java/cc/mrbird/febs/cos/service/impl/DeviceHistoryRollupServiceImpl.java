@@ -0,0 +1,94 @@
+package cc.mrbird.febs.cos.service.impl;
+
+import cc.mrbird.febs.cos.dao.DeviceHistoryRollupMapper;
+import cc.mrbird.febs.cos.entity.DeviceHistoryInfo;
+import cc.mrbird.febs.cos.entity.DeviceHistoryRollup;
+import cc.mrbird.febs.cos.service.IDeviceHistoryRollupService;
+import cn.hutool.core.collection.CollectionUtil;
+import cn.hutool.core.date.DateUtil;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 设备上报数据汇总 实现层
+ *
+ * @author FanK
+ */
+@Service
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class DeviceHistoryRollupServiceImpl implements IDeviceHistoryRollupService {
+
+    /**
+     * 回填任务名称
+     */
+    public static final String BACKFILL_NAME = "history_rollup";
+
+    private final DeviceHistoryRollupMapper deviceHistoryRollupMapper;
+
+    /**
+     * 将本批上报数据累加到分钟、小时、天汇总
+     * 同一设备同一统计时间先在内存中合并，每个级别一条多行语句
+     *
+     * @param historyList 上报数据
+     */
+    @Override
+    public void accumulate(List<DeviceHistoryInfo> historyList) {
+        if (CollectionUtil.isEmpty(historyList)) {
+            return;
+        }
+        for (DeviceHistoryRollup.Level level : DeviceHistoryRollup.Level.values()) {
+            Map<String, DeviceHistoryRollup> rollupMap = new HashMap<>();
+            for (DeviceHistoryInfo historyInfo : historyList) {
+                if (historyInfo.getDeviceId() == null || historyInfo.getValueNum() == null) {
+                    continue;
+                }
+                String createDate = historyInfo.getCreateDate();
+                if (createDate == null || createDate.length() < 19) {
+                    createDate = DateUtil.formatDateTime(createDate == null ? DateUtil.date() : DateUtil.parse(createDate));
+                }
+                String bucket = level.bucketOf(createDate);
+                rollupMap.computeIfAbsent(historyInfo.getDeviceId() + "|" + bucket,
+                        key -> new DeviceHistoryRollup().setDeviceId(historyInfo.getDeviceId()).setBucket(bucket))
+                        .add(historyInfo.getValueNum());
+            }
+            if (!rollupMap.isEmpty()) {
+                deviceHistoryRollupMapper.upsertBatch(level.getTable(), rollupMap.values());
+            }
+        }
+    }
+
+    /**
+     * 查询设备汇总数据
+     *
+     * @param level    汇总级别
+     * @param deviceId 设备ID
+     * @param from     开始时间（含）
+     * @param to       结束时间（不含）
+     * @return 结果
+     */
+    @Override
+    public List<DeviceHistoryRollup> selectRollup(DeviceHistoryRollup.Level level, Integer deviceId, String from, String to) {
+        return deviceHistoryRollupMapper.selectRollup(level.getTable(), deviceId, from, to);
+    }
+
+    /**
+     * 回填一段历史数据的汇总，与进度在同一事务中提交，中断后可继续
+     *
+     * @param fromId 起始主键（不含）
+     * @param toId   结束主键（含）
+     */
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void backfill(long fromId, long toId) {
+        for (DeviceHistoryRollup.Level level : DeviceHistoryRollup.Level.values()) {
+            deviceHistoryRollupMapper.backfill(level.getTable(), level.getSqlFormat(), fromId, toId);
+        }
+        deviceHistoryRollupMapper.updateProgress(BACKFILL_NAME, toId);
+    }
+}
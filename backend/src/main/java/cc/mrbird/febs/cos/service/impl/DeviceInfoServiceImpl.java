@@ -1,6 +1,10 @@
 package cc.mrbird.febs.cos.service.impl;
 
 import cc.mrbird.febs.common.utils.R;
+import cc.mrbird.febs.cos.cache.DeviceSessionColumns;
+import cc.mrbird.febs.cos.cache.DeviceSessionStats;
+import cc.mrbird.febs.cos.cache.DeviceStateStore;
+import cc.mrbird.febs.cos.cache.ElectricityReportCache;
 import cc.mrbird.febs.cos.entity.*;
 import cc.mrbird.febs.cos.dao.DeviceInfoMapper;
 import cc.mrbird.febs.cos.service.*;
@@ -31,10 +35,18 @@ public class DeviceInfoServiceImpl extends ServiceImpl<DeviceInfoMapper, DeviceI
 
     private final IDeviceOfflineRecordService deviceOfflineRecordService;
 
+    private final IDeviceSessionService deviceSessionService;
+
     private final IOperateRecordInfoService operateRecordInfoService;
 
     private final IUserInfoService userInfoService;
 
+    private final DeviceStateStore deviceStateStore;
+
+    private final ElectricityReportCache electricityReportCache;
+
+    private final IElectricityReportService electricityReportService;
+
     /**
      * 分页获取设备管理信息
      *
@@ -44,27 +56,57 @@ public class DeviceInfoServiceImpl extends ServiceImpl<DeviceInfoMapper, DeviceI
      */
     @Override
     public IPage<LinkedHashMap<String, Object>> selectDevicePage(Page<DeviceInfo> page, DeviceInfo deviceInfo) {
-        return baseMapper.selectDevicePage(page, deviceInfo);
+        IPage<LinkedHashMap<String, Object>> result = baseMapper.selectDevicePage(page, deviceInfo);
+        // 设备当前值以内存最新上报为准
+        deviceStateStore.applyRows(result.getRecords());
+        return result;
     }
 
     /**
-     * 查询用户设备用电率
+     * 根据用户编号获取用户的设备
+     *
+     * @param userId 用户编号
+     * @return 结果
+     */
+    @Override
+    public List<DeviceInfo> selectByUserCode(Integer userId) {
+        return baseMapper.selectByUserCode(userId);
+    }
+
+    /**
+     * 查询用户设备用电率，数据未变更时返回缓存的报告，其次是仍然有效的夜间批量报告
      *
      * @param userId 用户ID
      * @return 用电率
      */
     @Override
     public LinkedHashMap<String, Object> queryElectricityRateByUser(Integer userId) {
+        LinkedHashMap<String, Object> cached = electricityReportCache.get(userId);
+        if (cached != null) {
+            return cached;
+        }
+
         // 获取用户信息
         UserInfo userInfo = userInfoService.getOne(Wrappers.<UserInfo>lambdaQuery().eq(UserInfo::getUserId, userId));
         if (userInfo == null) {
             return new LinkedHashMap<>();
         }
+        // 先读取版本号，计算期间数据变更时结果不缓存
+        long version = electricityReportCache.version(userInfo.getId());
+
+        // 夜间批量生成后数据没有变更时直接使用
+        LinkedHashMap<String, Object> batchReport = electricityReportService.selectFreshReport(userInfo.getId());
+        if (batchReport != null) {
+            electricityReportCache.put(userId, userInfo.getId(), version, batchReport);
+            return batchReport;
+        }
 
         // 获取用户的所有设备
         List<DeviceInfo> deviceInfoList = this.list(Wrappers.<DeviceInfo>lambdaQuery().eq(DeviceInfo::getUserId, userInfo.getId()));
         if (CollectionUtil.isEmpty(deviceInfoList)) {
-            return new LinkedHashMap<>();
+            LinkedHashMap<String, Object> empty = new LinkedHashMap<>();
+            electricityReportCache.put(userId, userInfo.getId(), version, empty);
+            return empty;
         }
 
         // 获取设备ID列表
@@ -73,40 +115,43 @@ public class DeviceInfoServiceImpl extends ServiceImpl<DeviceInfoMapper, DeviceI
             return new LinkedHashMap<>();
         }
 
-        // 获取设备的历史上下线记录
-        List<DeviceOfflineRecord> deviceOfflineRecordList = deviceOfflineRecordService.list(
-                Wrappers.<DeviceOfflineRecord>lambdaQuery()
-                        .in(DeviceOfflineRecord::getDeviceId, deviceIdList)
-                        .orderByAsc(DeviceOfflineRecord::getOnlineDate));
+        // 按列读取设备的运行时段（写入上下线记录时已配对），一次遍历得到全部统计
+        DeviceSessionColumns sessionColumns = deviceSessionService.selectSessionColumns(deviceIdList);
+        DeviceSessionStats sessionStats = DeviceSessionStats.compute(sessionColumns, deviceIdList.size());
 
         // 使用随机森林算法分析用电模式
-        LinkedHashMap<String, Object> analysisResult = analyzeElectricityWithRandomForest(
-                deviceInfoList, deviceOfflineRecordList);
+        LinkedHashMap<String, Object> analysisResult = buildElectricityReport(deviceInfoList, sessionStats);
 
+        electricityReportCache.put(userId, userInfo.getId(), version, analysisResult);
         return analysisResult;
     }
 
     /**
      * 使用随机森林算法分析设备用电情况
+     *
+     * @param deviceInfoList 用户的设备
+     * @param sessionStats   运行时段统计，设备下标与设备列表一致
+     * @return 用电分析报告
      */
-    private LinkedHashMap<String, Object> analyzeElectricityWithRandomForest(
-            List<DeviceInfo> deviceInfoList, List<DeviceOfflineRecord> deviceOfflineRecordList) {
+    @Override
+    public LinkedHashMap<String, Object> buildElectricityReport(
+            List<DeviceInfo> deviceInfoList, DeviceSessionStats sessionStats) {
 
         // 准备训练数据
-        List<ElectricityFeature> features = prepareFeatures(deviceInfoList, deviceOfflineRecordList);
+        List<ElectricityFeature> features = prepareFeatures(deviceInfoList, sessionStats);
 
         // 使用模拟的随机森林分析（实际项目中需要集成机器学习库）
         LinkedHashMap<String, Object> result = new LinkedHashMap<>();
 
         // 计算每个设备的用电统计
         Map<Integer, DeviceElectricityStats> deviceStatsMap = calculateDeviceElectricityStats(
-                deviceInfoList, deviceOfflineRecordList);
+                deviceInfoList, sessionStats);
 
         // 识别高耗电设备
         List<HighConsumptionDevice> highConsumptionDevices = identifyHighConsumptionDevices(deviceStatsMap);
 
         // 用电模式分析
-        Map<String, Object> patternAnalysis = analyzeUsagePatterns(deviceOfflineRecordList);
+        Map<String, Object> patternAnalysis = analyzeUsagePatterns(sessionStats);
 
         // 预测性维护指标
         Map<String, Object> maintenanceIndicators = calculateMaintenanceIndicators(deviceStatsMap);
@@ -121,24 +166,19 @@ public class DeviceInfoServiceImpl extends ServiceImpl<DeviceInfoMapper, DeviceI
     }
 
     /**
-     * 准备特征数据
+     * 准备特征数据，设备下标与设备列表一致
      */
     private List<ElectricityFeature> prepareFeatures(List<DeviceInfo> devices,
-                                                     List<DeviceOfflineRecord> records) {
+                                                     DeviceSessionStats sessionStats) {
         List<ElectricityFeature> features = new ArrayList<>();
 
-        // 按设备分组记录
-        Map<Integer, List<DeviceOfflineRecord>> recordsByDevice = records.stream()
-                .collect(Collectors.groupingBy(DeviceOfflineRecord::getDeviceId));
-
-        for (DeviceInfo device : devices) {
-            List<DeviceOfflineRecord> deviceRecords = recordsByDevice.get(device.getId());
-
-            if (CollectionUtil.isNotEmpty(deviceRecords)) {
+        for (int i = 0; i < devices.size(); i++) {
+            DeviceInfo device = devices.get(i);
+            if (sessionStats.sessions(i) > 0) {
                 // 计算特征
-                double avgRunTime = calculateAverageRuntime(deviceRecords);
-                double totalRunTime = calculateTotalRuntime(deviceRecords);
-                int frequencyOfUse = deviceRecords.size();
+                double avgRunTime = sessionStats.avgHours(i);
+                double totalRunTime = sessionStats.totalHours(i);
+                int frequencyOfUse = sessionStats.sessions(i);
                 double avgPower = device.getPower();
 
                 ElectricityFeature feature = new ElectricityFeature();
@@ -158,92 +198,31 @@ public class DeviceInfoServiceImpl extends ServiceImpl<DeviceInfoMapper, DeviceI
     }
 
     /**
-     * 计算设备用电统计数据
+     * 计算设备用电统计数据，只统计已结束的时段
      */
     private Map<Integer, DeviceElectricityStats> calculateDeviceElectricityStats(
-            List<DeviceInfo> deviceInfoList, List<DeviceOfflineRecord> deviceOfflineRecordList) {
+            List<DeviceInfo> deviceInfoList, DeviceSessionStats sessionStats) {
 
         Map<Integer, DeviceElectricityStats> statsMap = new HashMap<>();
 
-        // 按设备分组记录
-        Map<Integer, List<DeviceOfflineRecord>> recordsByDevice = deviceOfflineRecordList.stream()
-                .collect(Collectors.groupingBy(DeviceOfflineRecord::getDeviceId));
-
-        for (DeviceInfo device : deviceInfoList) {
+        for (int i = 0; i < deviceInfoList.size(); i++) {
+            DeviceInfo device = deviceInfoList.get(i);
             DeviceElectricityStats stats = new DeviceElectricityStats();
             stats.setDeviceId(device.getId());
             stats.setDeviceName(device.getName());
             stats.setPowerRating(device.getPower());
 
-            List<DeviceOfflineRecord> deviceRecords = recordsByDevice.get(device.getId());
-
-            if (CollectionUtil.isNotEmpty(deviceRecords)) {
-                // 分离上线和下线记录
-                List<DeviceOfflineRecord> onlineRecords = deviceRecords.stream()
-                        .filter(record -> "1".equals(record.getType()))
-                        .collect(Collectors.toList());
-                List<DeviceOfflineRecord> offlineRecords = deviceRecords.stream()
-                        .filter(record -> "0".equals(record.getType()))
-                        .collect(Collectors.toList());
-
-                // 计算运行时间
-                double totalRunTime = 0;
-                int sessionCount = 0;
-                List<Double> runtimes = new ArrayList<>();
-
-                int onlineIdx = 0, offlineIdx = 0;
-                while (onlineIdx < onlineRecords.size()) {
-                    Date onlineTime = DateUtil.parseDateTime(onlineRecords.get(onlineIdx).getOnlineDate());
-
-                    // 查找对应的下线时间
-                    Date offlineTime = null;
-                    while (offlineIdx < offlineRecords.size()) {
-                        Date candidateOfflineTime = DateUtil.parseDateTime(offlineRecords.get(offlineIdx).getOnlineDate());
-                        if (candidateOfflineTime.after(onlineTime)) {
-                            offlineTime = candidateOfflineTime;
-                            offlineIdx++;
-                            break;
-                        }
-                        offlineIdx++;
-                    }
-
-                    if (offlineTime != null) {
-                        double runtime = (offlineTime.getTime() - onlineTime.getTime()) / (1000.0 * 60 * 60); // 转换为小时
-                        totalRunTime += runtime;
-                        runtimes.add(runtime);
-                        sessionCount++;
-                    } else {
-                        // 如果没有找到对应的下线时间，跳过这次记录
-                        onlineIdx++;
-                        continue;
-                    }
-
-                    onlineIdx++;
-                }
-
-                // 计算统计值
-                stats.setTotalRunTime(totalRunTime);
-                stats.setSessionCount(sessionCount);
-
-                if (!runtimes.isEmpty()) {
-                    double avgRuntime = runtimes.stream().mapToDouble(Double::doubleValue).average().orElse(0.0);
-                    double maxRuntime = Collections.max(runtimes);
-                    double minRuntime = Collections.min(runtimes);
-
-                    stats.setAvgRunTime(avgRuntime);
-                    stats.setMaxRunTime(maxRuntime);
-                    stats.setMinRunTime(minRuntime);
-
-                    // 计算方差和标准差
-                    double variance = runtimes.stream()
-                            .mapToDouble(rt -> Math.pow(rt - avgRuntime, 2))
-                            .average()
-                            .orElse(0.0);
-                    stats.setStdDev(Math.sqrt(variance));
-                }
-
-                // 计算总耗电量
-                stats.setTotalConsumption((stats.getTotalRunTime() * device.getPower()) / 1000.0);
+            if (sessionStats.count(i) > 0) {
+                // 运行时间（小时）
+                stats.setTotalRunTime(sessionStats.totalHours(i));
+                stats.setSessionCount(sessionStats.count(i));
+                stats.setAvgRunTime(sessionStats.avgHours(i));
+                stats.setMaxRunTime(sessionStats.maxHours(i));
+                stats.setMinRunTime(sessionStats.minHours(i));
+                stats.setStdDev(sessionStats.stdDev(i));
+
+                // 总耗电量，各时段按下线时的功率计算
+                stats.setTotalConsumption(sessionStats.energy(i));
             }
 
             statsMap.put(device.getId(), stats);
@@ -304,62 +283,31 @@ public class DeviceInfoServiceImpl extends ServiceImpl<DeviceInfoMapper, DeviceI
     /**
      * 分析使用模式
      */
-    private Map<String, Object> analyzeUsagePatterns(List<DeviceOfflineRecord> records) {
+    private Map<String, Object> analyzeUsagePatterns(DeviceSessionStats sessionStats) {
         Map<String, Object> patternAnalysis = new HashMap<>();
 
-        // 按小时分析使用模式
+        // 按小时分析使用模式（上线时间），只输出有数据的小时
         Map<Integer, Integer> hourlyUsage = new HashMap<>();
-        for (DeviceOfflineRecord record : records) {
-            if ("1".equals(record.getType())) { // 只统计上线时间
-                Date recordDate = DateUtil.parseDateTime(record.getOnlineDate());
-                int hour = recordDate.getHours();
-                hourlyUsage.put(hour, hourlyUsage.getOrDefault(hour, 0) + 1);
+        int peakHour = -1;
+        for (int hour = 0; hour < 24; hour++) {
+            int count = sessionStats.hourCount(hour);
+            if (count == 0) {
+                continue;
+            }
+            hourlyUsage.put(hour, count);
+            // 找出高峰使用时段
+            if (peakHour == -1 || count > sessionStats.hourCount(peakHour)) {
+                peakHour = hour;
             }
         }
 
-        // 找出高峰使用时段
-        int peakHour = hourlyUsage.entrySet().stream()
-                .max(Map.Entry.comparingByValue())
-                .map(Map.Entry::getKey)
-                .orElse(-1);
-
         patternAnalysis.put("peakUsageHour", peakHour);
         patternAnalysis.put("hourlyUsageDistribution", hourlyUsage);
 
-        // 分析连续运行时间模式
-        List<Double> continuousRunTimes = new ArrayList<>();
-        Map<Integer, List<DeviceOfflineRecord>> recordsByDevice = records.stream()
-                .collect(Collectors.groupingBy(DeviceOfflineRecord::getDeviceId));
-
-        for (List<DeviceOfflineRecord> deviceRecords : recordsByDevice.values()) {
-            // 按时间排序
-            deviceRecords.sort(Comparator.comparing(r -> DateUtil.parseDateTime(r.getOnlineDate())));
-
-            // 计算连续运行时间
-            for (int i = 0; i < deviceRecords.size(); i += 2) {
-                if (i + 1 < deviceRecords.size()) {
-                    DeviceOfflineRecord start = deviceRecords.get(i);
-                    DeviceOfflineRecord end = deviceRecords.get(i + 1);
-
-                    if ("1".equals(start.getType()) && "0".equals(end.getType())) {
-                        Date startTime = DateUtil.parseDateTime(start.getOnlineDate());
-                        Date endTime = DateUtil.parseDateTime(end.getOnlineDate());
-
-                        double duration = (endTime.getTime() - startTime.getTime()) / (1000.0 * 60 * 60); // 转换为小时
-                        continuousRunTimes.add(duration);
-                    }
-                }
-            }
-        }
-
-        if (!continuousRunTimes.isEmpty()) {
-            double avgContinuousRunTime = continuousRunTimes.stream()
-                    .mapToDouble(Double::doubleValue)
-                    .average()
-                    .orElse(0.0);
-
-            patternAnalysis.put("avgContinuousRunTime", avgContinuousRunTime);
-            patternAnalysis.put("maxContinuousRunTime", Collections.max(continuousRunTimes));
+        // 连续运行时间
+        if (sessionStats.runCount() > 0) {
+            patternAnalysis.put("avgContinuousRunTime", sessionStats.runAvgHours());
+            patternAnalysis.put("maxContinuousRunTime", sessionStats.runMaxHours());
         }
 
         return patternAnalysis;
@@ -443,90 +391,6 @@ public class DeviceInfoServiceImpl extends ServiceImpl<DeviceInfoMapper, DeviceI
         return recommendations;
     }
 
-    /**
-     * 计算平均运行时间
-     */
-    private double calculateAverageRuntime(List<DeviceOfflineRecord> records) {
-        // 分离上线和下线记录
-        List<DeviceOfflineRecord> onlineRecords = records.stream()
-                .filter(record -> "1".equals(record.getType()))
-                .collect(Collectors.toList());
-        List<DeviceOfflineRecord> offlineRecords = records.stream()
-                .filter(record -> "0".equals(record.getType()))
-                .collect(Collectors.toList());
-
-        double totalRuntime = 0;
-        int validSessions = 0;
-
-        int onlineIdx = 0, offlineIdx = 0;
-        while (onlineIdx < onlineRecords.size()) {
-            Date onlineTime = DateUtil.parseDateTime(onlineRecords.get(onlineIdx).getOnlineDate());
-
-            // 查找对应的下线时间
-            Date offlineTime = null;
-            while (offlineIdx < offlineRecords.size()) {
-                Date candidateOfflineTime = DateUtil.parseDateTime(offlineRecords.get(offlineIdx).getOnlineDate());
-                if (candidateOfflineTime.after(onlineTime)) {
-                    offlineTime = candidateOfflineTime;
-                    offlineIdx++;
-                    break;
-                }
-                offlineIdx++;
-            }
-
-            if (offlineTime != null) {
-                double runtime = (offlineTime.getTime() - onlineTime.getTime()) / (1000.0 * 60 * 60); // 转换为小时
-                totalRuntime += runtime;
-                validSessions++;
-            }
-
-            onlineIdx++;
-        }
-
-        return validSessions > 0 ? totalRuntime / validSessions : 0;
-    }
-
-    /**
-     * 计算总运行时间
-     */
-    private double calculateTotalRuntime(List<DeviceOfflineRecord> records) {
-        // 分离上线和下线记录
-        List<DeviceOfflineRecord> onlineRecords = records.stream()
-                .filter(record -> "1".equals(record.getType()))
-                .collect(Collectors.toList());
-        List<DeviceOfflineRecord> offlineRecords = records.stream()
-                .filter(record -> "0".equals(record.getType()))
-                .collect(Collectors.toList());
-
-        double totalRuntime = 0;
-
-        int onlineIdx = 0, offlineIdx = 0;
-        while (onlineIdx < onlineRecords.size()) {
-            Date onlineTime = DateUtil.parseDateTime(onlineRecords.get(onlineIdx).getOnlineDate());
-
-            // 查找对应的下线时间
-            Date offlineTime = null;
-            while (offlineIdx < offlineRecords.size()) {
-                Date candidateOfflineTime = DateUtil.parseDateTime(offlineRecords.get(offlineIdx).getOnlineDate());
-                if (candidateOfflineTime.after(onlineTime)) {
-                    offlineTime = candidateOfflineTime;
-                    offlineIdx++;
-                    break;
-                }
-                offlineIdx++;
-            }
-
-            if (offlineTime != null) {
-                double runtime = (offlineTime.getTime() - onlineTime.getTime()) / (1000.0 * 60 * 60); // 转换为小时
-                totalRuntime += runtime;
-            }
-
-            onlineIdx++;
-        }
-
-        return totalRuntime;
-    }
-
     /**
      * 计算效率评分
      */
@@ -555,79 +419,29 @@ public class DeviceInfoServiceImpl extends ServiceImpl<DeviceInfoMapper, DeviceI
         // 获取当前日期和一个月前的日期
         Date endDate = new Date();
         Date startDate = DateUtil.offsetMonth(endDate, -1);
-        // 历史上下线记录（按时间升序排列）
-        List<DeviceOfflineRecord> deviceOfflineRecordList = deviceOfflineRecordService.list(
-                Wrappers.<DeviceOfflineRecord>lambdaQuery()
-                        .eq(DeviceOfflineRecord::getDeviceId, deviceId)
-                        .between(DeviceOfflineRecord::getOnlineDate, DateUtil.formatDateTime(startDate), DateUtil.formatDateTime(endDate))
-                        .orderByAsc(DeviceOfflineRecord::getOnlineDate));
+        // 近一个月的每日耗电台账（跨零点的时段已按天拆分），运行中的时段计算到当前时间
+        List<DeviceEnergyDaily> dailyList = deviceSessionService.selectDailyEnergy(deviceId,
+                deviceInfo.getPower() == null ? 0 : deviceInfo.getPower(),
+                DateUtil.formatDate(startDate), DateUtil.formatDate(endDate));
 
         double totalPowerConsumption = 0.0; // 总耗电量
-        List<ElectricityData> electricityDataList = new ArrayList<>(); // 每日耗电数据
-        // 如果没有上下线记录，则返回空结果
-        if (CollectionUtil.isEmpty(deviceOfflineRecordList)) {
+        List<ElectricityData> electricityDataList = new ArrayList<>(dailyList.size()); // 每日耗电数据
+        // 如果没有耗电记录，则返回空结果
+        if (CollectionUtil.isEmpty(dailyList)) {
             LinkedHashMap<String, Object> result = new LinkedHashMap<>();
             result.put("totalPowerConsumption", totalPowerConsumption);
             result.put("dailyElectricity", electricityDataList);
             result.put("deviceInfo", deviceInfo);
             return result;
         }
-        // 将上下线记录按时间顺序处理，找到上线-下线对来计算运行时间
-        List<Date> onlineTimes = new ArrayList<>(); // 存储上线时间
-        List<Date> offlineTimes = new ArrayList<>(); // 存储下线时间
-        for (DeviceOfflineRecord record : deviceOfflineRecordList) {
-            Date recordTime = DateUtil.parseDateTime(record.getOnlineDate());
-            if ("1".equals(record.getType())) { // 上线
-                onlineTimes.add(recordTime);
-            } else if ("0".equals(record.getType())) { // 下线
-                offlineTimes.add(recordTime);
-            }
-        }
-        // 匹配上线和下线时间对，计算运行时间
-        int onlineIndex = 0;
-        int offlineIndex = 0;
-
-        while (onlineIndex < onlineTimes.size()) {
-            Date onlineTime = onlineTimes.get(onlineIndex);
-            // 找到下一个下线时间（必须在上线时间之后）
-            Date offlineTime = null;
-            while (offlineIndex < offlineTimes.size()) {
-                Date potentialOfflineTime = offlineTimes.get(offlineIndex);
-                if (potentialOfflineTime.after(onlineTime)) {
-                    offlineTime = potentialOfflineTime;
-                    offlineIndex++;
-                    break;
-                }
-                offlineIndex++;
-            }
-            // 如果没有找到对应的下线时间，使用当前时间作为结束时间
-            if (offlineTime == null) {
-                offlineTime = new Date();
-            }
-            // 计算运行时间（小时）
-            long runningTimeMillis = offlineTime.getTime() - onlineTime.getTime();
-            double runningHours = runningTimeMillis / (1000.0 * 60 * 60); // 转换为小时
-            // 计算该时段耗电量（功率单位：瓦特，转换为千瓦时）
-            double powerConsumption = (deviceInfo.getPower() * runningHours) / 1000.0;
-            totalPowerConsumption += powerConsumption;
-            // 按日期统计耗电量
-            String dateStr = DateUtil.formatDate(onlineTime);
-            ElectricityData dailyData = electricityDataList.stream()
-                    .filter(data -> data.getDate().equals(dateStr))
-                    .findFirst()
-                    .orElse(null);
-            if (dailyData == null) {
-                dailyData = new ElectricityData();
-                dailyData.setDate(dateStr);
-                dailyData.setConsumption(powerConsumption);
-                electricityDataList.add(dailyData);
-            } else {
-                dailyData.setConsumption(dailyData.getConsumption() + powerConsumption);
-            }
-            onlineIndex++;
+        // 台账已按日期升序
+        for (DeviceEnergyDaily daily : dailyList) {
+            totalPowerConsumption += daily.getEnergy();
+            ElectricityData dailyData = new ElectricityData();
+            dailyData.setDate(daily.getDay());
+            dailyData.setConsumption(daily.getEnergy());
+            electricityDataList.add(dailyData);
         }
-        // 按日期排序
-        electricityDataList.sort(Comparator.comparing(ElectricityData::getDate));
         // 构建返回结果
         LinkedHashMap<String, Object> result = new LinkedHashMap<>();
         result.put("totalPowerConsumption", totalPowerConsumption);
@@ -903,7 +717,7 @@ public class DeviceInfoServiceImpl extends ServiceImpl<DeviceInfoMapper, DeviceI
         }
 
 
-        deviceOfflineRecordService.saveBatch(deviceOfflineRecordList);
+        deviceOfflineRecordService.saveRecordBatch(deviceOfflineRecordList);
         this.updateBatchById(toUpdateList);
     }
 
@@ -1,14 +1,23 @@
 package cc.mrbird.febs.cos.service.impl;
 
+import cc.mrbird.febs.common.domain.SeekRequest;
 import cc.mrbird.febs.cos.entity.DeviceOfflineRecord;
 import cc.mrbird.febs.cos.dao.DeviceOfflineRecordMapper;
 import cc.mrbird.febs.cos.service.IDeviceOfflineRecordService;
+import cc.mrbird.febs.cos.service.IDeviceSessionService;
+import cn.hutool.core.collection.CollectionUtil;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
 
 /**
  * 设备上下线记录 实现层
@@ -16,8 +25,11 @@ import java.util.LinkedHashMap;
  * @author FanK
  */
 @Service
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
 public class DeviceOfflineRecordServiceImpl extends ServiceImpl<DeviceOfflineRecordMapper, DeviceOfflineRecord> implements IDeviceOfflineRecordService {
 
+    private final IDeviceSessionService deviceSessionService;
+
     /**
      * 分页获取设备上下线记录信息
      *
@@ -29,4 +41,76 @@ public class DeviceOfflineRecordServiceImpl extends ServiceImpl<DeviceOfflineRec
     public IPage<LinkedHashMap<String, Object>> selectOfflineRecordPage(Page<DeviceOfflineRecord> page, DeviceOfflineRecord deviceOfflineRecord) {
         return baseMapper.selectOfflineRecordPage(page, deviceOfflineRecord);
     }
+
+    /**
+     * 游标分页获取设备上下线记录信息
+     *
+     * @param seek                游标及总数统计方式
+     * @param deviceOfflineRecord 设备上下线记录信息
+     * @return 记录、是否还有下一页、下一页游标，按需返回总数
+     */
+    @Override
+    public LinkedHashMap<String, Object> selectOfflineRecordSeek(SeekRequest seek, DeviceOfflineRecord deviceOfflineRecord) {
+        List<LinkedHashMap<String, Object>> records = baseMapper.selectOfflineRecordSeek(deviceOfflineRecord, seek);
+        Long total = seek.needCount() ? baseMapper.selectOfflineRecordSeekCount(deviceOfflineRecord, seek.getCountLimit()) : null;
+        return seek.toResult(records, "online_date", total);
+    }
+
+    /**
+     * 新增上下线记录，同时开启、关闭设备运行时段
+     *
+     * @param recordList 上下线记录，按发生顺序
+     */
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void saveRecordBatch(List<DeviceOfflineRecord> recordList) {
+        if (CollectionUtil.isEmpty(recordList)) {
+            return;
+        }
+        this.saveBatch(recordList);
+        deviceSessionService.apply(recordList);
+    }
+
+    /**
+     * 修改上下线记录，并重建所属设备的运行时段
+     *
+     * @param deviceOfflineRecord 上下线记录
+     * @return 结果
+     */
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public boolean updateRecord(DeviceOfflineRecord deviceOfflineRecord) {
+        DeviceOfflineRecord oldRecord = this.getById(deviceOfflineRecord.getId());
+        boolean result = this.updateById(deviceOfflineRecord);
+        // 修改设备时新旧设备都需重建
+        Set<Integer> deviceIds = new TreeSet<>();
+        if (oldRecord != null && oldRecord.getDeviceId() != null) {
+            deviceIds.add(oldRecord.getDeviceId());
+        }
+        if (deviceOfflineRecord.getDeviceId() != null) {
+            deviceIds.add(deviceOfflineRecord.getDeviceId());
+        }
+        deviceIds.forEach(deviceSessionService::rebuild);
+        return result;
+    }
+
+    /**
+     * 删除上下线记录，并重建所属设备的运行时段
+     *
+     * @param ids 主键ID
+     * @return 结果
+     */
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public boolean removeRecords(List<Integer> ids) {
+        Set<Integer> deviceIds = new TreeSet<>();
+        for (DeviceOfflineRecord record : this.listByIds(ids)) {
+            if (record.getDeviceId() != null) {
+                deviceIds.add(record.getDeviceId());
+            }
+        }
+        boolean result = this.removeByIds(ids);
+        deviceIds.forEach(deviceSessionService::rebuild);
+        return result;
+    }
 }
@@ -0,0 +1,265 @@
+package cc.mrbird.febs.cos.service.impl;
+
+import cc.mrbird.febs.common.utils.IntObjectMap;
+import cc.mrbird.febs.cos.cache.DeviceSessionColumns;
+import cc.mrbird.febs.cos.cache.ElectricityReportCache;
+import cc.mrbird.febs.cos.dao.DeviceEnergyDailyMapper;
+import cc.mrbird.febs.cos.dao.DeviceOfflineRecordMapper;
+import cc.mrbird.febs.cos.dao.DeviceSessionColumnReader;
+import cc.mrbird.febs.cos.dao.DeviceSessionMapper;
+import cc.mrbird.febs.cos.entity.DeviceEnergyDaily;
+import cc.mrbird.febs.cos.entity.DeviceInfo;
+import cc.mrbird.febs.cos.entity.DeviceOfflineRecord;
+import cc.mrbird.febs.cos.entity.DeviceSession;
+import cc.mrbird.febs.cos.service.IDeviceSessionService;
+import cn.hutool.core.collection.CollectionUtil;
+import cn.hutool.core.date.DateUtil;
+import cn.hutool.core.util.StrUtil;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+
+/**
+ * 设备运行时段 实现层
+ * 上线记录开启时段，下线记录关闭时段；已在线时的重复上线、未在线时的下线不改变时段
+ *
+ * @author FanK
+ */
+@Service
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class DeviceSessionServiceImpl extends ServiceImpl<DeviceSessionMapper, DeviceSession> implements IDeviceSessionService {
+
+    /**
+     * 台账每条语句的行数
+     */
+    private static final int LEDGER_BATCH_SIZE = 500;
+
+    private final DeviceOfflineRecordMapper deviceOfflineRecordMapper;
+
+    private final DeviceEnergyDailyMapper deviceEnergyDailyMapper;
+
+    private final DeviceSessionColumnReader deviceSessionColumnReader;
+
+    private final ElectricityReportCache electricityReportCache;
+
+    /**
+     * 按新写入的上下线记录开启、关闭运行时段
+     *
+     * @param recordList 上下线记录，按发生顺序
+     */
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void apply(List<DeviceOfflineRecord> recordList) {
+        if (CollectionUtil.isEmpty(recordList)) {
+            return;
+        }
+        // 按设备ID顺序加锁，避免并发写入时死锁
+        Map<Integer, List<DeviceOfflineRecord>> recordMap = new TreeMap<>();
+        for (DeviceOfflineRecord record : recordList) {
+            if (record.getDeviceId() != null) {
+                recordMap.computeIfAbsent(record.getDeviceId(), key -> new ArrayList<>()).add(record);
+            }
+        }
+        Set<Integer> ownerIds = new HashSet<>();
+        recordMap.forEach((deviceId, deviceRecords) -> {
+            DeviceInfo device = baseMapper.lockDevice(deviceId);
+            Double power = device == null ? null : Double.valueOf(device.getPower());
+            if (device != null) {
+                ownerIds.add(device.getUserId());
+            }
+            DeviceSession open = this.getOne(Wrappers.<DeviceSession>lambdaQuery()
+                    .eq(DeviceSession::getDeviceId, deviceId)
+                    .isNull(DeviceSession::getEndDate)
+                    .orderByDesc(DeviceSession::getStartDate)
+                    .last("limit 1"));
+            for (DeviceOfflineRecord record : deviceRecords) {
+                open = transition(open, record, power, true);
+            }
+        });
+        // 提交后失效所属用户的用电分析报告
+        electricityReportCache.invalidate(ownerIds);
+    }
+
+    /**
+     * 按设备全部上下线记录重建运行时段及每日耗电台账
+     *
+     * @param deviceId 设备ID
+     */
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void rebuild(Integer deviceId) {
+        DeviceInfo device = baseMapper.lockDevice(deviceId);
+        Double power = device == null ? null : Double.valueOf(device.getPower());
+        this.remove(Wrappers.<DeviceSession>lambdaQuery().eq(DeviceSession::getDeviceId, deviceId));
+        List<DeviceOfflineRecord> recordList = deviceOfflineRecordMapper.selectList(Wrappers.<DeviceOfflineRecord>lambdaQuery()
+                .eq(DeviceOfflineRecord::getDeviceId, deviceId)
+                .orderByAsc(DeviceOfflineRecord::getOnlineDate)
+                .orderByAsc(DeviceOfflineRecord::getId));
+        List<DeviceSession> sessionList = new ArrayList<>();
+        DeviceSession open = null;
+        for (DeviceOfflineRecord record : recordList) {
+            DeviceSession next = transition(open, record, power, false);
+            if (next != null && next != open) {
+                sessionList.add(next);
+            }
+            open = next;
+        }
+        if (!sessionList.isEmpty()) {
+            this.saveBatch(sessionList);
+        }
+        writeLedger(deviceId, sessionList);
+        if (device != null) {
+            electricityReportCache.invalidate(Collections.singletonList(device.getUserId()));
+        }
+    }
+
+    /**
+     * 覆盖设备的台账，运行中的时段不计入
+     */
+    private void writeLedger(Integer deviceId, List<DeviceSession> sessionList) {
+        deviceEnergyDailyMapper.deleteByDevice(deviceId);
+        Map<String, DeviceEnergyDaily> dailyMap = new TreeMap<>();
+        for (DeviceSession session : sessionList) {
+            if (session.getEndDate() == null) {
+                continue;
+            }
+            for (DeviceEnergyDaily daily : DeviceEnergyDaily.split(deviceId, DateUtil.parseDateTime(session.getStartDate()).getTime(),
+                    DateUtil.parseDateTime(session.getEndDate()).getTime(), session.getEnergy() == null ? 0 : session.getEnergy())) {
+                dailyMap.merge(daily.getDay(), daily, (a, b) -> a
+                        .setEnergy(a.getEnergy() + b.getEnergy())
+                        .setRunSeconds(a.getRunSeconds() + b.getRunSeconds())
+                        .setSessionCount(a.getSessionCount() + b.getSessionCount()));
+            }
+        }
+        List<DeviceEnergyDaily> dailyList = new ArrayList<>(dailyMap.values());
+        for (int i = 0; i < dailyList.size(); i += LEDGER_BATCH_SIZE) {
+            deviceEnergyDailyMapper.addBatch(dailyList.subList(i, Math.min(i + LEDGER_BATCH_SIZE, dailyList.size())));
+        }
+    }
+
+    /**
+     * 获取设备每日耗电量，运行中的时段按设备当前功率计算到当前时间并按天计入
+     *
+     * @param deviceId 设备ID
+     * @param power    设备功率（瓦）
+     * @param fromDay  开始日期（含）
+     * @param toDay    结束日期（含）
+     * @return 每日耗电台账，按日期升序
+     */
+    @Override
+    public List<DeviceEnergyDaily> selectDailyEnergy(Integer deviceId, double power, String fromDay, String toDay) {
+        List<DeviceEnergyDaily> dailyList = deviceEnergyDailyMapper.selectRange(deviceId, fromDay, toDay);
+        DeviceSession open = this.getOne(Wrappers.<DeviceSession>lambdaQuery()
+                .eq(DeviceSession::getDeviceId, deviceId)
+                .isNull(DeviceSession::getEndDate)
+                .orderByDesc(DeviceSession::getStartDate)
+                .last("limit 1"));
+        if (open == null) {
+            return dailyList;
+        }
+        long now = System.currentTimeMillis();
+        Map<String, DeviceEnergyDaily> dailyMap = new TreeMap<>();
+        for (DeviceEnergyDaily daily : dailyList) {
+            dailyMap.put(daily.getDay(), daily);
+        }
+        for (DeviceEnergyDaily live : DeviceEnergyDaily.split(deviceId, DateUtil.parseDateTime(open.getStartDate()).getTime(),
+                now, power * open.runHours(now) / 1000.0)) {
+            if (live.getDay().compareTo(fromDay) < 0 || live.getDay().compareTo(toDay) > 0) {
+                continue;
+            }
+            dailyMap.merge(live.getDay(), live, (a, b) -> a
+                    .setEnergy(a.getEnergy() + b.getEnergy())
+                    .setRunSeconds(a.getRunSeconds() + b.getRunSeconds())
+                    .setSessionCount(a.getSessionCount() + b.getSessionCount()));
+        }
+        return new ArrayList<>(dailyMap.values());
+    }
+
+    /**
+     * 处理一条上下线记录
+     *
+     * @param open   当前运行中的时段
+     * @param record 上下线记录
+     * @param power  设备功率（瓦）
+     * @param write  是否立即写入数据库，重建时由调用方批量写入
+     * @return 处理后运行中的时段
+     */
+    private DeviceSession transition(DeviceSession open, DeviceOfflineRecord record, Double power, boolean write) {
+        if (StrUtil.isEmpty(record.getOnlineDate())) {
+            return open;
+        }
+        if ("1".equals(record.getType()) && open == null) {
+            DeviceSession session = new DeviceSession().setDeviceId(record.getDeviceId()).setStartDate(record.getOnlineDate());
+            if (write) {
+                this.save(session);
+            }
+            return session;
+        }
+        if ("0".equals(record.getType()) && open != null) {
+            long duration = Math.max(0, DateUtil.parseDateTime(record.getOnlineDate()).getTime()
+                    - DateUtil.parseDateTime(open.getStartDate()).getTime()) / 1000;
+            open.setEndDate(record.getOnlineDate())
+                    .setDuration(duration)
+                    .setEnergy((power == null ? 0 : power) * duration / 3600.0 / 1000.0);
+            if (write) {
+                this.updateById(open);
+                // 时段结束时按天累加台账
+                deviceEnergyDailyMapper.addBatch(DeviceEnergyDaily.split(open.getDeviceId(),
+                        DateUtil.parseDateTime(open.getStartDate()).getTime(),
+                        DateUtil.parseDateTime(open.getEndDate()).getTime(), open.getEnergy()));
+            }
+            return null;
+        }
+        return open;
+    }
+
+    /**
+     * 获取设备运行时段
+     *
+     * @param deviceIds 设备ID
+     * @param from      上线时间开始（含），为空时不限
+     * @param to        上线时间结束（不含），为空时不限
+     * @return 运行时段，按上线时间升序
+     */
+    @Override
+    public List<DeviceSession> selectSessions(Collection<Integer> deviceIds, String from, String to) {
+        if (CollectionUtil.isEmpty(deviceIds)) {
+            return new ArrayList<>();
+        }
+        return this.list(Wrappers.<DeviceSession>lambdaQuery()
+                .in(DeviceSession::getDeviceId, deviceIds)
+                .ge(StrUtil.isNotEmpty(from), DeviceSession::getStartDate, from)
+                .lt(StrUtil.isNotEmpty(to), DeviceSession::getStartDate, to)
+                .orderByAsc(DeviceSession::getStartDate));
+    }
+
+    /**
+     * 按列读取设备全部运行时段，用于统计
+     *
+     * @param deviceIds 设备ID，时段的设备下标为其在列表中的位置
+     * @return 运行时段列
+     */
+    @Override
+    public DeviceSessionColumns selectSessionColumns(List<Integer> deviceIds) {
+        DeviceSessionColumns columns = new DeviceSessionColumns(1024);
+        if (CollectionUtil.isEmpty(deviceIds)) {
+            return columns;
+        }
+        IntObjectMap<Integer> indexMap = new IntObjectMap<>(deviceIds.size());
+        for (int i = 0; i < deviceIds.size(); i++) {
+            indexMap.put(deviceIds.get(i), i);
+        }
+        deviceSessionColumnReader.read(deviceIds, (deviceId, startLocal, durationSec, energyKwh) -> {
+            Integer index = indexMap.get(deviceId);
+            if (index != null) {
+                columns.add(index, startLocal, durationSec, energyKwh);
+            }
+        });
+        return columns;
+    }
+}
@@ -1,5 +1,11 @@
 package cc.mrbird.febs.cos.service.impl;
 
+import cc.mrbird.febs.cos.cache.DeviceAlertRegistry;
+import cc.mrbird.febs.cos.cache.DeviceHistoryCache;
+import cc.mrbird.febs.cos.cache.DeviceProfile;
+import cc.mrbird.febs.cos.cache.DeviceStateStore;
+import cc.mrbird.febs.cos.cache.DeviceValueSketchStore;
+import cc.mrbird.febs.cos.cache.HomeDataSnapshot;
 import cc.mrbird.febs.cos.dao.UserInfoMapper;
 import cc.mrbird.febs.cos.entity.*;
 import cc.mrbird.febs.cos.dao.DeviceTypeMapper;
@@ -7,6 +13,7 @@ import cc.mrbird.febs.cos.service.*;
 import cn.hutool.core.collection.CollectionUtil;
 import cn.hutool.core.date.DateUnit;
 import cn.hutool.core.date.DateUtil;
+import cn.hutool.core.util.NumberUtil;
 import cn.hutool.core.util.RandomUtil;
 import cn.hutool.core.util.StrUtil;
 import cn.hutool.json.JSONUtil;
@@ -19,6 +26,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -44,6 +53,18 @@ public class DeviceTypeServiceImpl extends ServiceImpl<DeviceTypeMapper, DeviceT
 
     private final IBulletinInfoService bulletinInfoService;
 
+    private final DeviceAlertRegistry deviceAlertRegistry;
+
+    private final DeviceStateStore deviceStateStore;
+
+    private final IDeviceHistoryRollupService deviceHistoryRollupService;
+
+    private final DeviceHistoryCache deviceHistoryCache;
+
+    private final HomeDataSnapshot homeDataSnapshot;
+
+    private final DeviceValueSketchStore deviceValueSketchStore;
+
 
     /**
      * 分页获取设备类型信息
@@ -58,47 +79,13 @@ public class DeviceTypeServiceImpl extends ServiceImpl<DeviceTypeMapper, DeviceT
     }
 
     /**
-     * 获取首页统计数据
+     * 获取首页统计数据（内存快照）
      *
      * @return 结果
      */
     @Override
     public LinkedHashMap<String, Object> homeData() {
-        // 返回数据
-        LinkedHashMap<String, Object> result = new LinkedHashMap<String, Object>() {
-            {
-                put("userNum", 0);
-                put("deviceNum", 0);
-                put("historyNum", 0);
-                put("alertNum", 0);
-            }
-        };
-
-        result.put("userNum", userInfoMapper.selectCount(Wrappers.<UserInfo>lambdaQuery()));
-        result.put("deviceNum", deviceInfoService.count(Wrappers.<DeviceInfo>lambdaQuery()));
-        result.put("historyNum", deviceHistoryInfoService.count(Wrappers.<DeviceHistoryInfo>lambdaQuery()));
-        result.put("alertNum", messageInfoService.count());
-
-        int year = DateUtil.thisYear();
-        int month = DateUtil.thisMonth() + 1;
-        // 本月数据上报数量
-        result.put("monthNum", baseMapper.selectDataByMonth(year, month));
-        // 本月数据报警数量
-        result.put("monthAlertNum", baseMapper.selectAlertByMonth(year, month));
-
-        // 本年数据上报数量
-        result.put("yearNum", baseMapper.selectDataByMonth(year, null));
-        // 本年数据报警数量
-        result.put("yearAlertNum", baseMapper.selectAlertByMonth(year, null));
-
-        // 近十天数据上报数量
-        result.put("numDayList", baseMapper.selectDataNumWithinDays(null));
-        // 近十天数据上报数量
-        result.put("alertDayList", baseMapper.selectAlertNumWithinDays(null));
-        // 公告信息
-        result.put("bulletin", bulletinInfoService.list(Wrappers.<BulletinInfo>lambdaQuery().eq(BulletinInfo::getRackUp, 1)));
-
-        return result;
+        return homeDataSnapshot.get().getData();
     }
 
     @Override
@@ -108,31 +95,89 @@ public class DeviceTypeServiceImpl extends ServiceImpl<DeviceTypeMapper, DeviceT
         if (historyInfo == null) {
             return;
         }
+        this.setDeviceRecordBatch(Collections.singletonList(historyInfo));
+    }
 
-        if (StrUtil.isNotEmpty(historyInfo.getValueType()) && "event".equals(historyInfo.getValueType())) {
-            deviceInfoService.eventCheck(historyInfo.getEventId());
-        } else {
-            // 获取此设备信息
-            DeviceInfo deviceInfo = deviceInfoService.getById(historyInfo.getDeviceId());
-            // 获取设备报警值
-            DeviceAlertInfo alert = deviceAlertInfoService.getOne(Wrappers.<DeviceAlertInfo>lambdaQuery().eq(DeviceAlertInfo::getDeviceId, historyInfo.getDeviceId()).eq(DeviceAlertInfo::getType, "2"));
-
-            deviceInfo.setDeviceValue(historyInfo.getDeviceValue());
-            if (alert != null) {
-                historyInfo.setAlertValue(String.valueOf(alert.getScore()));
-                if (Integer.parseInt(historyInfo.getDeviceValue()) >= alert.getScore()) {
+    /**
+     * 批量处理设备上报数据
+     *
+     * @param historyList 上报数据
+     */
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void setDeviceRecordBatch(List<DeviceHistoryInfo> historyList) {
+        if (CollectionUtil.isEmpty(historyList)) {
+            return;
+        }
+        // 上报数据
+        List<DeviceHistoryInfo> toSaveList = new ArrayList<>(historyList.size());
+        // 报警消息
+        List<MessageInfo> messageInfoList = new ArrayList<>();
+        for (DeviceHistoryInfo historyInfo : historyList) {
+            if (StrUtil.isNotEmpty(historyInfo.getValueType()) && "event".equals(historyInfo.getValueType())) {
+                deviceInfoService.eventCheck(historyInfo.getEventId());
+                continue;
+            }
+            if (historyInfo.getDeviceId() == null) {
+                continue;
+            }
+            // 获取此设备信息及报警值（内存注册表，无数据库查询）
+            DeviceProfile profile = deviceAlertRegistry.get(historyInfo.getDeviceId());
+            if (profile == null) {
+                continue;
+            }
+            // 兼容只有字符串设备值的调用方
+            if (historyInfo.getValueNum() == null && NumberUtil.isNumber(historyInfo.getDeviceValue())) {
+                historyInfo.setValueNum(Double.valueOf(historyInfo.getDeviceValue()));
+            }
+            if (profile.isAlertEnabled()) {
+                historyInfo.setAlertValue(String.valueOf(profile.getAlertScore()));
+                if (historyInfo.getValueNum() != null && profile.exceeds(historyInfo.getValueNum())) {
                     // 添加报警消息
                     MessageInfo messageInfo = new MessageInfo();
                     messageInfo.setCreateDate(DateUtil.formatDateTime(new Date()));
-                    messageInfo.setSendUser(deviceInfo.getUserId());
-                    messageInfo.setContent("你好，您的设备 " + deviceInfo.getName() + " 触发自定义报警，报警值为" + historyInfo.getDeviceValue() +"，请尽快查看处理");
+                    messageInfo.setSendUser(profile.getUserId());
+                    messageInfo.setContent("你好，您的设备 " + profile.getName() + " 触发自定义报警，报警值为" + historyInfo.getDeviceValue() +"，请尽快查看处理");
                     messageInfo.setReadStatus(0);
-                    messageInfoService.save(messageInfo);
+                    messageInfoList.add(messageInfo);
+                }
+            }
+            toSaveList.add(historyInfo);
+            // 设备当前值由状态存储合并后定时回写
+            deviceStateStore.update(profile.getDeviceId(), historyInfo.getDeviceValue(), historyInfo.getCreateDate());
+        }
+        deviceHistoryInfoService.insertBatch(toSaveList);
+        // 同一事务内累加分钟/小时/天汇总
+        deviceHistoryRollupService.accumulate(toSaveList);
+        if (!messageInfoList.isEmpty()) {
+            messageInfoService.saveBatch(messageInfoList);
+        }
+        // 提交成功后再写入最近数据缓存、累加小时草图和首页统计，回滚重放时不会重复
+        int alertCount = messageInfoList.size();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    afterRecordCommit(toSaveList, alertCount);
                 }
+            });
+        } else {
+            afterRecordCommit(toSaveList, alertCount);
+        }
+    }
+
+    private void afterRecordCommit(List<DeviceHistoryInfo> toSaveList, int alertCount) {
+        deviceHistoryCache.append(toSaveList);
+        deviceValueSketchStore.add(toSaveList);
+        // 与天汇总的上报次数口径一致，只统计有数值的数据
+        int numericCount = 0;
+        for (DeviceHistoryInfo historyInfo : toSaveList) {
+            if (historyInfo.getValueNum() != null) {
+                numericCount++;
             }
-            deviceHistoryInfoService.save(historyInfo);
-            deviceInfoService.updateById(deviceInfo);
         }
+        homeDataSnapshot.recordHistory(numericCount);
+        homeDataSnapshot.recordAlert(alertCount);
     }
 
     /**
@@ -160,14 +205,16 @@ public class DeviceTypeServiceImpl extends ServiceImpl<DeviceTypeMapper, DeviceT
             historyInfo.setCreateDate(DateUtil.formatDateTime(new Date()));
             historyInfo.setDeviceId(device.getId());
             // 设置设备值
-            historyInfo.setDeviceValue(StrUtil.toString(RandomUtil.randomInt(5, 38)));
+            int value = RandomUtil.randomInt(5, 38);
+            historyInfo.setDeviceValue(StrUtil.toString(value));
+            historyInfo.setValueNum((double) value);
             device.setDeviceValue(historyInfo.getDeviceValue());
 
             // 获取此设备报警配置
             DeviceAlertInfo alert = deviceAlertMap.get(device.getId());
             if (alert != null) {
                 historyInfo.setAlertValue(String.valueOf(alert.getScore()));
-                if (Integer.parseInt(historyInfo.getDeviceValue()) >= alert.getScore()) {
+                if (value >= alert.getScore()) {
                     // 添加报警消息
                     MessageInfo messageInfo = new MessageInfo();
                     messageInfo.setCreateDate(DateUtil.formatDateTime(new Date()));
@@ -217,5 +264,6 @@ public class DeviceTypeServiceImpl extends ServiceImpl<DeviceTypeMapper, DeviceT
             }
         }
         messageInfoService.saveBatch(messageInfoList);
+        homeDataSnapshot.recordAlert(messageInfoList.size());
     }
 }
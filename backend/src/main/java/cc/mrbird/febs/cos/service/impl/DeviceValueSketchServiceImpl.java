@@ -0,0 +1,116 @@
+package cc.mrbird.febs.cos.service.impl;
+
+import cc.mrbird.febs.cos.cache.DeviceValueSketch;
+import cc.mrbird.febs.cos.cache.DeviceValueSketchStore;
+import cc.mrbird.febs.cos.dao.DeviceValueSketchMapper;
+import cc.mrbird.febs.cos.entity.DeviceValueSketchInfo;
+import cc.mrbird.febs.cos.service.IDeviceValueSketchService;
+import cn.hutool.core.date.DateUtil;
+import cn.hutool.core.util.NumberUtil;
+import cn.hutool.core.util.StrUtil;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+
+/**
+ * 设备值小时分位数草图 实现层
+ *
+ * @author FanK
+ */
+@Service
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class DeviceValueSketchServiceImpl implements IDeviceValueSketchService {
+
+    /**
+     * 每条语句的草图数量
+     */
+    private static final int BATCH_SIZE = 500;
+
+    private final DeviceValueSketchMapper deviceValueSketchMapper;
+
+    private final DeviceValueSketchStore deviceValueSketchStore;
+
+    /**
+     * 将草图增量合并到数据库，先锁定已有草图，合并后整体覆盖
+     *
+     * @param sketchMap 设备ID|统计时间 -> 草图增量
+     */
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void merge(Map<String, DeviceValueSketch> sketchMap) {
+        List<Map.Entry<String, DeviceValueSketch>> entryList = new ArrayList<>(sketchMap.entrySet());
+        for (int i = 0; i < entryList.size(); i += BATCH_SIZE) {
+            List<Map.Entry<String, DeviceValueSketch>> batch = entryList.subList(i, Math.min(i + BATCH_SIZE, entryList.size()));
+            List<DeviceValueSketchInfo> keyList = new ArrayList<>(batch.size());
+            for (Map.Entry<String, DeviceValueSketch> entry : batch) {
+                int split = entry.getKey().indexOf('|');
+                keyList.add(new DeviceValueSketchInfo()
+                        .setDeviceId(Integer.valueOf(entry.getKey().substring(0, split)))
+                        .setBucket(entry.getKey().substring(split + 1)));
+            }
+            Map<String, DeviceValueSketch> existMap = new HashMap<>();
+            for (DeviceValueSketchInfo exist : deviceValueSketchMapper.selectForUpdate(keyList)) {
+                existMap.put(DeviceValueSketchStore.key(exist.getDeviceId(), exist.getBucket()), DeviceValueSketch.fromBytes(exist.getSketch()));
+            }
+            for (int j = 0; j < batch.size(); j++) {
+                DeviceValueSketch sketch = new DeviceValueSketch()
+                        .merge(existMap.get(batch.get(j).getKey()))
+                        .merge(batch.get(j).getValue());
+                keyList.get(j).setCnt(sketch.getCount()).setMaxValue(sketch.getMax()).setSketch(sketch.toBytes());
+            }
+            deviceValueSketchMapper.upsertBatch(keyList);
+        }
+    }
+
+    /**
+     * 获取设备值分位数，多个设备、多个小时的草图合并后计算
+     *
+     * @param deviceIds 设备ID，为空时不限设备
+     * @param from      开始时间，默认当天
+     * @param to        结束时间，默认开始时间后一天
+     * @param group     分组 hour/day/all
+     * @return 时间、上报次数、p50、p95、p99、最大值
+     */
+    @Override
+    public List<LinkedHashMap<String, Object>> selectPercentile(List<Integer> deviceIds, String from, String to, String group) {
+        if (StrUtil.isEmpty(from)) {
+            from = DateUtil.formatDateTime(DateUtil.beginOfDay(new Date()));
+        }
+        if (StrUtil.isEmpty(to)) {
+            to = DateUtil.formatDateTime(DateUtil.offsetDay(DateUtil.parse(from), 1));
+        }
+        // 统计时间截取到分组粒度作为分组键
+        int keyLength = "day".equals(group) ? 10 : "all".equals(group) ? 0 : 13;
+        String allKey = from;
+        TreeMap<String, DeviceValueSketch> groupMap = new TreeMap<>();
+        for (DeviceValueSketchInfo sketchInfo : deviceValueSketchMapper.selectSketch(deviceIds, from, to)) {
+            String key = keyLength == 0 ? allKey : sketchInfo.getBucket().substring(0, keyLength);
+            groupMap.computeIfAbsent(key, k -> new DeviceValueSketch()).merge(DeviceValueSketch.fromBytes(sketchInfo.getSketch()));
+        }
+        // 尚未写入数据库的增量
+        deviceValueSketchStore.forEachPending(deviceIds, from, to, (bucket, sketch) -> {
+            String key = keyLength == 0 ? allKey : bucket.substring(0, keyLength);
+            groupMap.computeIfAbsent(key, k -> new DeviceValueSketch()).merge(sketch);
+        });
+
+        List<LinkedHashMap<String, Object>> resultList = new ArrayList<>(groupMap.size());
+        groupMap.forEach((key, sketch) -> {
+            LinkedHashMap<String, Object> item = new LinkedHashMap<>();
+            item.put("date", keyLength == 13 ? key + ":00" : key);
+            item.put("count", sketch.getCount());
+            item.put("p50", round(sketch.quantile(0.5)));
+            item.put("p95", round(sketch.quantile(0.95)));
+            item.put("p99", round(sketch.quantile(0.99)));
+            item.put("max", round(sketch.getMax()));
+            resultList.add(item);
+        });
+        return resultList;
+    }
+
+    private static Double round(Double value) {
+        return value == null ? null : NumberUtil.round(value, 2).doubleValue();
+    }
+}
@@ -0,0 +1,145 @@
+package cc.mrbird.febs.cos.service.impl;
+
+import cc.mrbird.febs.common.properties.FebsProperties;
+import cc.mrbird.febs.cos.cache.ElectricityReportCache;
+import cc.mrbird.febs.cos.dao.ElectricityReportMapper;
+import cc.mrbird.febs.cos.entity.DeviceElectricityStats;
+import cc.mrbird.febs.cos.entity.ElectricityDeviceReport;
+import cc.mrbird.febs.cos.entity.ElectricityReport;
+import cc.mrbird.febs.cos.service.IElectricityReportService;
+import cn.hutool.core.date.DateUtil;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * 用电分析报告 实现层
+ *
+ * @author FanK
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class ElectricityReportServiceImpl extends ServiceImpl<ElectricityReportMapper, ElectricityReport> implements IElectricityReportService {
+
+    /**
+     * 每条语句的用户报告数量，报告较大时避免单条语句过长
+     */
+    private static final int BATCH_SIZE = 100;
+
+    private static final TypeReference<LinkedHashMap<String, Object>> REPORT_TYPE = new TypeReference<LinkedHashMap<String, Object>>() {
+    };
+
+    private final ElectricityReportCache electricityReportCache;
+
+    private final FebsProperties febsProperties;
+
+    private final ObjectMapper objectMapper;
+
+    /**
+     * 保存批量生成的用户报告及其中的设备统计，报告按接口返回的格式序列化
+     *
+     * @param batchDate 批次开始时间
+     * @param reportMap 用户ID（user_info.id） -> 报告
+     */
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    @SuppressWarnings("unchecked")
+    public void saveReports(String batchDate, Map<Integer, LinkedHashMap<String, Object>> reportMap) {
+        String now = DateUtil.formatDateTime(new Date());
+        List<ElectricityReport> reportList = new ArrayList<>(BATCH_SIZE);
+        List<ElectricityDeviceReport> deviceReportList = new ArrayList<>();
+        for (Map.Entry<Integer, LinkedHashMap<String, Object>> entry : reportMap.entrySet()) {
+            List<DeviceElectricityStats> statsList = (List<DeviceElectricityStats>) entry.getValue()
+                    .getOrDefault("deviceStatistics", Collections.emptyList());
+            int sessionCount = 0;
+            double totalConsumption = 0;
+            for (DeviceElectricityStats stats : statsList) {
+                sessionCount += stats.getSessionCount();
+                totalConsumption += stats.getTotalConsumption();
+                deviceReportList.add(new ElectricityDeviceReport()
+                        .setDeviceId(stats.getDeviceId())
+                        .setUserId(entry.getKey())
+                        .setSessionCount(stats.getSessionCount())
+                        .setTotalRunTime(stats.getTotalRunTime())
+                        .setAvgRunTime(stats.getAvgRunTime())
+                        .setMaxRunTime(stats.getMaxRunTime())
+                        .setMinRunTime(stats.getMinRunTime())
+                        .setStdDev(stats.getStdDev())
+                        .setTotalConsumption(stats.getTotalConsumption())
+                        .setBatchDate(batchDate));
+            }
+            try {
+                reportList.add(new ElectricityReport()
+                        .setUserId(entry.getKey())
+                        .setDeviceCount(statsList.size())
+                        .setSessionCount(sessionCount)
+                        .setTotalConsumption(totalConsumption)
+                        .setReport(objectMapper.writeValueAsString(entry.getValue()))
+                        .setBatchDate(batchDate)
+                        .setCreateDate(now));
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("用电分析报告序列化失败，用户ID：" + entry.getKey(), e);
+            }
+            if (reportList.size() >= BATCH_SIZE) {
+                baseMapper.upsertBatch(reportList);
+                reportList.clear();
+            }
+        }
+        if (!reportList.isEmpty()) {
+            baseMapper.upsertBatch(reportList);
+        }
+        for (int i = 0; i < deviceReportList.size(); i += BATCH_SIZE * 5) {
+            baseMapper.upsertDeviceBatch(deviceReportList.subList(i, Math.min(i + BATCH_SIZE * 5, deviceReportList.size())));
+        }
+    }
+
+    /**
+     * 批次全部完成后删除之前批次遗留的报告
+     *
+     * @param batchDate 批次开始时间
+     */
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void removeBefore(String batchDate) {
+        baseMapper.deleteBefore(batchDate);
+        baseMapper.deleteDeviceBefore(batchDate);
+    }
+
+    /**
+     * 获取仍然有效的批量报告
+     *
+     * @param userId 用户ID（user_info.id）
+     * @return 报告，没有或已过期时为 null
+     */
+    @Override
+    public LinkedHashMap<String, Object> selectFreshReport(Integer userId) {
+        if (febsProperties.getReport().getMaxAge() <= 0) {
+            return null;
+        }
+        ElectricityReport report = this.getById(userId);
+        if (report == null) {
+            return null;
+        }
+        long batchTime = DateUtil.parseDateTime(report.getBatchDate()).getTime();
+        if (System.currentTimeMillis() - batchTime > febsProperties.getReport().getMaxAge() * 3600000L
+                || !electricityReportCache.unchangedSince(userId, batchTime)) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(report.getReport(), REPORT_TYPE);
+        } catch (IOException e) {
+            log.warn("用电分析报告解析失败，用户ID：{}", userId, e);
+            return null;
+        }
+    }
+}
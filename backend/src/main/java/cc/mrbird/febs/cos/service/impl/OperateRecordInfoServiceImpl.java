@@ -1,5 +1,6 @@
 package cc.mrbird.febs.cos.service.impl;
 
+import cc.mrbird.febs.common.domain.SeekRequest;
 import cc.mrbird.febs.cos.entity.OperateRecordInfo;
 import cc.mrbird.febs.cos.dao.OperateRecordInfoMapper;
 import cc.mrbird.febs.cos.service.IOperateRecordInfoService;
@@ -9,6 +10,7 @@ import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import org.springframework.stereotype.Service;
 
 import java.util.LinkedHashMap;
+import java.util.List;
 
 /**
  * 操作记录 实现层
@@ -29,4 +31,18 @@ public class OperateRecordInfoServiceImpl extends ServiceImpl<OperateRecordInfoM
     public IPage<LinkedHashMap<String, Object>> selectOperateRecordPage(Page<OperateRecordInfo> page, OperateRecordInfo operateRecordInfo) {
         return baseMapper.selectOperateRecordPage(page, operateRecordInfo);
     }
+
+    /**
+     * 游标分页获取操作记录信息
+     *
+     * @param seek              游标及总数统计方式
+     * @param operateRecordInfo 操作记录信息
+     * @return 记录、是否还有下一页、下一页游标，按需返回总数
+     */
+    @Override
+    public LinkedHashMap<String, Object> selectOperateRecordSeek(SeekRequest seek, OperateRecordInfo operateRecordInfo) {
+        List<LinkedHashMap<String, Object>> records = baseMapper.selectOperateRecordSeek(operateRecordInfo, seek);
+        Long total = seek.needCount() ? baseMapper.selectOperateRecordSeekCount(operateRecordInfo, seek.getCountLimit()) : null;
+        return seek.toResult(records, "create_date", total);
+    }
 }
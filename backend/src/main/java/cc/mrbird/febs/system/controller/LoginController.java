@@ -48,6 +48,13 @@ public class LoginController {
     private FebsProperties properties;
     @Autowired
     private ObjectMapper mapper;
+    @Autowired
+    private QueryFanOut queryFanOut;
+
+    /**
+     * 首页统计查询超时时间（毫秒）
+     */
+    private static final long INDEX_QUERY_TIMEOUT = 3000;
 
     @PostMapping("/login")
     @Limit(key = "login", period = 60, count = 20, name = "登录接口", prefix = "limit")
@@ -91,21 +98,21 @@ public class LoginController {
 
     @GetMapping("index/{username}")
     public FebsResponse index(@NotBlank(message = "{required}") @PathVariable String username) {
-        Map<String, Object> data = new HashMap<>();
-        // 获取系统访问记录
-        Long totalVisitCount = loginLogMapper.findTotalVisitCount();
-        data.put("totalVisitCount", totalVisitCount);
-        Long todayVisitCount = loginLogMapper.findTodayVisitCount();
-        data.put("todayVisitCount", todayVisitCount);
-        Long todayIp = loginLogMapper.findTodayIp();
-        data.put("todayIp", todayIp);
-        // 获取近期系统访问记录
-        List<Map<String, Object>> lastSevenVisitCount = loginLogMapper.findLastSevenDaysVisitCount(null);
-        data.put("lastSevenVisitCount", lastSevenVisitCount);
         User param = new User();
         param.setUsername(username);
-        List<Map<String, Object>> lastSevenUserVisitCount = loginLogMapper.findLastSevenDaysVisitCount(param);
-        data.put("lastSevenUserVisitCount", lastSevenUserVisitCount);
+        // 各项统计互不依赖，并行查询
+        QueryFanOut.Batch batch = queryFanOut.batch(INDEX_QUERY_TIMEOUT)
+                // 获取系统访问记录
+                .add("totalVisitCount", loginLogMapper::findTotalVisitCount, null)
+                .add("todayVisitCount", loginLogMapper::findTodayVisitCount, null)
+                .add("todayIp", loginLogMapper::findTodayIp, null)
+                // 获取近期系统访问记录
+                .add("lastSevenVisitCount", () -> loginLogMapper.findLastSevenDaysVisitCount(null), Collections.emptyList())
+                .add("lastSevenUserVisitCount", () -> loginLogMapper.findLastSevenDaysVisitCount(param), Collections.emptyList());
+        Map<String, Object> data = batch.join();
+        if (!batch.failed().isEmpty()) {
+            data.put("failed", batch.failed());
+        }
         return new FebsResponse().data(data);
     }
 
@@ -0,0 +1,92 @@
+package cc.mrbird.febs.common.mqtt;
+
+import cc.mrbird.febs.cos.entity.DeviceHistoryInfo;
+import cn.hutool.json.JSONUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 二进制帧解码基准：同样 count 条数据，分别以一个二进制帧、count 条 JSON 消息（字节扫描解码 / JSONUtil）解码
+ * 结果为每批 count 条的耗时
+ *
+ * @author FanK
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeviceFrameDecoderBenchmark {
+
+    @Param({"1", "64", "512"})
+    private int count;
+
+    private byte[] frame;
+
+    private byte[][] messages;
+
+    private final DeviceReading reading = new DeviceReading();
+
+    private final DeviceReadingDecoder decoder = new DeviceReadingDecoder();
+
+    @Setup
+    public void setup() {
+        long baseTime = 1714537845000L;
+        ByteBuffer buffer = ByteBuffer.allocate(DeviceFrameDecoder.HEADER_SIZE + count * DeviceFrameDecoder.RECORD_SIZE);
+        buffer.put((byte) 'X').put((byte) 'B').put(DeviceFrameDecoder.VERSION).putShort((short) count).putLong(baseTime);
+        messages = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            double value = 20 + i % 50 * 0.5;
+            buffer.putInt(1000 + i).putInt(i * 100).putDouble(value).put((byte) 0);
+            messages[i] = ("{\"deviceId\":" + (1000 + i) + ",\"deviceValue\":" + value + ",\"timestamp\":" + (baseTime + i * 100) + "}")
+                    .getBytes(StandardCharsets.UTF_8);
+        }
+        frame = buffer.array();
+    }
+
+    @Benchmark
+    public void frame(Blackhole bh) {
+        int n = DeviceFrameDecoder.count(frame);
+        for (int i = 0; i < n; i++) {
+            DeviceFrameDecoder.read(frame, i, reading);
+            bh.consume(reading.getValue());
+        }
+    }
+
+    @Benchmark
+    public void jsonDecoder(Blackhole bh) {
+        for (byte[] message : messages) {
+            decoder.decode(message);
+            bh.consume(decoder.reading().getValue());
+        }
+    }
+
+    @Benchmark
+    public void jsonUtil(Blackhole bh) {
+        for (byte[] message : messages) {
+            bh.consume(JSONUtil.toBean(new String(message, StandardCharsets.UTF_8), DeviceHistoryInfo.class));
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(DeviceFrameDecoderBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,66 @@
+package cc.mrbird.febs.common.mqtt;
+
+import cc.mrbird.febs.cos.entity.DeviceHistoryInfo;
+import cn.hutool.json.JSONUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MQTT 上报消息解码基准：字节扫描解码器对比原 JSONUtil.toBean 解析
+ *
+ * @author FanK
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeviceReadingDecoderBenchmark {
+
+    @Param({
+            "{\"deviceId\":1024,\"deviceValue\":36.5,\"createDate\":\"2024-05-01 12:30:45\"}",
+            "{\"deviceId\":\"1024\",\"deviceValue\":\"36.5\",\"timestamp\":1714537845000,\"valueType\":\"value\",\"remark\":\"x\"}",
+            "{\"valueType\":\"event\",\"eventId\":7,\"createDate\":\"2024-05-01 12:30:45\"}"
+    })
+    private String payload;
+
+    private byte[] bytes;
+
+    private final DeviceReadingDecoder decoder = new DeviceReadingDecoder();
+
+    @Setup
+    public void setup() {
+        bytes = payload.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public DeviceReading decoder() {
+        decoder.decode(bytes);
+        return decoder.reading();
+    }
+
+    @Benchmark
+    public DeviceHistoryInfo jsonUtil() {
+        return JSONUtil.toBean(new String(bytes, StandardCharsets.UTF_8), DeviceHistoryInfo.class);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(DeviceReadingDecoderBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,232 @@
+package cc.mrbird.febs.cos.cache;
+
+import cc.mrbird.febs.cos.entity.DeviceOfflineRecord;
+import cc.mrbird.febs.cos.entity.DeviceSession;
+import cn.hutool.core.date.DateUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 用电统计基准
+ * 读取：逐行构建 Map 再写入列存储，对比原始类型直接写入列存储
+ * 统计：最初按上下线记录配对的实现（每次请求解析日期字符串）、运行时段实体列表分组统计，对比 {@link DeviceSessionStats} 单遍统计
+ *
+ * @author FanK
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DeviceSessionStatsBenchmark {
+
+    private static final int DEVICE_COUNT = 200;
+
+    @Param({"100000", "1000000"})
+    private int sessions;
+
+    private int[] deviceIds;
+
+    private long[] starts;
+
+    private long[] durations;
+
+    private double[] energies;
+
+    private List<DeviceSession> sessionList;
+
+    private List<DeviceOfflineRecord> recordList;
+
+    private DeviceSessionColumns columns;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(1);
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        long base = 1700000000000L;
+        deviceIds = new int[sessions];
+        starts = new long[sessions];
+        durations = new long[sessions];
+        energies = new double[sessions];
+        sessionList = new ArrayList<>(sessions);
+        recordList = new ArrayList<>(sessions * 2);
+        columns = new DeviceSessionColumns(sessions);
+        for (int i = 0; i < sessions; i++) {
+            deviceIds[i] = random.nextInt(DEVICE_COUNT);
+            starts[i] = base + i * 60000L;
+            durations[i] = random.nextInt(20) == 0 ? DeviceSessionColumns.OPEN : random.nextInt(36000);
+            energies[i] = durations[i] < 0 ? 0 : durations[i] * 0.001;
+            DeviceSession session = new DeviceSession();
+            session.setDeviceId(deviceIds[i]);
+            session.setStartDate(format.format(new Date(starts[i])));
+            session.setDuration(durations[i] < 0 ? null : durations[i]);
+            session.setEnergy(durations[i] < 0 ? null : energies[i]);
+            sessionList.add(session);
+            columns.add(deviceIds[i], starts[i], durations[i], energies[i]);
+            recordList.add(new DeviceOfflineRecord().setDeviceId(deviceIds[i]).setType("1").setOnlineDate(session.getStartDate()));
+            if (durations[i] >= 0) {
+                recordList.add(new DeviceOfflineRecord().setDeviceId(deviceIds[i]).setType("0")
+                        .setOnlineDate(format.format(new Date(starts[i] + durations[i] * 1000))));
+            }
+        }
+        // 原查询按上线时间升序
+        recordList.sort(Comparator.comparing(DeviceOfflineRecord::getOnlineDate));
+    }
+
+    /**
+     * 原 MyBatis HashMap 结果行：每行装箱并创建 Map 后再拆箱写入列存储
+     */
+    @Benchmark
+    public DeviceSessionColumns readMapRows() {
+        DeviceSessionColumns out = new DeviceSessionColumns(1024);
+        for (int i = 0; i < sessions; i++) {
+            Map<String, Object> row = new HashMap<>();
+            row.put("device_id", deviceIds[i]);
+            row.put("start_local", starts[i]);
+            row.put("duration", durations[i] < 0 ? null : durations[i]);
+            row.put("energy", durations[i] < 0 ? null : energies[i]);
+            Number duration = (Number) row.get("duration");
+            Number energy = (Number) row.get("energy");
+            out.add(((Number) row.get("device_id")).intValue(), ((Number) row.get("start_local")).longValue(),
+                    duration == null ? DeviceSessionColumns.OPEN : duration.longValue(), energy == null ? 0 : energy.doubleValue());
+        }
+        return out;
+    }
+
+    /**
+     * 原始类型逐行写入列存储
+     */
+    @Benchmark
+    public DeviceSessionColumns readPrimitives() {
+        DeviceSessionColumns out = new DeviceSessionColumns(1024);
+        for (int i = 0; i < sessions; i++) {
+            out.add(deviceIds[i], starts[i], durations[i], energies[i]);
+        }
+        return out;
+    }
+
+    /**
+     * 最初实现（运行时段投影之前）：按设备分组上下线记录，设备统计、平均运行时长、总运行时长各配对一遍，
+     * 每次配对都用 DateUtil.parseDateTime 解析上线、下线时间；使用模式统计再解析、排序、配对一遍
+     */
+    @Benchmark
+    public void statsOfflineRecords(Blackhole bh) {
+        Map<Integer, List<DeviceOfflineRecord>> recordsByDevice = recordList.stream()
+                .collect(Collectors.groupingBy(DeviceOfflineRecord::getDeviceId));
+        for (List<DeviceOfflineRecord> deviceRecords : recordsByDevice.values()) {
+            // calculateDeviceElectricityStats
+            List<Double> runtimes = pairRuntimes(deviceRecords);
+            if (!runtimes.isEmpty()) {
+                double avg = runtimes.stream().mapToDouble(Double::doubleValue).average().orElse(0);
+                double variance = runtimes.stream().mapToDouble(runtime -> Math.pow(runtime - avg, 2)).average().orElse(0);
+                bh.consume(Collections.max(runtimes) + Collections.min(runtimes) + Math.sqrt(variance));
+            }
+            // prepareFeatures: calculateAverageRuntime、calculateTotalRuntime
+            bh.consume(pairRuntimes(deviceRecords).size());
+            bh.consume(pairRuntimes(deviceRecords).size());
+        }
+        // analyzeUsagePatterns
+        Map<Integer, Integer> hourly = new HashMap<>();
+        for (DeviceOfflineRecord record : recordList) {
+            if ("1".equals(record.getType())) {
+                int hour = DateUtil.hour(DateUtil.parseDateTime(record.getOnlineDate()), true);
+                hourly.put(hour, hourly.getOrDefault(hour, 0) + 1);
+            }
+        }
+        List<Double> continuous = new ArrayList<>();
+        for (List<DeviceOfflineRecord> deviceRecords : recordsByDevice.values()) {
+            deviceRecords.sort(Comparator.comparing(record -> DateUtil.parseDateTime(record.getOnlineDate())));
+            for (int i = 0; i + 1 < deviceRecords.size(); i += 2) {
+                DeviceOfflineRecord start = deviceRecords.get(i);
+                DeviceOfflineRecord end = deviceRecords.get(i + 1);
+                if ("1".equals(start.getType()) && "0".equals(end.getType())) {
+                    continuous.add((DateUtil.parseDateTime(end.getOnlineDate()).getTime()
+                            - DateUtil.parseDateTime(start.getOnlineDate()).getTime()) / (1000.0 * 60 * 60));
+                }
+            }
+        }
+        bh.consume(continuous.stream().mapToDouble(Double::doubleValue).average().orElse(0) + hourly.size());
+    }
+
+    /**
+     * 原上线、下线记录配对：每条上线记录取之后第一条下线记录
+     */
+    private static List<Double> pairRuntimes(List<DeviceOfflineRecord> records) {
+        List<DeviceOfflineRecord> onlineRecords = records.stream().filter(record -> "1".equals(record.getType())).collect(Collectors.toList());
+        List<DeviceOfflineRecord> offlineRecords = records.stream().filter(record -> "0".equals(record.getType())).collect(Collectors.toList());
+        List<Double> runtimes = new ArrayList<>();
+        int offlineIdx = 0;
+        for (DeviceOfflineRecord onlineRecord : onlineRecords) {
+            Date onlineTime = DateUtil.parseDateTime(onlineRecord.getOnlineDate());
+            while (offlineIdx < offlineRecords.size()) {
+                Date offlineTime = DateUtil.parseDateTime(offlineRecords.get(offlineIdx++).getOnlineDate());
+                if (offlineTime.after(onlineTime)) {
+                    runtimes.add((offlineTime.getTime() - onlineTime.getTime()) / (1000.0 * 60 * 60));
+                    break;
+                }
+            }
+        }
+        return runtimes;
+    }
+
+    /**
+     * 运行时段投影后的实现：按设备分组的实体列表，逐设备求和、方差，按上线时间字符串截取小时
+     */
+    @Benchmark
+    public void statsEntityList(Blackhole bh) {
+        Map<Integer, List<DeviceSession>> deviceMap = sessionList.stream().filter(session -> session.getDuration() != null)
+                .collect(Collectors.groupingBy(DeviceSession::getDeviceId));
+        for (List<DeviceSession> deviceSessions : deviceMap.values()) {
+            double total = 0;
+            double energy = 0;
+            List<Double> runtimes = new ArrayList<>(deviceSessions.size());
+            for (DeviceSession session : deviceSessions) {
+                double runtime = session.getDuration() / 3600.0;
+                total += runtime;
+                energy += session.getEnergy();
+                runtimes.add(runtime);
+            }
+            double avg = total / runtimes.size();
+            double variance = runtimes.stream().mapToDouble(runtime -> Math.pow(runtime - avg, 2)).average().orElse(0);
+            bh.consume(Collections.max(runtimes) + Collections.min(runtimes) + Math.sqrt(variance) + energy);
+        }
+        Map<Integer, Integer> hourly = new HashMap<>();
+        List<Double> continuous = new ArrayList<>();
+        for (DeviceSession session : sessionList) {
+            hourly.merge(Integer.parseInt(session.getStartDate().substring(11, 13)), 1, Integer::sum);
+            if (session.getDuration() != null) {
+                continuous.add(session.getDuration() / 3600.0);
+            }
+        }
+        bh.consume(continuous.stream().mapToDouble(Double::doubleValue).average().orElse(0) + Collections.max(continuous) + hourly.size());
+    }
+
+    @Benchmark
+    public DeviceSessionStats statsColumns() {
+        return DeviceSessionStats.compute(columns, DEVICE_COUNT);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(DeviceSessionStatsBenchmark.class.getSimpleName()).build()).run();
+    }
+}